@@ -0,0 +1,179 @@
+package onlineTest;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * BlankMatcher scores responses to one fill-in-the-blanks question. It is
+ * built once, when the question is added: the accepted spellings of each
+ * blank are normalized and put in a hash map to the blanks they fill, so
+ * scoring a response costs one lookup per entry.
+ *
+ * Each blank is filled by at most one entry of the response, and each
+ * entry fills at most one blank: one the entry is an accepted spelling of.
+ * Entries are matched to blanks so that as many blanks as possible are
+ * filled, and each filled blank earns points / number of blanks. Filling
+ * every blank earns exactly the question's points, and no response earns
+ * more, however many entries it has. With no flags and no alternatives the
+ * answers are matched exactly, and a response that repeats no answer
+ * scores the same as with computeQuestionScore.
+ *
+ * Flags:
+ *   IGNORE_CASE      answers match regardless of upper or lower case
+ *   FOLD_WHITESPACE  leading and trailing whitespace is ignored, and runs of
+ *                    whitespace inside an answer match a single space
+ */
+public class BlankMatcher implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final int EXACT = 0;
+	public static final int IGNORE_CASE = 1;
+	public static final int FOLD_WHITESPACE = 2;
+
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+	private static final int[] NO_BLANKS = new int[0];
+
+	private int flags;
+	private double points;
+	private int blanks;
+	private String[] answer;
+	private String[][] alternatives;  // as given, for saving the question
+
+	// each normalized spelling to the blanks it fills, in blank order;
+	// rebuilt from answer and alternatives on restore
+	private transient Map<String, int[]> blanksOf;
+
+	/**
+	 * @param answer       the expected answer of each blank
+	 * @param flags        a combination of IGNORE_CASE and FOLD_WHITESPACE
+	 * @param alternatives other accepted spellings of answer[i] at index i;
+	 *                     null, or null entries, for none
+	 */
+	public BlankMatcher(double points, String[] answer, int flags, String[][] alternatives) {
+		this.flags = flags;
+		this.points = points;
+		this.blanks = answer.length;
+		this.answer = answer.clone();
+		this.alternatives = alternatives;
+		index();
+	}
+
+	// the default matcher: exact answers only
+	public BlankMatcher(FillInTheBlanksQuestion question) {
+		this(question.getPoints(), question.getCorrectAnswer(), EXACT, null);
+	}
+
+	private void index() {
+		blanksOf = new HashMap<>();
+		for (int blank = 0; blank < blanks; blank++) {
+			accept(answer[blank], blank);
+			if (alternatives != null && blank < alternatives.length
+					&& alternatives[blank] != null) {
+				for (String spelling : alternatives[blank]) {
+					accept(spelling, blank);
+				}
+			}
+		}
+	}
+
+	private void accept(String spelling, int blank) {
+		String normalized = normalize(spelling);
+		int[] filled = blanksOf.getOrDefault(normalized, NO_BLANKS);
+		if (filled.length == 0 || filled[filled.length - 1] != blank) {
+			filled = Arrays.copyOf(filled, filled.length + 1);
+			filled[filled.length - 1] = blank;
+			blanksOf.put(normalized, filled);
+		}
+	}
+
+	public int getFlags() {
+		return flags;
+	}
+
+	public String[][] getAlternatives() {
+		return alternatives;
+	}
+
+	public double computeQuestionScore(String[] response) {
+		int filled = fillBlanks(response);
+		if (filled == blanks && blanks > 0) {
+			return points;
+		}
+		double score = 0.0;
+		for (int i = 0; i < filled; i++) {
+			score += points / blanks;
+		}
+		return score;
+	}
+
+	/**
+	 * The most blanks the entries of response can fill, each entry filling
+	 * one blank and each blank filled once: a maximum bipartite matching,
+	 * grown one entry at a time along augmenting paths.
+	 */
+	private int fillBlanks(String[] response) {
+		int[][] candidates = new int[response.length][];
+		int[] entryOf = new int[blanks];  // the entry filling each blank
+		Arrays.fill(entryOf, -1);
+		int filled = 0;
+
+		for (int entry = 0; entry < response.length && filled < blanks; entry++) {
+			candidates[entry] = blanksOf.getOrDefault(normalize(response[entry]), NO_BLANKS);
+			if (candidates[entry].length > 0
+					&& augment(entry, candidates, entryOf, new boolean[blanks])) {
+				filled++;
+			}
+		}
+		return filled;
+	}
+
+	// tries to give entry a blank, moving the entries already placed
+	private static boolean augment(int entry, int[][] candidates, int[] entryOf,
+								   boolean[] visited) {
+		for (int blank : candidates[entry]) {
+			if (!visited[blank]) {
+				visited[blank] = true;
+				if (entryOf[blank] < 0 || augment(entryOf[blank], candidates, entryOf, visited)) {
+					entryOf[blank] = entry;
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private String normalize(String value) {
+		if (value == null || flags == EXACT) {
+			return value;
+		}
+		if ((flags & FOLD_WHITESPACE) != 0) {
+			value = WHITESPACE.matcher(value.trim()).replaceAll(" ");
+		}
+		if ((flags & IGNORE_CASE) != 0) {
+			value = value.toLowerCase(Locale.ROOT);
+		}
+		return value;
+	}
+
+	/**
+	 * Matchers saved before they kept the answer cannot be rebuilt here;
+	 * Exam.readObject replaces them with one built from the question.
+	 */
+	boolean isIndexed() {
+		return blanksOf != null;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (answer != null) {
+			index();
+		}
+	}
+}
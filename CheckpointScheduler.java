@@ -0,0 +1,165 @@
+package onlineTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CheckpointScheduler writes binary snapshots (see ManagerSnapshot) of a
+ * live ConcurrentSystemManager on a background thread, at a fixed delay
+ * between checkpoints.
+ *
+ * Each snapshot is the manager as it was when the checkpoint began: answers
+ * that arrive while it is being written are applied right away, and the
+ * students they change are copied first (see
+ * ConcurrentSystemManager.beginCapture). Submissions never wait for the
+ * file. Like JournaledManager.checkpoint, the snapshot goes to a temporary
+ * file that is then moved over the previous one.
+ */
+public class CheckpointScheduler implements AutoCloseable {
+
+	private ConcurrentSystemManager manager;
+	private String fileName;
+	private ScheduledExecutorService executor;
+
+	// one checkpoint at a time, whether scheduled or requested
+	private final Object checkpointLock = new Object();
+
+	// metrics
+	private AtomicLong checkpointCount = new AtomicLong();
+	private AtomicLong failureCount = new AtomicLong();
+	private AtomicLong totalBytesWritten = new AtomicLong();
+	private volatile long lastBytesWritten;
+	private volatile long lastDurationNanos;
+	private volatile long maxDurationNanos;
+	private volatile int lastCopiedOnWrite;
+	private volatile Exception lastFailure;
+
+	/**
+	 * Checkpoints manager to fileName every period, starting one period
+	 * from now.
+	 */
+	public CheckpointScheduler(ConcurrentSystemManager manager, String fileName,
+							   long period, TimeUnit unit) {
+		this.manager = manager;
+		this.fileName = fileName;
+		this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "manager-checkpointer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleWithFixedDelay(this::scheduledCheckpoint, period, period, unit);
+	}
+
+	/**
+	 * Takes a checkpoint on the background thread now, besides the scheduled
+	 * ones. The returned future fails if the checkpoint does.
+	 */
+	public Future<Void> requestCheckpoint() {
+		return executor.submit(() -> {
+			checkpoint();
+			return null;
+		});
+	}
+
+	/**
+	 * Takes a checkpoint on the calling thread. Submissions to the manager
+	 * go on meanwhile. A failure is counted, see getFailureCount and
+	 * getLastFailure, before it is thrown.
+	 */
+	public void checkpoint() throws IOException {
+		synchronized (checkpointLock) {
+			try {
+				takeCheckpoint();
+			} catch (IOException | RuntimeException e) {
+				failureCount.incrementAndGet();
+				lastFailure = e;
+				throw e;
+			}
+		}
+	}
+
+	private void takeCheckpoint() throws IOException {
+		long start = System.nanoTime();
+		ConcurrentSystemManager.Capture capture = manager.beginCapture();
+		File temp = new File(fileName + ".tmp");
+		long bytes;
+
+		try {
+			bytes = ManagerSnapshot.write(manager, capture, temp.getPath());
+			ManagerSnapshot.replace(temp, fileName);
+		} finally {
+			manager.endCapture(capture);
+		}
+
+		long duration = System.nanoTime() - start;
+		lastDurationNanos = duration;
+		maxDurationNanos = Math.max(maxDurationNanos, duration);
+		lastBytesWritten = bytes;
+		lastCopiedOnWrite = capture.copiedOnWrite.get();
+		totalBytesWritten.addAndGet(bytes);
+		checkpointCount.incrementAndGet();
+	}
+
+	// a failure must not cancel the later runs; checkpoint has counted it
+	private void scheduledCheckpoint() {
+		try {
+			checkpoint();
+		} catch (IOException | RuntimeException e) {
+			// see getFailureCount and getLastFailure
+		}
+	}
+
+	/**
+	 * Stops scheduling checkpoints and waits for one in progress to finish.
+	 */
+	public void close() {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+// ------------------------------ metrics: ---------------------------------
+
+	// completed checkpoints
+	public long getCheckpointCount() {
+		return checkpointCount.get();
+	}
+
+	public long getFailureCount() {
+		return failureCount.get();
+	}
+
+	// the exception of the latest failed checkpoint, null if none failed
+	public Exception getLastFailure() {
+		return lastFailure;
+	}
+
+	public long getLastDurationNanos() {
+		return lastDurationNanos;
+	}
+
+	public long getMaxDurationNanos() {
+		return maxDurationNanos;
+	}
+
+	public long getLastBytesWritten() {
+		return lastBytesWritten;
+	}
+
+	public long getTotalBytesWritten() {
+		return totalBytesWritten.get();
+	}
+
+	// students that changed during the latest checkpoint and were copied for it
+	public int getLastCopiedOnWrite() {
+		return lastCopiedOnWrite;
+	}
+}
@@ -0,0 +1,73 @@
+package onlineTest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ChoiceGrader grades responses to one MultipleChoiceQuestion with a
+ * bitmask. Each option of the correct answer is given a bit when the grader
+ * is built. A response sets the bits of its options, and it is correct when
+ * it sets exactly the bits of the correct answer, in any order, with no
+ * option repeated and none left over. Nothing is sorted or copied per
+ * response.
+ *
+ * Correct answers that a mask cannot represent, i.e. ones with repeated or
+ * null options or more than 64 options, are left to the question's own
+ * isCorrectAnswer, as are responses with a null option anywhere in them.
+ */
+class ChoiceGrader {
+
+	private MultipleChoiceQuestion question;
+	private Map<String, Integer> optionBits = new HashMap<>();
+	private long correctMask;
+	private boolean usesMask = true;
+
+	ChoiceGrader(MultipleChoiceQuestion question) {
+		this.question = question;
+		String[] answer = question.getCorrectAnswer();
+
+		if (answer.length > Long.SIZE) {
+			usesMask = false;
+			return;
+		}
+		for (String option : answer) {
+			if (option == null || optionBits.containsKey(option)) {
+				usesMask = false;
+				return;
+			}
+			optionBits.put(option, optionBits.size());
+		}
+		correctMask = answer.length == Long.SIZE ? -1L : (1L << answer.length) - 1;
+	}
+
+	boolean isCorrectAnswer(String[] response) {
+		if (!usesMask) {
+			return question.isCorrectAnswer(response);
+		}
+		long mask = 0L;
+
+		for (int i = 0; i < response.length; i++) {
+			String option = response[i];
+			if (option == null) {
+				return question.isCorrectAnswer(response);
+			}
+			Integer bit = optionBits.get(option);
+			if (bit == null || (mask & (1L << bit)) != 0) {
+				// not an option of the answer, or repeated; a null option
+				// further on still goes to the question
+				return hasNull(response, i + 1) && question.isCorrectAnswer(response);
+			}
+			mask |= 1L << bit;
+		}
+		return mask == correctMask;
+	}
+
+	private static boolean hasNull(String[] response, int from) {
+		for (int i = from; i < response.length; i++) {
+			if (response[i] == null) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
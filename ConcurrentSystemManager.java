@@ -0,0 +1,299 @@
+package onlineTest;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread-safe SystemManager for live exam windows, where many students
+ * submit answers at the same time.
+ *
+ * Exams and students are kept in concurrent maps, and every operation that
+ * touches a single student runs under that student's own lock. Submissions
+ * from different students therefore proceed in parallel, while submissions
+ * from the same student are applied one at a time, in the same way the
+ * single-threaded SystemManager would apply them.
+ *
+ * A checkpoint (see CheckpointScheduler) captures a point-in-time view
+ * without stopping submissions: the exams, cutoffs and roster are copied
+ * when it begins, and each student's state is copied the first time it
+ * changes after that, before the change is applied.
+ */
+public class ConcurrentSystemManager extends SystemManager {
+
+	private static final long serialVersionUID = 1L;
+
+	private ConcurrentMap<Integer, Exam> exams;
+	private ConcurrentMap<String, Student> students;
+	private ConcurrentNavigableMap<String, Student> studentIndex;
+
+	// the checkpoint being taken, if any, and the number of checkpoints begun
+	private transient volatile Capture capture;
+	private transient long captureEpoch;
+
+	public ConcurrentSystemManager() {
+		this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentSkipListMap<>());
+	}
+
+	private ConcurrentSystemManager(ConcurrentMap<Integer, Exam> exams,
+									ConcurrentMap<String, Student> students,
+									ConcurrentNavigableMap<String, Student> studentIndex) {
+		super(exams, students, studentIndex);
+		this.exams = exams;
+		this.students = students;
+		this.studentIndex = studentIndex;
+	}
+
+	/**
+	 * Adds the specified exam to the database.
+	 * @return false if exam already exists.
+	 */
+	public boolean addExam(int examId, String title) {
+		return exams.putIfAbsent(examId, new Exam(examId, title)) == null;
+	}
+
+	/**
+	 * Adds the specified student to the database.
+	 * @return false if student already exists.
+	 */
+	public boolean addStudent(String studentName) {
+		Student student = new Student(studentName);
+
+		if (students.putIfAbsent(studentName, student) != null) {
+			return false;
+		}
+		studentIndex.put(studentName, student);
+		return true;
+	}
+
+// ------------- questions are added under the exam's lock: -------------
+
+	public void addTrueFalseQuestion(int examId, int questionNumber, String text,
+											double points, boolean answer) {
+		synchronized (exams.get(examId)) {
+			super.addTrueFalseQuestion(examId, questionNumber, text, points, answer);
+		}
+	}
+
+	public void addMultipleChoiceQuestion(int examId, int questionNumber,
+								String text, double points, String[] answer) {
+		synchronized (exams.get(examId)) {
+			super.addMultipleChoiceQuestion(examId, questionNumber, text, points, answer);
+		}
+	}
+
+	public void addFillInTheBlanksQuestion(int examId, int questionNumber,
+								String text, double points, String[] answer) {
+		synchronized (exams.get(examId)) {
+			super.addFillInTheBlanksQuestion(examId, questionNumber, text, points, answer);
+		}
+	}
+
+	public void addFillInTheBlanksQuestion(int examId, int questionNumber, String text,
+								double points, String[] answer, int matchFlags,
+								String[][] alternatives) {
+		synchronized (exams.get(examId)) {
+			super.addFillInTheBlanksQuestion(examId, questionNumber, text, points, answer,
+											 matchFlags, alternatives);
+		}
+	}
+
+	public String getKey(int examId) {
+		Exam exam = exams.get(examId);
+		if (exam == null) {
+			return "Exam not found";
+		}
+		synchronized (exam) {
+			return super.getKey(examId);
+		}
+	}
+
+// ------------- answers are applied under the student's lock: -------------
+
+	public void answerTrueFalseQuestion(String studentName, int examId,
+										int questionNumber, boolean answer) {
+		Student student = students.get(studentName);
+		synchronized (student) {
+			preserve(student);
+			super.answerTrueFalseQuestion(studentName, examId, questionNumber, answer);
+		}
+	}
+
+	public void answerMultipleChoiceQuestion(String studentName, int examId,
+										int questionNumber, String[] answer) {
+		Student student = students.get(studentName);
+		synchronized (student) {
+			preserve(student);
+			super.answerMultipleChoiceQuestion(studentName, examId, questionNumber, answer);
+		}
+	}
+
+	public void answerFillInTheBlanksQuestion(String studentName, int examId,
+										int questionNumber, String[] answer) {
+		Student student = students.get(studentName);
+		synchronized (student) {
+			preserve(student);
+			super.answerFillInTheBlanksQuestion(studentName, examId, questionNumber, answer);
+		}
+	}
+
+	// a batch is applied to one student at a time, under that student's lock
+	protected void applyAnswers(Student student, Exam exam, Map<Integer, Object> answers) {
+		synchronized (student) {
+			preserve(student);
+			super.applyAnswers(student, exam, answers);
+		}
+	}
+
+	// each student is regraded under its lock, like a batch of answers
+	protected boolean regradeStudent(Student student, Exam exam, int[] questionNumbers) {
+		synchronized (student) {
+			preserve(student);
+			return super.regradeStudent(student, exam, questionNumbers);
+		}
+	}
+
+// ------------------------ grades: ------------------------
+
+	public synchronized void setLetterGradesCutoffs(String[] letterGrades, double[] cutoffs) {
+		super.setLetterGradesCutoffs(letterGrades, cutoffs);
+	}
+
+	protected double getCourseNumericGrade(Student student) {
+		synchronized (student) {
+			return super.getCourseNumericGrade(student);
+		}
+	}
+
+	// the letter grades and cutoffs are read as one consistent pair
+	public synchronized String getCourseLetterGrade(String studentName) {
+		return super.getCourseLetterGrade(studentName);
+	}
+
+	// the letter grades and cutoffs are read as a pair under the lock, and
+	// the listing is written outside it, so a slow writer holds up nobody
+	public void writeCourseGrades(Writer out) throws IOException {
+		String[] letterGrades;
+		double[] cutoffs;
+		synchronized (this) {
+			letterGrades = getLetterGrades();
+			cutoffs = getCutoffs();
+		}
+		writeCourseGrades(out, letterGrades, cutoffs);
+	}
+
+	// each line's letter grade is read like getCourseLetterGrade
+	protected synchronized String courseGradeLine(Student student) {
+		return super.courseGradeLine(student);
+	}
+
+	public synchronized Map<String, Long> getGradeBandCounts(int examId) {
+		return super.getGradeBandCounts(examId);
+	}
+
+	protected SystemManager newManager() {
+		return new ConcurrentSystemManager();
+	}
+
+	protected NavigableMap<String, Student> newStudentIndex() {
+		return new ConcurrentSkipListMap<>();
+	}
+
+	// a manager saved before the name index existed gets the one
+	// SystemManager.readObject rebuilt
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (studentIndex == null) {
+			studentIndex = (ConcurrentNavigableMap<String, Student>) getStudentIndex();
+		}
+	}
+
+// ------------------------ checkpoints: ------------------------
+
+	/**
+	 * Begins a checkpoint: copies the cutoffs, the exams and the roster as
+	 * they are now. Until endCapture, a student who is about to change is
+	 * copied first, so imageOf can still return it as it was here. Each
+	 * student is copied at most once per checkpoint.
+	 *
+	 * The capture is published before the exams are copied. A student who
+	 * changes after that is copied as they were before the change, so no
+	 * student image can refer to a question or exam that the exam copies
+	 * lack. At worst an exam copy has a question added after the capture
+	 * began.
+	 */
+	synchronized Capture beginCapture() {
+		if (capture != null) {
+			throw new IllegalStateException("A checkpoint is already being taken");
+		}
+		Capture current = new Capture(++captureEpoch, getLetterGrades(), getCutoffs());
+		capture = current;
+
+		for (Exam exam : exams.values()) {
+			synchronized (exam) {
+				current.exams.add(exam.copy());
+			}
+		}
+		current.students.addAll(studentIndex.values());
+		return current;
+	}
+
+	// the student as it was when current began
+	Student imageOf(Capture current, Student student) {
+		synchronized (student) {
+			Student image = current.images.remove(student);
+			if (image == null) {
+				student.claimCheckpoint(current.epoch);
+				image = student.copy();
+			}
+			return image;
+		}
+	}
+
+	synchronized void endCapture(Capture current) {
+		if (capture == current) {
+			capture = null;
+		}
+	}
+
+	// copies the student if a checkpoint still needs it as it is now;
+	// callers hold the student's lock
+	private void preserve(Student student) {
+		Capture current = capture;
+		if (current != null && student.claimCheckpoint(current.epoch)) {
+			current.images.put(student, student.copy());
+			current.copiedOnWrite.incrementAndGet();
+		}
+	}
+
+	/**
+	 * A point-in-time view of the manager, taken by beginCapture.
+	 */
+	static class Capture {
+		final long epoch;
+		final String[] letterGrades;
+		final double[] cutoffs;
+		// filled in by beginCapture once the capture is published
+		final List<Exam> exams = new ArrayList<>();
+		final List<Student> students = new ArrayList<>();
+
+		// students copied before changing, by the live student
+		final Map<Student, Student> images = new ConcurrentHashMap<>();
+		final AtomicInteger copiedOnWrite = new AtomicInteger();
+
+		Capture(long epoch, String[] letterGrades, double[] cutoffs) {
+			this.epoch = epoch;
+			this.letterGrades = letterGrades == null ? null : letterGrades.clone();
+			this.cutoffs = cutoffs == null ? null : cutoffs.clone();
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package onlineTest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded ring buffer for many producers and one consumer, without locks.
+ *
+ * Each slot has a sequence number saying whose turn it is: a producer
+ * claims the slot of position p by moving the tail from p to p + 1 with
+ * compare-and-set, fills it, and publishes it by setting its sequence to
+ * p + 1; the consumer empties it and sets its sequence to p + capacity,
+ * handing it to the producer of the next lap. offer fails instead of
+ * waiting when the ring is full.
+ */
+class EventRing<E> {
+
+	private final Object[] slots;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	private final AtomicLong tail = new AtomicLong();
+	private long head;  // only read and written by the consumer
+
+	// capacity is rounded up to a power of two
+	EventRing(int capacity) {
+		int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+		slots = new Object[size];
+		sequences = new AtomicLongArray(size);
+		mask = size - 1;
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	int capacity() {
+		return slots.length;
+	}
+
+	// false if the ring is full
+	boolean offer(E event) {
+		long position = tail.get();
+		while (true) {
+			int index = (int) position & mask;
+			long sequence = sequences.get(index);
+			if (sequence == position) {
+				if (tail.compareAndSet(position, position + 1)) {
+					slots[index] = event;
+					sequences.set(index, position + 1);
+					return true;
+				}
+				position = tail.get();
+			} else if (sequence < position) {
+				return false;  // the consumer has not emptied it yet
+			} else {
+				position = tail.get();  // another producer took it
+			}
+		}
+	}
+
+	// consumer only: the next event, or null if none is published
+	@SuppressWarnings("unchecked")
+	E poll() {
+		int index = (int) head & mask;
+		if (sequences.get(index) != head + 1) {
+			return null;
+		}
+		E event = (E) slots[index];
+		slots[index] = null;
+		sequences.set(index, head + slots.length);
+		head++;
+		return event;
+	}
+
+	// consumer only
+	boolean isEmpty() {
+		return sequences.get((int) head & mask) != head + 1;
+	}
+}
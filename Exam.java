@@ -1,18 +1,86 @@
 package onlineTest;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 public class Exam implements Serializable {
 	private static final long serialVersionUID = 1L;
+
+	// the serialized form is still the question list the table replaced, in
+	// question number order, so managers saved before it can be restored
+	private static final ObjectStreamField[] serialPersistentFields = {
+		new ObjectStreamField("examId", int.class),
+		new ObjectStreamField("title", String.class),
+		new ObjectStreamField("questions", ArrayList.class),
+		new ObjectStreamField("blankMatchers", Map.class),
+	};
+
+	private static final Slot[] NO_QUESTIONS = new Slot[0];
+	private static final int[] NO_NUMBERS = new int[0];
+
+	// numbers index directly up to SPARSE_FACTOR times the question count,
+	// and always up to MIN_DIRECT; past that, through sparseIndex
+	private static final int SPARSE_FACTOR = 4;
+	private static final int MIN_DIRECT = 64;
+
 	private int examId;
 	private String title;
-	private ArrayList<Question> questions;
+
+	// the questions in the order they were first added: each question's
+	// dense index, which it keeps when it is overwritten. Students store
+	// their scores and responses by dense index too, see ExamRecord
+	private transient volatile Slot[] slots;
+
+	// question number n to 1 + its dense index in directIndex[n - 1], 0 where
+	// there is no such question; null once a number is too far past the
+	// question count, after which sparseIndex maps the numbers instead
+	private transient volatile int[] directIndex;
+	private transient volatile Map<Integer, Integer> sparseIndex;
+	private transient int questionCount;
+	private transient int maxQuestionNumber;
+
+	// the questions in number order, listed on first use after a change
+	private transient volatile QuestionList questionList;
+
+	// sum of the questions' points, kept up to date by addQuestion; added
+	// up again when a question is overwritten, so it never drifts
+	private transient volatile double examTotalScores;
+
+	// running aggregates of the students' scores on this exam
+	private transient ExamStatistics statistics;
+
+	// the students who took this exam, in name order; rebuilt on restore
+	private transient NavigableSet<Student> participants;
+
+	// ids of the response strings students store, see ExamRecord
+	private transient ResponseDictionary responseDictionary;
+
+	// the rendered answer key, until a question is added
+	private transient volatile String key;
+
+	// changes each time a question is added or overwritten
+	private transient volatile long questionsVersion;
 	
 	public Exam(int examId, String title) {
 		this.examId = examId;
 		this.title = title;
-		questions = new ArrayList<>();
+		slots = NO_QUESTIONS;
+		directIndex = NO_NUMBERS;
+		statistics = new ExamStatistics();
+		participants = new ConcurrentSkipListSet<>();
+		responseDictionary = new ResponseDictionary();
 	}
 	
 	public int getExamId() {
@@ -23,24 +91,419 @@ public class Exam implements Serializable {
 		return title;
 	}
 	
+	/**
+	 * Returns the questions in question number order. The list is shared
+	 * until the next question is added, so callers must not change it.
+	 */
 	public ArrayList<Question> getQuestions() {
+		long version = questionsVersion;
+		QuestionList listed = questionList;
+		if (listed != null && listed.version == version) {
+			return listed.questions;
+		}
+
+		ArrayList<Question> questions = new ArrayList<>(questionCount);
+		int[] direct = directIndex;
+		if (direct != null) {
+			Slot[] current = slots;
+			for (int index : direct) {
+				if (index > 0 && index <= current.length) {
+					questions.add(current[index - 1].question);
+				}
+			}
+		} else {
+			for (Slot slot : slots) {
+				if (slot != null) {
+					questions.add(slot.question);
+				}
+			}
+			questions.sort(Comparator.comparingInt(Question::getQuestionNumber));
+		}
+		questionList = new QuestionList(version, questions);
 		return questions;
 	}
 
+	// the number of questions, in constant time
+	public int getQuestionCount() {
+		return questionCount;
+	}
+
+	// the highest question number in use, 0 if there are no questions
+	public int getMaxQuestionNumber() {
+		return maxQuestionNumber;
+	}
+
+	public ExamStatistics getStatistics() {
+		return statistics;
+	}
+
+	ResponseDictionary getResponseDictionary() {
+		return responseDictionary;
+	}
+
+	// starts the aggregates over, e.g. before rebuilding them from the students
+	public void resetStatistics() {
+		statistics = new ExamStatistics();
+	}
+
+	// puts back aggregates saved earlier, e.g. in a snapshot
+	void restoreStatistics(ExamStatistics statistics) {
+		this.statistics = statistics;
+	}
+
+	// the students who took this exam, in name order, as a read-only view
+	public NavigableSet<Student> getParticipants() {
+		return Collections.unmodifiableNavigableSet(participants);
+	}
+
+	// registers a student who took this exam; registering twice is harmless
+	void addParticipant(Student student) {
+		participants.add(student);
+	}
+
+	// forgets the participants, e.g. before rebuilding them from the students
+	void clearParticipants() {
+		participants.clear();
+	}
+
+	// total points of the exam, in constant time
 	public double getExamTotalScores() {
-		double examTotalScores = 0;
-		for(Question question: questions) {
-			examTotalScores += question.getPoints();
-		}
 		return examTotalScores;
 	}
 	
-	// get a specific Question object based on question number
+	// true if this exam has a question with the given number
+	public boolean hasQuestion(int questionNumber) {
+		return slot(questionNumber) != null;
+	}
+
+	// get a specific Question object based on question number, null if none
 	public Question getQuestion(int questionNumber) {
-		return questions.get(questionNumber - 1);
+		Slot slot = slot(questionNumber);
+		return slot == null ? null : slot.question;
+	}
+
+	/**
+	 * The dense index of the question with the given number: 0 for the
+	 * first question added, up to the question count - 1. It never changes
+	 * for as long as the exam has the question.
+	 * @return the index, or -1 if there is no such question
+	 */
+	int indexOf(int questionNumber) {
+		int[] direct = directIndex;
+		if (direct != null) {
+			return questionNumber >= 1 && questionNumber <= direct.length
+					? direct[questionNumber - 1] - 1 : -1;
+		}
+		Integer index = sparseIndex.get(questionNumber);
+		return index == null ? -1 : index;
+	}
+
+	// the number of the question with the given dense index
+	int questionNumberAt(int index) {
+		return slots[index].question.getQuestionNumber();
+	}
+
+	// the slot of the question with the given number, null if none
+	private Slot slot(int questionNumber) {
+		int index = indexOf(questionNumber);
+		Slot[] listed = slots;
+		return index >= 0 && index < listed.length ? listed[index] : null;
+	}
+
+	// the slot holding this very question, null if it is not in this exam
+	private Slot slotOf(Question question) {
+		Slot slot = slot(question.getQuestionNumber());
+		return slot != null && slot.question == question ? slot : null;
 	}
 	
-	// add a Question obj to the ArrayList of Questions for this exam
-	public void addQuestion(Question question) {
-		questions.add(question.getQuestionNumber() - 1, question);
+	/**
+	 * Adds a Question obj to this exam, overwriting any with the same number.
+	 * @return true if the exam had no question with that number
+	 */
+	public boolean addQuestion(Question question) {
+		BlankMatcher matcher = null;
+		if (question instanceof FillInTheBlanksQuestion) {
+			matcher = new BlankMatcher((FillInTheBlanksQuestion) question);
+		}
+		return insertQuestion(new Slot(question, matcher));
+	}
+
+	// adds a fill-in-the-blanks question that is scored by the given matcher;
+	// true if the exam had no question with its number
+	public boolean addQuestion(FillInTheBlanksQuestion question, BlankMatcher matcher) {
+		return insertQuestion(new Slot(question, matcher));
+	}
+
+	private boolean insertQuestion(Slot slot) {
+		Question replaced = put(slot);
+		if (replaced == null) {
+			examTotalScores += slot.question.getPoints();
+		} else {
+			examTotalScores = sumOfPoints();
+		}
+		key = null;
+		questionsVersion++;  // callers hold the exam's lock when shared
+		return replaced == null;
+	}
+
+	/**
+	 * The points of the questions added up from scratch, in the order the
+	 * running total adds them. Taking an overwritten question's points back
+	 * out of the total would leave a rounding error behind each time.
+	 */
+	private double sumOfPoints() {
+		Slot[] listed = slots;
+		double sum = 0.0;
+		for (int i = 0; i < questionCount; i++) {
+			sum += listed[i].question.getPoints();
+		}
+		return sum;
+	}
+
+	/**
+	 * Stores a question, with its grader or matcher, in the slot of the
+	 * question it replaces, whose grader or matcher goes with it, or else
+	 * in a new slot at the end. The slots and the direct index grow to at
+	 * least twice their size when full. A number too far past the question
+	 * count moves the numbers to sparseIndex for good, so the index is never
+	 * much larger than the exam.
+	 * @return the question it replaced, or null
+	 */
+	private Question put(Slot slot) {
+		int number = slot.question.getQuestionNumber();
+		if (number < 1) {
+			throw new IllegalArgumentException("Invalid question number: " + number);
+		}
+
+		Slot[] listed = slots;
+		int index = indexOf(number);
+		if (index >= 0) {
+			Slot replaced = listed[index];
+			listed[index] = slot;
+			slots = listed;
+			return replaced.question;
+		}
+
+		// the slot is published before the number that leads to it
+		index = questionCount;
+		if (index >= listed.length) {
+			listed = Arrays.copyOf(listed, Math.max(index + 1, 2 * listed.length));
+		}
+		listed[index] = slot;
+		slots = listed;
+
+		int[] direct = directIndex;
+		if (direct != null && number > Math.max(MIN_DIRECT, SPARSE_FACTOR * (index + 1))) {
+			Map<Integer, Integer> sparse = new ConcurrentHashMap<>();
+			for (int i = 0; i < direct.length; i++) {
+				if (direct[i] > 0) {
+					sparse.put(i + 1, direct[i] - 1);
+				}
+			}
+			sparseIndex = sparse;
+			directIndex = direct = null;
+		}
+		if (direct != null) {
+			if (number > direct.length) {
+				direct = Arrays.copyOf(direct, Math.max(number, 2 * direct.length));
+			}
+			direct[number - 1] = index + 1;
+			directIndex = direct;
+		} else {
+			sparseIndex.put(number, index);
+		}
+
+		questionCount++;
+		maxQuestionNumber = Math.max(maxQuestionNumber, number);
+		return null;
+	}
+
+	// lets students tell whether a report rendered earlier is still current
+	public long getQuestionsVersion() {
+		return questionsVersion;
+	}
+
+	/**
+	 * Returns the matcher of one of this exam's fill-in-the-blanks
+	 * questions. A question that is no longer in the exam, e.g. one just
+	 * overwritten, gets a new matcher that is not kept.
+	 */
+	public BlankMatcher getBlankMatcher(FillInTheBlanksQuestion question) {
+		Slot slot = slotOf(question);
+		BlankMatcher matcher = slot == null ? null : slot.matcher;
+		if (matcher == null) {
+			matcher = new BlankMatcher(question);
+			if (slot != null) {
+				slot.matcher = matcher;
+			}
+		}
+		return matcher;
+	}
+
+	// scores a response to one of this exam's fill-in-the-blanks questions
+	public double computeQuestionScore(FillInTheBlanksQuestion question, String[] response) {
+		return getBlankMatcher(question).computeQuestionScore(response);
+	}
+
+	// grades a response to one of this exam's multiple choice questions
+	public boolean isCorrectAnswer(MultipleChoiceQuestion question, String[] response) {
+		Slot slot = slotOf(question);
+		ChoiceGrader grader = slot == null ? null : slot.grader;
+		if (grader == null) {
+			grader = new ChoiceGrader(question);
+			if (slot != null) {
+				slot.grader = grader;
+			}
+		}
+		return grader.isCorrectAnswer(response);
+	}
+
+	/**
+	 * Returns the answer key: each question's text, points and correct
+	 * answer, with the options of multiple choice and fill-in-the-blanks
+	 * answers sorted. It is rendered once and kept until a question is
+	 * added. The answers are sorted in a copy, never in place.
+	 */
+	public String getKey() {
+		String rendered = key;
+		if (rendered != null) {
+			return rendered;
+		}
+		StringBuffer key = new StringBuffer();
+
+		for (Question question : getQuestions()) {
+			key.append("Question Text: ").append(question.getText());
+			key.append("\nPoints: ").append(question.getPoints());
+			key.append("\nCorrect Answer: ");
+
+			if (question instanceof TrueFalseQuestion) {
+				boolean ans = ((TrueFalseQuestion) question).getCorrectAnswer();
+				key.append(ans ? "True" : "False").append("\n");
+
+			} else {
+				String[] ans = null;
+
+				if (question instanceof MultipleChoiceQuestion) {
+					ans = ((MultipleChoiceQuestion) question).getCorrectAnswer().clone();
+				} else if (question instanceof FillInTheBlanksQuestion) {
+					ans = ((FillInTheBlanksQuestion) question).getCorrectAnswer().clone();
+				}
+
+				Arrays.sort(ans);
+
+				key.append("[");
+				for (int i = 0; i < ans.length - 1; i++) {
+					key.append(ans[i]).append(", ");
+				}
+				key.append(ans[ans.length - 1]).append("]\n");
+			}
+		}
+
+		rendered = key.toString();
+		this.key = rendered;
+		return rendered;
+	}
+
+	// the exam and its questions as they are now, without statistics;
+	// callers hold this exam's lock
+	Exam copy() {
+		Exam copy = new Exam(examId, title);
+		copy.slots = slots.clone();
+		copy.directIndex = directIndex == null ? null : directIndex.clone();
+		copy.sparseIndex = sparseIndex == null ? null : new ConcurrentHashMap<>(sparseIndex);
+		copy.questionCount = questionCount;
+		copy.maxQuestionNumber = maxQuestionNumber;
+		copy.examTotalScores = examTotalScores;
+		return copy;
+	}
+
+	// written whole, never halfway through adding a question
+	private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("examId", examId);
+		fields.put("title", title);
+		fields.put("questions", new ArrayList<>(getQuestions()));
+		fields.put("blankMatchers", getBlankMatchers());
+		out.writeFields();
+	}
+
+	// the slots, index and cached total are rebuilt from the question list;
+	// the statistics and participants are rebuilt from the students by
+	// SystemManager
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		examId = fields.get("examId", 0);
+		title = (String) fields.get("title", null);
+		Map<Question, BlankMatcher> blankMatchers =
+				(Map<Question, BlankMatcher>) fields.get("blankMatchers", null);
+		ArrayList<Question> questions = (ArrayList<Question>) fields.get("questions", null);
+
+		slots = NO_QUESTIONS;
+		directIndex = NO_NUMBERS;
+		statistics = new ExamStatistics();
+		participants = new ConcurrentSkipListSet<>();
+		responseDictionary = new ResponseDictionary();
+		if (blankMatchers == null) {  // saved before matchers existed; built on first use
+			blankMatchers = new HashMap<>();
+		}
+
+		// lists saved before the table may hold a number twice, as adding a
+		// question used to insert rather than overwrite; the first is newest
+		for (Question question : questions) {
+			if (!hasQuestion(question.getQuestionNumber())) {
+				put(new Slot(question, restoredMatcher(question, blankMatchers.get(question))));
+				examTotalScores += question.getPoints();
+			}
+		}
+	}
+
+	// a saved matcher, rebuilt from its question if it was saved before
+	// matchers kept their answer
+	private static BlankMatcher restoredMatcher(Question question, BlankMatcher matcher) {
+		if (matcher == null || matcher.isIndexed()) {
+			return matcher;
+		}
+		return new BlankMatcher(question.getPoints(),
+				((FillInTheBlanksQuestion) question).getCorrectAnswer(), matcher.getFlags(),
+				matcher.getAlternatives());
+	}
+
+	// the fill-in-the-blanks matchers built so far, by question, as saved
+	private Map<Question, BlankMatcher> getBlankMatchers() {
+		Map<Question, BlankMatcher> matchers = new HashMap<>();
+		for (Slot slot : slots) {
+			if (slot != null && slot.matcher != null) {
+				matchers.put(slot.question, slot.matcher);
+			}
+		}
+		return matchers;
+	}
+
+	/**
+	 * A question and what scores it: the grader of a multiple choice
+	 * question, built on first use, or the matcher of a fill-in-the-blanks
+	 * question. Both belong to that one question, and are replaced with it.
+	 */
+	private static class Slot {
+		private final Question question;
+		private volatile ChoiceGrader grader;
+		private volatile BlankMatcher matcher;
+
+		Slot(Question question, BlankMatcher matcher) {
+			this.question = question;
+			this.matcher = matcher;
+		}
+	}
+
+	// a listing of the questions, valid while questionsVersion is unchanged
+	private static class QuestionList {
+		private final long version;
+		private final ArrayList<Question> questions;
+
+		QuestionList(long version, ArrayList<Question> questions) {
+			this.version = version;
+			this.questions = questions;
+		}
 	}
+}
@@ -0,0 +1,403 @@
+package onlineTest;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * ExamRecord holds one student's score, question scores and responses for
+ * one exam, in arrays indexed by each question's dense index in the exam,
+ * see Exam.indexOf, rather than in maps of boxed values:
+ *
+ *   question scores    a double[], NaN where the question has no score
+ *   true/false answers two bitsets, one for "answered" and one for the value
+ *   string answers     an int[] per question, of ids in the exam's
+ *                      ResponseDictionary
+ *
+ * Each array is only created once the first value of its kind is stored,
+ * with room for the exam's questions, so its size follows the number of
+ * questions however high they are numbered. Values for questions the exam
+ * has no index for, all of them until the exam is known and any stored
+ * before their question was added, are kept in small maps by question
+ * number instead. The owning Student's lock guards an ExamRecord.
+ *
+ * The record also keeps the student's last rendered grading report. Any
+ * change to the record drops it, and it is only reused while the exam's
+ * questions are those it was rendered against.
+ */
+class ExamRecord {
+
+	private static final int[][] NO_STRING_RESPONSES = new int[0][];
+
+	private int examId;
+	private Exam exam;  // null while only responses were added, see Student.addResponse
+	private ResponseDictionary dictionary;
+
+	private boolean scored;
+	private double score;
+	private double[] questionScores;
+	private long[] booleanAnswered;
+	private long[] booleanValues;
+	private int[][] stringResponses = NO_STRING_RESPONSES;
+	private boolean hasResponses;
+
+	// by question number, for questions without a dense index; a response
+	// is a Boolean or the int[] ids of its strings
+	private Map<Integer, Double> looseScores;
+	private Map<Integer, Object> looseResponses;
+
+	// the rendered grading report and the exam's questions version it used
+	private String report;
+	private long reportVersion;
+
+	ExamRecord(int examId, Exam exam) {
+		this.examId = examId;
+		this.exam = exam;
+		this.dictionary = exam == null ? new ResponseDictionary() : exam.getResponseDictionary();
+	}
+
+	int getExamId() {
+		return examId;
+	}
+
+	Exam getExam() {
+		return exam;
+	}
+
+	/**
+	 * Registers the exam this record belongs to. Scores and responses
+	 * stored before that are stored again by the exam's dense indexes, and
+	 * the responses move from the dictionary they used to the exam's.
+	 */
+	void setExam(Exam exam) {
+		if (exam != this.exam) {
+			Map<Integer, Double> scores = getQuestionScores();
+			Map<Integer, Object> responses = getResponses();
+
+			this.exam = exam;
+			dictionary = exam.getResponseDictionary();
+			questionScores = null;
+			booleanAnswered = null;
+			booleanValues = null;
+			stringResponses = NO_STRING_RESPONSES;
+			looseScores = null;
+			looseResponses = null;
+
+			for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+				setQuestionScore(entry.getKey(), entry.getValue());
+			}
+			for (Map.Entry<Integer, Object> entry : responses.entrySet()) {
+				setResponse(entry.getKey(), entry.getValue());
+			}
+		}
+		report = null;
+	}
+
+// ------------------------------ scores: ----------------------------------
+
+	boolean hasScore() {
+		return scored;
+	}
+
+	// 0.0 if there is no score yet
+	double getScore() {
+		return score;
+	}
+
+	void setScore(double score) {
+		this.score = score;
+		scored = true;
+		report = null;
+	}
+
+	void addToScore(double increase) {
+		setScore(scored ? score + increase : increase);
+	}
+
+	boolean hasQuestionScore(int questionNumber) {
+		return hasScoreAt(indexOf(questionNumber))
+				|| looseScores != null && looseScores.containsKey(questionNumber);
+	}
+
+	// 0.0 if the question has no score
+	double getQuestionScore(int questionNumber) {
+		int index = indexOf(questionNumber);
+		if (hasScoreAt(index)) {
+			return questionScores[index];
+		}
+		return looseScores == null ? 0.0 : looseScores.getOrDefault(questionNumber, 0.0);
+	}
+
+	/**
+	 * Stores the score of one question.
+	 * @return the difference from its previous score, or score if it had none
+	 */
+	double setQuestionScore(int questionNumber, double score) {
+		double previous = getQuestionScore(questionNumber);
+		boolean hadScore = hasQuestionScore(questionNumber);
+
+		int index = indexOf(questionNumber);
+		if (index < 0) {
+			if (looseScores == null) {
+				looseScores = new TreeMap<>();
+			}
+			looseScores.put(questionNumber, score);
+		} else {
+			if (questionScores == null) {
+				questionScores = newScores(capacityFor(index));
+			} else if (index >= questionScores.length) {
+				int length = questionScores.length;
+				questionScores = Arrays.copyOf(questionScores, capacityFor(index));
+				Arrays.fill(questionScores, length, questionScores.length, Double.NaN);
+			}
+			questionScores[index] = score;
+			if (looseScores != null) {
+				looseScores.remove(questionNumber);
+			}
+		}
+		report = null;
+
+		return hadScore ? score - previous : score;
+	}
+
+	// question number to score, for the questions that have one
+	Map<Integer, Double> getQuestionScores() {
+		Map<Integer, Double> scores = new HashMap<>();
+		if (questionScores != null) {
+			for (int i = 0; i < questionScores.length; i++) {
+				if (!Double.isNaN(questionScores[i])) {
+					scores.put(exam.questionNumberAt(i), questionScores[i]);
+				}
+			}
+		}
+		if (looseScores != null) {
+			scores.putAll(looseScores);
+		}
+		return scores;
+	}
+
+// ----------------------------- responses: --------------------------------
+
+	boolean hasResponses() {
+		return hasResponses;
+	}
+
+	/**
+	 * Stores a Boolean or String[] response, replacing any earlier one.
+	 * @return true if the question had no response before
+	 */
+	boolean setResponse(int questionNumber, Object response) {
+		if (response instanceof Boolean) {
+			return setResponse(questionNumber, (boolean) (Boolean) response);
+		} else if (response instanceof String[]) {
+			return setResponse(questionNumber, (String[]) response);
+		} else {
+			throw new IllegalArgumentException("Unsupported response type for question "
+					+ questionNumber);
+		}
+	}
+
+	boolean setResponse(int questionNumber, boolean response) {
+		boolean added = !hasResponse(questionNumber);
+		int index = indexOf(questionNumber);
+		if (index < 0) {
+			setLooseResponse(questionNumber, response);
+			return added;
+		}
+		clearStrings(index);
+		clearLooseResponse(questionNumber);
+
+		int words = (index >>> 6) + 1;
+		if (booleanAnswered == null || booleanAnswered.length < words) {
+			int length = Math.max(words, (capacityFor(index) + 63) >>> 6);
+			booleanAnswered = booleanAnswered == null ? new long[length]
+					: Arrays.copyOf(booleanAnswered, length);
+			booleanValues = booleanValues == null ? new long[length]
+					: Arrays.copyOf(booleanValues, length);
+		}
+
+		long bit = 1L << index;
+		booleanAnswered[index >>> 6] |= bit;
+		if (response) {
+			booleanValues[index >>> 6] |= bit;
+		} else {
+			booleanValues[index >>> 6] &= ~bit;
+		}
+		hasResponses = true;
+		report = null;
+		return added;
+	}
+
+	boolean setResponse(int questionNumber, String[] response) {
+		boolean added = !hasResponse(questionNumber);
+		int index = indexOf(questionNumber);
+		if (index < 0) {
+			setLooseResponse(questionNumber, dictionary.encode(response));
+			return added;
+		}
+		clearBoolean(index);
+		clearLooseResponse(questionNumber);
+
+		if (index >= stringResponses.length) {
+			stringResponses = Arrays.copyOf(stringResponses, capacityFor(index));
+		}
+		stringResponses[index] = dictionary.encode(response);
+		hasResponses = true;
+		report = null;
+		return added;
+	}
+
+	boolean hasResponse(int questionNumber) {
+		int index = indexOf(questionNumber);
+		if (index >= 0 && (index < stringResponses.length && stringResponses[index] != null
+				|| hasBoolean(index))) {
+			return true;
+		}
+		return looseResponses != null && looseResponses.containsKey(questionNumber);
+	}
+
+	// the number of questions with a response
+	int getResponseCount() {
+		int count = 0;
+		if (booleanAnswered != null) {
+			for (long word : booleanAnswered) {
+				count += Long.bitCount(word);
+			}
+		}
+		for (int[] response : stringResponses) {
+			if (response != null) {
+				count++;
+			}
+		}
+		return looseResponses == null ? count : count + looseResponses.size();
+	}
+
+	// a Boolean, a new String[], or null if the question has no response
+	Object getResponse(int questionNumber) {
+		int index = indexOf(questionNumber);
+		Object response = index < 0 ? null : responseAt(index);
+		if (response == null && looseResponses != null) {
+			response = looseResponses.get(questionNumber);
+			if (response instanceof int[]) {
+				response = dictionary.decode((int[]) response);
+			}
+		}
+		return response;
+	}
+
+	// question number to response, for the questions that have one
+	Map<Integer, Object> getResponses() {
+		Map<Integer, Object> responses = new HashMap<>();
+		int length = Math.max(stringResponses.length,
+				booleanAnswered == null ? 0 : booleanAnswered.length << 6);
+
+		for (int index = 0; index < length; index++) {
+			Object response = responseAt(index);
+			if (response != null) {
+				responses.put(exam.questionNumberAt(index), response);
+			}
+		}
+		if (looseResponses != null) {
+			for (int questionNumber : looseResponses.keySet()) {
+				responses.put(questionNumber, getResponse(questionNumber));
+			}
+		}
+		return responses;
+	}
+
+	// the response stored at a dense index, as getResponse returns it
+	private Object responseAt(int index) {
+		if (index < stringResponses.length && stringResponses[index] != null) {
+			return dictionary.decode(stringResponses[index]);
+		}
+		if (hasBoolean(index)) {
+			return (booleanValues[index >>> 6] & (1L << index)) != 0;
+		}
+		return null;
+	}
+
+	private void setLooseResponse(int questionNumber, Object response) {
+		if (looseResponses == null) {
+			looseResponses = new TreeMap<>();
+		}
+		looseResponses.put(questionNumber, response);
+		hasResponses = true;
+		report = null;
+	}
+
+	private void clearLooseResponse(int questionNumber) {
+		if (looseResponses != null) {
+			looseResponses.remove(questionNumber);
+		}
+	}
+
+// ------------------------------ report: ----------------------------------
+
+	// the cached report, or null if it was rendered against other questions
+	String getReport(long questionsVersion) {
+		return reportVersion == questionsVersion ? report : null;
+	}
+
+	void setReport(String report, long questionsVersion) {
+		this.report = report;
+		this.reportVersion = questionsVersion;
+	}
+
+// ---------------------------------------------------------------------------
+
+	// a copy that later changes to this record do not affect
+	ExamRecord copy() {
+		ExamRecord copy = new ExamRecord(examId, null);
+		copy.exam = exam;
+		copy.dictionary = dictionary;  // append-only, so safe to share
+		copy.scored = scored;
+		copy.score = score;
+		copy.questionScores = questionScores == null ? null : questionScores.clone();
+		copy.booleanAnswered = booleanAnswered == null ? null : booleanAnswered.clone();
+		copy.booleanValues = booleanValues == null ? null : booleanValues.clone();
+		copy.stringResponses = stringResponses.clone();  // the int[]s are never changed
+		copy.hasResponses = hasResponses;
+		copy.looseScores = looseScores == null ? null : new TreeMap<>(looseScores);
+		copy.looseResponses = looseResponses == null ? null : new TreeMap<>(looseResponses);
+		return copy;
+	}
+
+	private boolean hasBoolean(int index) {
+		return booleanAnswered != null && (index >>> 6) < booleanAnswered.length
+				&& (booleanAnswered[index >>> 6] & (1L << index)) != 0;
+	}
+
+	private void clearBoolean(int index) {
+		if (hasBoolean(index)) {
+			booleanAnswered[index >>> 6] &= ~(1L << index);
+		}
+	}
+
+	private void clearStrings(int index) {
+		if (index < stringResponses.length) {
+			stringResponses[index] = null;
+		}
+	}
+
+	// the question's dense index in the exam, or -1 if it has none
+	private int indexOf(int questionNumber) {
+		return exam == null ? -1 : exam.indexOf(questionNumber);
+	}
+
+	private boolean hasScoreAt(int index) {
+		return index >= 0 && questionScores != null && index < questionScores.length
+				&& !Double.isNaN(questionScores[index]);
+	}
+
+	// room for the exam's questions, or at least up to the dense index
+	private int capacityFor(int index) {
+		return Math.max(index + 1, exam.getQuestionCount());
+	}
+
+	private static double[] newScores(int length) {
+		double[] scores = new double[length];
+		Arrays.fill(scores, Double.NaN);
+		return scores;
+	}
+}
@@ -0,0 +1,231 @@
+package onlineTest;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ExamStatistics keeps running aggregates of the scores students have on one
+ * exam, so the exam's max, min and average can be read without walking the
+ * roster. It is updated every time a student's score on the exam changes.
+ *
+ * Only students with a score on the exam are counted here. The queries take
+ * the size of the whole roster, and count every other student as a 0.0, the
+ * same way SystemManager always has.
+ *
+ * Since the number of students with each distinct score is kept, it doubles
+ * as an exact histogram: percentiles and score distributions are read from
+ * it in time proportional to the number of distinct scores, not students.
+ *
+ * Updates take no lock shared by the whole exam, so students answering it
+ * at once do not queue behind each other: the count and sums are adders,
+ * and the histogram is a concurrent skip list whose counts are changed by
+ * compare-and-set. Being sorted, it gives the max and min from its ends,
+ * and percentiles and histograms walk it in place, without copying it.
+ * While scores are changing, a read may therefore see some of an update
+ * but not the rest; once they stop, every read is exact.
+ *
+ * The sum is kept as a running total of score changes. The average can
+ * thus differ in the last digits from adding up the current scores the way
+ * SystemManager used to. Concurrent updates may also be added in any
+ * order.
+ */
+public class ExamStatistics implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private LongAdder count = new LongAdder();
+	private DoubleAdder sum = new DoubleAdder();
+	private DoubleAdder sumOfSquares = new DoubleAdder();
+
+	// maps each distinct score to the number of students who have it, in
+	// score order; a score nobody has is removed
+	private ConcurrentSkipListMap<Double, Long> scoreCounts = new ConcurrentSkipListMap<>();
+
+	/**
+	 * Receives the number of students with each distinct score, see
+	 * walkScoreCounts.
+	 */
+	public interface ScoreCountVisitor {
+		// returns false to end the walk
+		boolean visit(double score, long scoreCount);
+	}
+
+	public ExamStatistics() {
+	}
+
+	// statistics saved earlier, e.g. in a snapshot
+	ExamStatistics(long count, double sum, double sumOfSquares, Map<Double, Long> scoreCounts) {
+		this.count.add(count);
+		this.sum.add(sum);
+		this.sumOfSquares.add(sumOfSquares);
+		this.scoreCounts.putAll(scoreCounts);
+	}
+
+	// a copy, e.g. to send as a partial aggregate
+	public ExamStatistics copy() {
+		return new ExamStatistics(count.sum(), sum.sum(), sumOfSquares.sum(), scoreCounts);
+	}
+
+	/**
+	 * Adds the scores counted by other, e.g. the statistics of the same exam
+	 * from another partition of the roster, as if each had been added here.
+	 */
+	public void merge(ExamStatistics other) {
+		ExamStatistics partial = other.copy();
+		count.add(partial.count.sum());
+		sum.add(partial.sum.sum());
+		sumOfSquares.add(partial.sumOfSquares.sum());
+		for (Map.Entry<Double, Long> entry : partial.scoreCounts.entrySet()) {
+			scoreCounts.merge(entry.getKey(), entry.getValue(), Long::sum);
+		}
+	}
+
+	// a student got a score on this exam for the first time
+	public void addScore(double score) {
+		count.increment();
+		sum.add(score);
+		sumOfSquares.add(score * score);
+		scoreCounts.merge(score, 1L, Long::sum);
+	}
+
+	// a student's score on this exam changed
+	public void updateScore(double oldScore, double newScore) {
+		sum.add(newScore - oldScore);
+		sumOfSquares.add(newScore * newScore - oldScore * oldScore);
+		scoreCounts.computeIfPresent(oldScore,
+				(score, scoreCount) -> scoreCount == 1 ? null : scoreCount - 1);
+		scoreCounts.merge(newScore, 1L, Long::sum);
+	}
+
+	// number of students with a score on this exam
+	public long getCount() {
+		return count.sum();
+	}
+
+	public double getSum() {
+		return sum.sum();
+	}
+
+	public double getSumOfSquares() {
+		return sumOfSquares.sum();
+	}
+
+	/**
+	 * Returns the maximum score, never below the 0.0 of a student
+	 * without a score.
+	 */
+	public double getMaxScore() {
+		Map.Entry<Double, Long> highest = scoreCounts.lastEntry();
+		return highest == null ? 0.0 : Math.max(0.0, highest.getKey());
+	}
+
+	/**
+	 * Returns the minimum score among rosterSize students, 1000.0 if there
+	 * are none. Students without a score count as 0.0.
+	 */
+	public double getMinScore(int rosterSize) {
+		Map.Entry<Double, Long> lowest = scoreCounts.firstEntry();
+		double minScore = 1000.0;
+		if (lowest != null && lowest.getKey() < minScore) {
+			minScore = lowest.getKey();
+		}
+		if (rosterSize > count.sum() && 0.0 < minScore) {
+			minScore = 0.0;
+		}
+		return minScore;
+	}
+
+	/**
+	 * Returns the average score among rosterSize students.
+	 * Students without a score count as 0.0.
+	 */
+	public double getAverageScore(int rosterSize) {
+		return sum.sum() / rosterSize;
+	}
+
+	/**
+	 * Returns the (population) variance of the scores among rosterSize
+	 * students. Students without a score count as 0.0.
+	 */
+	public double getVariance(int rosterSize) {
+		double mean = sum.sum() / rosterSize;
+		return Math.max(0.0, sumOfSquares.sum() / rosterSize - mean * mean);
+	}
+
+	/**
+	 * Walks the number of students with each distinct score, in score
+	 * order, with students without a score counted under 0.0, until
+	 * visitor returns false. The scores are read in place, not copied.
+	 */
+	public void walkScoreCounts(int rosterSize, ScoreCountVisitor visitor) {
+		long unscored = Math.max(0, rosterSize - count.sum());
+		for (Map.Entry<Double, Long> entry : scoreCounts.headMap(0.0, false).entrySet()) {
+			if (!visitor.visit(entry.getKey(), entry.getValue())) {
+				return;
+			}
+		}
+		long zeros = unscored + scoreCounts.getOrDefault(0.0, 0L);
+		if (zeros > 0 && !visitor.visit(0.0, zeros)) {
+			return;
+		}
+		for (Map.Entry<Double, Long> entry : scoreCounts.tailMap(0.0, false).entrySet()) {
+			if (!visitor.visit(entry.getKey(), entry.getValue())) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns a copy of the number of students with each distinct score, in
+	 * score order, with students without a score counted under 0.0.
+	 */
+	public NavigableMap<Double, Long> getScoreCounts(int rosterSize) {
+		TreeMap<Double, Long> counts = new TreeMap<>();
+		walkScoreCounts(rosterSize, (score, scoreCount) -> {
+			counts.put(score, scoreCount);
+			return true;
+		});
+		return counts;
+	}
+
+	/**
+	 * Returns the score at the given percentile (0 to 100) among rosterSize
+	 * students, using the nearest-rank method. 0.0 if there are no students.
+	 */
+	public double getPercentile(double percentile, int rosterSize) {
+		long scored = count.sum();
+		long total = scored + Math.max(0, rosterSize - scored);
+		if (total == 0) {
+			return 0.0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		double[] found = {0.0};
+		long[] seen = {0};
+		walkScoreCounts(rosterSize, (score, scoreCount) -> {
+			// the last score seen stands, should the counts change meanwhile
+			found[0] = score;
+			seen[0] += scoreCount;
+			return seen[0] < rank;
+		});
+		return found[0];
+	}
+
+	/**
+	 * Groups the scores of rosterSize students into buckets of the given
+	 * width. Maps each non-empty bucket's lower bound to its student count.
+	 */
+	public NavigableMap<Double, Long> getHistogram(double bucketWidth, int rosterSize) {
+		TreeMap<Double, Long> histogram = new TreeMap<>();
+		walkScoreCounts(rosterSize, (score, scoreCount) -> {
+			double lowerBound = Math.floor(score / bucketWidth) * bucketWidth;
+			histogram.merge(lowerBound, scoreCount, Long::sum);
+			return true;
+		});
+		return histogram;
+	}
+}
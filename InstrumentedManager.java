@@ -0,0 +1,316 @@
+package onlineTest;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A Manager that times every call to another one. Each method records its
+ * calls, failures (calls that threw) and latency in an OperationMetrics;
+ * overloads of the same method share one. The metrics, together with gauges
+ * of the wrapped manager's size, are available from getMetrics, which can
+ * be registered with JMX or dumped as text.
+ *
+ * Use instrument to wrap a manager only when metrics are wanted: when they
+ * are not, it returns the manager itself, so callers pay nothing.
+ *
+ * Managers returned by restoreManager and restoreManagerSnapshot are not
+ * instrumented.
+ */
+public class InstrumentedManager implements Manager {
+
+	private Manager manager;
+	private ManagerMetrics metrics;
+
+	private OperationMetrics addExam, addTrueFalseQuestion, addMultipleChoiceQuestion,
+			addFillInTheBlanksQuestion, getKey, addStudent, answerTrueFalseQuestion,
+			answerMultipleChoiceQuestion, answerFillInTheBlanksQuestion, answerExamQuestions,
+			regradeExam, getExamScore, getGradingReport, setLetterGradesCutoffs,
+			getCourseNumericGrade, getCourseLetterGrade, getCourseGrades, writeCourseGrades,
+			getMaxScore, getMinScore, getAverageScore, getMedianScore, getScorePercentile,
+			getExamParticipants, getScoreHistogram, getGradeBandCounts, saveManager,
+			restoreManager, saveManagerSnapshot, restoreManagerSnapshot;
+
+	public InstrumentedManager(SystemManager manager) {
+		this(manager, new ManagerMetrics(manager));
+	}
+
+	// gauges read the journaled manager's SystemManager
+	public InstrumentedManager(JournaledManager manager) {
+		this(manager, new ManagerMetrics(manager.getManager()));
+	}
+
+	private InstrumentedManager(Manager manager, ManagerMetrics metrics) {
+		this.manager = manager;
+		this.metrics = metrics;
+
+		addExam = metrics.operation("addExam");
+		addTrueFalseQuestion = metrics.operation("addTrueFalseQuestion");
+		addMultipleChoiceQuestion = metrics.operation("addMultipleChoiceQuestion");
+		addFillInTheBlanksQuestion = metrics.operation("addFillInTheBlanksQuestion");
+		getKey = metrics.operation("getKey");
+		addStudent = metrics.operation("addStudent");
+		answerTrueFalseQuestion = metrics.operation("answerTrueFalseQuestion");
+		answerMultipleChoiceQuestion = metrics.operation("answerMultipleChoiceQuestion");
+		answerFillInTheBlanksQuestion = metrics.operation("answerFillInTheBlanksQuestion");
+		answerExamQuestions = metrics.operation("answerExamQuestions");
+		regradeExam = metrics.operation("regradeExam");
+		getExamScore = metrics.operation("getExamScore");
+		getGradingReport = metrics.operation("getGradingReport");
+		setLetterGradesCutoffs = metrics.operation("setLetterGradesCutoffs");
+		getCourseNumericGrade = metrics.operation("getCourseNumericGrade");
+		getCourseLetterGrade = metrics.operation("getCourseLetterGrade");
+		getCourseGrades = metrics.operation("getCourseGrades");
+		writeCourseGrades = metrics.operation("writeCourseGrades");
+		getMaxScore = metrics.operation("getMaxScore");
+		getMinScore = metrics.operation("getMinScore");
+		getAverageScore = metrics.operation("getAverageScore");
+		getMedianScore = metrics.operation("getMedianScore");
+		getScorePercentile = metrics.operation("getScorePercentile");
+		getExamParticipants = metrics.operation("getExamParticipants");
+		getScoreHistogram = metrics.operation("getScoreHistogram");
+		getGradeBandCounts = metrics.operation("getGradeBandCounts");
+		saveManager = metrics.operation("saveManager");
+		restoreManager = metrics.operation("restoreManager");
+		saveManagerSnapshot = metrics.operation("saveManagerSnapshot");
+		restoreManagerSnapshot = metrics.operation("restoreManagerSnapshot");
+	}
+
+	/**
+	 * Returns manager wrapped in an InstrumentedManager if enabled, and
+	 * manager itself otherwise.
+	 */
+	public static Manager instrument(SystemManager manager, boolean enabled) {
+		return enabled ? new InstrumentedManager(manager) : manager;
+	}
+
+	public static Manager instrument(JournaledManager manager, boolean enabled) {
+		return enabled ? new InstrumentedManager(manager) : manager;
+	}
+
+	public Manager getManager() {
+		return manager;
+	}
+
+	public ManagerMetrics getMetrics() {
+		return metrics;
+	}
+
+// ---------------------------- timing: ------------------------------------
+
+	private interface IOAction {
+		void run() throws IOException;
+	}
+
+	private static <T> T time(OperationMetrics operation, Supplier<T> call) {
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			T result = call.get();
+			failed = false;
+			return result;
+		} finally {
+			operation.record(System.nanoTime() - start, failed);
+		}
+	}
+
+	private static void run(OperationMetrics operation, Runnable call) {
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			call.run();
+			failed = false;
+		} finally {
+			operation.record(System.nanoTime() - start, failed);
+		}
+	}
+
+	private static void runIO(OperationMetrics operation, IOAction call) throws IOException {
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			call.run();
+			failed = false;
+		} finally {
+			operation.record(System.nanoTime() - start, failed);
+		}
+	}
+
+	// saving this manager saves the one it wraps
+	private Manager unwrap(Manager manager) {
+		return manager == this ? this.manager : manager;
+	}
+
+// --------------------------- exams: --------------------------------------
+
+	public boolean addExam(int examId, String title) {
+		return time(addExam, () -> manager.addExam(examId, title));
+	}
+
+	public void addTrueFalseQuestion(int examId, int questionNumber, String text,
+									 double points, boolean answer) {
+		run(addTrueFalseQuestion, () -> manager.addTrueFalseQuestion(examId, questionNumber,
+				text, points, answer));
+	}
+
+	public void addMultipleChoiceQuestion(int examId, int questionNumber, String text,
+										  double points, String[] answer) {
+		run(addMultipleChoiceQuestion, () -> manager.addMultipleChoiceQuestion(examId,
+				questionNumber, text, points, answer));
+	}
+
+	public void addFillInTheBlanksQuestion(int examId, int questionNumber, String text,
+										   double points, String[] answer) {
+		run(addFillInTheBlanksQuestion, () -> manager.addFillInTheBlanksQuestion(examId,
+				questionNumber, text, points, answer));
+	}
+
+	public void addFillInTheBlanksQuestion(int examId, int questionNumber, String text,
+										   double points, String[] answer, int matchFlags,
+										   String[][] alternatives) {
+		run(addFillInTheBlanksQuestion, () -> manager.addFillInTheBlanksQuestion(examId,
+				questionNumber, text, points, answer, matchFlags, alternatives));
+	}
+
+	public String getKey(int examId) {
+		return time(getKey, () -> manager.getKey(examId));
+	}
+
+	public int regradeExam(int examId, int... questionNumbers) {
+		return time(regradeExam, () -> manager.regradeExam(examId, questionNumbers));
+	}
+
+// --------------------------- students: -----------------------------------
+
+	public boolean addStudent(String name) {
+		return time(addStudent, () -> manager.addStudent(name));
+	}
+
+	public void answerTrueFalseQuestion(String studentName, int examId, int questionNumber,
+										boolean answer) {
+		run(answerTrueFalseQuestion, () -> manager.answerTrueFalseQuestion(studentName, examId,
+				questionNumber, answer));
+	}
+
+	public void answerMultipleChoiceQuestion(String studentName, int examId, int questionNumber,
+											 String[] answer) {
+		run(answerMultipleChoiceQuestion, () -> manager.answerMultipleChoiceQuestion(studentName,
+				examId, questionNumber, answer));
+	}
+
+	public void answerFillInTheBlanksQuestion(String studentName, int examId, int questionNumber,
+											  String[] answer) {
+		run(answerFillInTheBlanksQuestion, () -> manager.answerFillInTheBlanksQuestion(studentName,
+				examId, questionNumber, answer));
+	}
+
+	public void answerExamQuestions(String studentName, int examId, Map<Integer, Object> answers) {
+		run(answerExamQuestions, () -> manager.answerExamQuestions(studentName, examId, answers));
+	}
+
+	public void answerExamQuestions(int examId,
+									Map<String, Map<Integer, Object>> answersByStudent) {
+		run(answerExamQuestions, () -> manager.answerExamQuestions(examId, answersByStudent));
+	}
+
+	public double getExamScore(String studentName, int examId) {
+		return time(getExamScore, () -> manager.getExamScore(studentName, examId));
+	}
+
+	public String getGradingReport(String studentName, int examId) {
+		return time(getGradingReport, () -> manager.getGradingReport(studentName, examId));
+	}
+
+// ---------------------------- grades: ------------------------------------
+
+	public void setLetterGradesCutoffs(String[] letterGrades, double[] cutoffs) {
+		run(setLetterGradesCutoffs, () -> manager.setLetterGradesCutoffs(letterGrades, cutoffs));
+	}
+
+	public double getCourseNumericGrade(String studentName) {
+		return time(getCourseNumericGrade, () -> manager.getCourseNumericGrade(studentName));
+	}
+
+	public String getCourseLetterGrade(String studentName) {
+		return time(getCourseLetterGrade, () -> manager.getCourseLetterGrade(studentName));
+	}
+
+	public String getCourseGrades() {
+		return time(getCourseGrades, () -> manager.getCourseGrades());
+	}
+
+	public void writeCourseGrades(Writer out) throws IOException {
+		runIO(writeCourseGrades, () -> manager.writeCourseGrades(out));
+	}
+
+// -------------------------- statistics: ----------------------------------
+
+	public double getMaxScore(int examId) {
+		return time(getMaxScore, () -> manager.getMaxScore(examId));
+	}
+
+	public double getMinScore(int examId) {
+		return time(getMinScore, () -> manager.getMinScore(examId));
+	}
+
+	public double getMinScore(int examId, boolean participantsOnly) {
+		return time(getMinScore, () -> manager.getMinScore(examId, participantsOnly));
+	}
+
+	public double getAverageScore(int examId) {
+		return time(getAverageScore, () -> manager.getAverageScore(examId));
+	}
+
+	public double getAverageScore(int examId, boolean participantsOnly) {
+		return time(getAverageScore, () -> manager.getAverageScore(examId, participantsOnly));
+	}
+
+	public double getMedianScore(int examId) {
+		return time(getMedianScore, () -> manager.getMedianScore(examId));
+	}
+
+	public double getScorePercentile(int examId, double percentile) {
+		return time(getScorePercentile, () -> manager.getScorePercentile(examId, percentile));
+	}
+
+	public double getScorePercentile(int examId, double percentile, boolean participantsOnly) {
+		return time(getScorePercentile, () -> manager.getScorePercentile(examId, percentile,
+				participantsOnly));
+	}
+
+	public List<String> getExamParticipants(int examId) {
+		return time(getExamParticipants, () -> manager.getExamParticipants(examId));
+	}
+
+	public Map<Double, Long> getScoreHistogram(int examId, double bucketWidth) {
+		return time(getScoreHistogram, () -> manager.getScoreHistogram(examId, bucketWidth));
+	}
+
+	public Map<String, Long> getGradeBandCounts(int examId) {
+		return time(getGradeBandCounts, () -> manager.getGradeBandCounts(examId));
+	}
+
+// -------------------------- persistence: ---------------------------------
+
+	public void saveManager(Manager manager, String fileName) {
+		run(saveManager, () -> this.manager.saveManager(unwrap(manager), fileName));
+	}
+
+	public Manager restoreManager(String fileName) {
+		return time(restoreManager, () -> manager.restoreManager(fileName));
+	}
+
+	public void saveManagerSnapshot(Manager manager, String fileName) {
+		run(saveManagerSnapshot, () -> this.manager.saveManagerSnapshot(unwrap(manager), fileName));
+	}
+
+	public Manager restoreManagerSnapshot(String fileName) {
+		return time(restoreManagerSnapshot, () -> manager.restoreManagerSnapshot(fileName));
+	}
+
+	public Manager restoreManagerSnapshot(String fileName, boolean lazy) {
+		return time(restoreManagerSnapshot, () -> manager.restoreManagerSnapshot(fileName, lazy));
+	}
+}
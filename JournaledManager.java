@@ -0,0 +1,716 @@
+package onlineTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * JournaledManager makes a SystemManager durable without snapshotting it
+ * after every change. Each call that changes state is first appended to a
+ * ManagerJournal and applied, and the call returns once the journal record
+ * is on disk. Durability therefore costs in proportion to new activity, and
+ * group commit lets concurrent callers share fsyncs.
+ *
+ * A checkpoint writes a binary snapshot (see ManagerSnapshot) and empties
+ * the journal. After a crash, recover loads the latest snapshot and replays
+ * the journal on top of it.
+ *
+ * Answers are journaled and applied under the answering student's lock, so
+ * the journal holds each student's answers in the order they were applied.
+ * Changes to exams, students and cutoffs, and checkpoints, hold an exclusive
+ * lock instead. Wrap a ConcurrentSystemManager when several threads call in.
+ */
+public class JournaledManager implements Manager {
+
+	// journal record types
+	private static final byte ADD_EXAM = 1;
+	private static final byte ADD_STUDENT = 2;
+	private static final byte ADD_TRUE_FALSE = 3;
+	private static final byte ADD_MULTIPLE_CHOICE = 4;
+	private static final byte ADD_FILL_IN_THE_BLANKS = 5;
+	private static final byte ANSWER_TRUE_FALSE = 6;
+	private static final byte ANSWER_MULTIPLE_CHOICE = 7;
+	private static final byte ANSWER_FILL_IN_THE_BLANKS = 8;
+	private static final byte ANSWER_EXAM = 9;
+	private static final byte ANSWER_EXAM_STUDENTS = 10;
+	private static final byte SET_CUTOFFS = 11;
+	private static final byte ADD_FILL_IN_THE_BLANKS_MATCHED = 12;
+	private static final byte REGRADE_EXAM = 13;
+
+	// response types inside ANSWER_EXAM records
+	private static final byte BOOLEAN_RESPONSE = 1;
+	private static final byte STRINGS_RESPONSE = 2;
+
+	private SystemManager manager;
+	private ManagerJournal journal;
+	private String snapshotFile;
+
+	// answers take it shared, every other change and checkpoints exclusively
+	private ReadWriteLock structureLock = new ReentrantReadWriteLock();
+
+	/**
+	 * Journals the changes made to manager in journalFile. checkpoint writes
+	 * its snapshots to snapshotFile.
+	 */
+	public JournaledManager(SystemManager manager, String journalFile,
+							String snapshotFile) throws IOException {
+		this.manager = manager;
+		this.snapshotFile = snapshotFile;
+		this.journal = new ManagerJournal(journalFile);
+	}
+
+	/**
+	 * Rebuilds a manager after a crash or shutdown: restores the snapshot in
+	 * snapshotFile into manager (which should be empty), if there is one,
+	 * then replays every complete record of journalFile. Records that failed
+	 * when first applied fail again and are skipped.
+	 * @return the recovered manager, journaling to the same files
+	 */
+	public static JournaledManager recover(SystemManager manager, String journalFile,
+										   String snapshotFile) throws IOException {
+		if (new File(snapshotFile).exists()) {
+			ManagerSnapshot.read(snapshotFile, manager);
+		}
+
+		List<byte[]> records = new ArrayList<>();
+		ManagerJournal.readRecords(journalFile, records);
+		for (byte[] record : records) {
+			try {
+				replay(record, manager);
+			} catch (RuntimeException e) {
+				// the call failed the first time too
+			}
+		}
+
+		return new JournaledManager(manager, journalFile, snapshotFile);
+	}
+
+	/**
+	 * Writes a snapshot of the current state and empties the journal.
+	 * Changes wait while the snapshot is written. The snapshot is written to a
+	 * temporary file, synced, and then moved over the previous one, so a
+	 * crash never leaves a half-written snapshot behind. The journal is only
+	 * emptied once the move is on disk too. A crash before that leaves the
+	 * new snapshot and the whole journal, and replaying records the snapshot
+	 * already holds sets the same state again.
+	 */
+	public void checkpoint() throws IOException {
+		structureLock.writeLock().lock();
+		try {
+			journal.sync();
+			File temp = new File(snapshotFile + ".tmp");
+			ManagerSnapshot.write(manager, temp.getPath());
+			ManagerSnapshot.replace(temp, snapshotFile);
+			journal.truncate();
+		} finally {
+			structureLock.writeLock().unlock();
+		}
+	}
+
+	// syncs the journal and closes it; the manager itself stays usable
+	public void close() throws IOException {
+		journal.close();
+	}
+
+	public SystemManager getManager() {
+		return manager;
+	}
+
+	public ManagerJournal getJournal() {
+		return journal;
+	}
+
+// ------------------- changes to exams, students and cutoffs: -------------------
+
+	public boolean addExam(int examId, String title) {
+		Record record = new Record(ADD_EXAM);
+		record.writeInt(examId);
+		record.writeString(title);
+
+		long sequence = beginExclusive(record);
+		try {
+			return manager.addExam(examId, title);
+		} finally {
+			endExclusive(sequence);
+		}
+	}
+
+	public boolean addStudent(String name) {
+		Record record = new Record(ADD_STUDENT);
+		record.writeString(name);
+
+		long sequence = beginExclusive(record);
+		try {
+			return manager.addStudent(name);
+		} finally {
+			endExclusive(sequence);
+		}
+	}
+
+	public void addTrueFalseQuestion(int examId, int questionNumber, String text,
+									 double points, boolean answer) {
+		Record record = questionRecord(ADD_TRUE_FALSE, examId, questionNumber, text, points);
+		record.writeBoolean(answer);
+
+		long sequence = beginExclusive(record);
+		try {
+			manager.addTrueFalseQuestion(examId, questionNumber, text, points, answer);
+		} finally {
+			endExclusive(sequence);
+		}
+	}
+
+	public void addMultipleChoiceQuestion(int examId, int questionNumber, String text,
+										  double points, String[] answer) {
+		Record record = questionRecord(ADD_MULTIPLE_CHOICE, examId, questionNumber, text, points);
+		record.writeStrings(answer);
+
+		long sequence = beginExclusive(record);
+		try {
+			manager.addMultipleChoiceQuestion(examId, questionNumber, text, points, answer);
+		} finally {
+			endExclusive(sequence);
+		}
+	}
+
+	public void addFillInTheBlanksQuestion(int examId, int questionNumber, String text,
+										   double points, String[] answer) {
+		Record record = questionRecord(ADD_FILL_IN_THE_BLANKS, examId, questionNumber, text, points);
+		record.writeStrings(answer);
+
+		long sequence = beginExclusive(record);
+		try {
+			manager.addFillInTheBlanksQuestion(examId, questionNumber, text, points, answer);
+		} finally {
+			endExclusive(sequence);
+		}
+	}
+
+	public void addFillInTheBlanksQuestion(int examId, int questionNumber, String text,
+										   double points, String[] answer, int matchFlags,
+										   String[][] alternatives) {
+		Record record = questionRecord(ADD_FILL_IN_THE_BLANKS_MATCHED, examId, questionNumber,
+				text, points);
+		record.writeStrings(answer);
+		record.writeInt(matchFlags);
+		record.writeAlternatives(alternatives);
+
+		long sequence = beginExclusive(record);
+		try {
+			manager.addFillInTheBlanksQuestion(examId, questionNumber, text, points, answer,
+					matchFlags, alternatives);
+		} finally {
+			endExclusive(sequence);
+		}
+	}
+
+	// a regrade depends only on state already journaled, so it replays exactly
+	public int regradeExam(int examId, int... questionNumbers) {
+		Record record = new Record(REGRADE_EXAM);
+		record.writeInt(examId);
+		record.writeInt(questionNumbers.length);
+		for (int questionNumber : questionNumbers) {
+			record.writeInt(questionNumber);
+		}
+
+		long sequence = beginExclusive(record);
+		try {
+			return manager.regradeExam(examId, questionNumbers);
+		} finally {
+			endExclusive(sequence);
+		}
+	}
+
+	public void setLetterGradesCutoffs(String[] letterGrades, double[] cutoffs) {
+		Record record = new Record(SET_CUTOFFS);
+		record.writeStrings(letterGrades);
+		record.writeInt(cutoffs.length);
+		for (double cutoff : cutoffs) {
+			record.writeDouble(cutoff);
+		}
+
+		long sequence = beginExclusive(record);
+		try {
+			manager.setLetterGradesCutoffs(letterGrades, cutoffs);
+		} finally {
+			endExclusive(sequence);
+		}
+	}
+
+	// a batch spanning several students is ordered against everything else
+	public void answerExamQuestions(int examId,
+									Map<String, Map<Integer, Object>> answersByStudent) {
+		Record record = new Record(ANSWER_EXAM_STUDENTS);
+		record.writeInt(examId);
+		record.writeInt(answersByStudent.size());
+		for (Map.Entry<String, Map<Integer, Object>> entry : answersByStudent.entrySet()) {
+			record.writeString(entry.getKey());
+			record.writeAnswers(entry.getValue());
+		}
+
+		long sequence = beginExclusive(record);
+		try {
+			manager.answerExamQuestions(examId, answersByStudent);
+		} finally {
+			endExclusive(sequence);
+		}
+	}
+
+// ------------------------------ answers: ---------------------------------
+
+	public void answerTrueFalseQuestion(String studentName, int examId,
+										int questionNumber, boolean answer) {
+		Record record = answerRecord(ANSWER_TRUE_FALSE, studentName, examId, questionNumber);
+		record.writeBoolean(answer);
+
+		long sequence;
+		structureLock.readLock().lock();
+		try {
+			synchronized (studentLock(studentName)) {
+				sequence = append(record);
+				manager.answerTrueFalseQuestion(studentName, examId, questionNumber, answer);
+			}
+		} finally {
+			structureLock.readLock().unlock();
+		}
+		awaitDurable(sequence);
+	}
+
+	public void answerMultipleChoiceQuestion(String studentName, int examId,
+											 int questionNumber, String[] answer) {
+		Record record = answerRecord(ANSWER_MULTIPLE_CHOICE, studentName, examId, questionNumber);
+		record.writeStrings(answer);
+
+		long sequence;
+		structureLock.readLock().lock();
+		try {
+			synchronized (studentLock(studentName)) {
+				sequence = append(record);
+				manager.answerMultipleChoiceQuestion(studentName, examId, questionNumber, answer);
+			}
+		} finally {
+			structureLock.readLock().unlock();
+		}
+		awaitDurable(sequence);
+	}
+
+	public void answerFillInTheBlanksQuestion(String studentName, int examId,
+											  int questionNumber, String[] answer) {
+		Record record = answerRecord(ANSWER_FILL_IN_THE_BLANKS, studentName, examId, questionNumber);
+		record.writeStrings(answer);
+
+		long sequence;
+		structureLock.readLock().lock();
+		try {
+			synchronized (studentLock(studentName)) {
+				sequence = append(record);
+				manager.answerFillInTheBlanksQuestion(studentName, examId, questionNumber, answer);
+			}
+		} finally {
+			structureLock.readLock().unlock();
+		}
+		awaitDurable(sequence);
+	}
+
+	public void answerExamQuestions(String studentName, int examId,
+									Map<Integer, Object> answers) {
+		Record record = new Record(ANSWER_EXAM);
+		record.writeString(studentName);
+		record.writeInt(examId);
+		record.writeAnswers(answers);
+
+		long sequence;
+		structureLock.readLock().lock();
+		try {
+			synchronized (studentLock(studentName)) {
+				sequence = append(record);
+				manager.answerExamQuestions(studentName, examId, answers);
+			}
+		} finally {
+			structureLock.readLock().unlock();
+		}
+		awaitDurable(sequence);
+	}
+
+// ------------------- queries go straight to the manager: -------------------
+
+	public String getKey(int examId) {
+		return manager.getKey(examId);
+	}
+
+	public double getExamScore(String studentName, int examId) {
+		return manager.getExamScore(studentName, examId);
+	}
+
+	public String getGradingReport(String studentName, int examId) {
+		return manager.getGradingReport(studentName, examId);
+	}
+
+	public double getCourseNumericGrade(String studentName) {
+		return manager.getCourseNumericGrade(studentName);
+	}
+
+	public String getCourseLetterGrade(String studentName) {
+		return manager.getCourseLetterGrade(studentName);
+	}
+
+	public String getCourseGrades() {
+		return manager.getCourseGrades();
+	}
+
+	public void writeCourseGrades(Writer out) throws IOException {
+		manager.writeCourseGrades(out);
+	}
+
+	public double getMaxScore(int examId) {
+		return manager.getMaxScore(examId);
+	}
+
+	public double getMinScore(int examId) {
+		return manager.getMinScore(examId);
+	}
+
+	public double getMinScore(int examId, boolean participantsOnly) {
+		return manager.getMinScore(examId, participantsOnly);
+	}
+
+	public double getAverageScore(int examId) {
+		return manager.getAverageScore(examId);
+	}
+
+	public double getAverageScore(int examId, boolean participantsOnly) {
+		return manager.getAverageScore(examId, participantsOnly);
+	}
+
+	public double getMedianScore(int examId) {
+		return manager.getMedianScore(examId);
+	}
+
+	public double getScorePercentile(int examId, double percentile) {
+		return manager.getScorePercentile(examId, percentile);
+	}
+
+	public double getScorePercentile(int examId, double percentile, boolean participantsOnly) {
+		return manager.getScorePercentile(examId, percentile, participantsOnly);
+	}
+
+	public List<String> getExamParticipants(int examId) {
+		return manager.getExamParticipants(examId);
+	}
+
+	public Map<Double, Long> getScoreHistogram(int examId, double bucketWidth) {
+		return manager.getScoreHistogram(examId, bucketWidth);
+	}
+
+	public Map<String, Long> getGradeBandCounts(int examId) {
+		return manager.getGradeBandCounts(examId);
+	}
+
+	// saving this manager saves the journaled SystemManager
+	public void saveManager(Manager manager, String fileName) {
+		this.manager.saveManager(manager == this ? this.manager : manager, fileName);
+	}
+
+	public Manager restoreManager(String fileName) {
+		return manager.restoreManager(fileName);
+	}
+
+	public void saveManagerSnapshot(Manager manager, String fileName) {
+		this.manager.saveManagerSnapshot(manager == this ? this.manager : manager, fileName);
+	}
+
+	public Manager restoreManagerSnapshot(String fileName) {
+		return manager.restoreManagerSnapshot(fileName);
+	}
+
+	public Manager restoreManagerSnapshot(String fileName, boolean lazy) {
+		return manager.restoreManagerSnapshot(fileName, lazy);
+	}
+
+// ------------------------------ journaling: --------------------------------
+
+	// appends record while holding the exclusive lock, which endExclusive releases
+	private long beginExclusive(Record record) {
+		structureLock.writeLock().lock();
+		try {
+			return append(record);
+		} catch (RuntimeException e) {
+			structureLock.writeLock().unlock();
+			throw e;
+		}
+	}
+
+	private void endExclusive(long sequence) {
+		structureLock.writeLock().unlock();
+		awaitDurable(sequence);
+	}
+
+	// an unknown student has no lock of its own; its answer fails in the manager
+	private Object studentLock(String studentName) {
+		Student student = manager.getStudent(studentName);
+		return student == null ? this : student;
+	}
+
+	private long append(Record record) {
+		try {
+			return journal.append(record.toByteArray());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void awaitDurable(long sequence) {
+		try {
+			journal.awaitDurable(sequence);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static Record questionRecord(byte type, int examId, int questionNumber,
+										 String text, double points) {
+		Record record = new Record(type);
+		record.writeInt(examId);
+		record.writeInt(questionNumber);
+		record.writeString(text);
+		record.writeDouble(points);
+		return record;
+	}
+
+	private static Record answerRecord(byte type, String studentName, int examId,
+									   int questionNumber) {
+		Record record = new Record(type);
+		record.writeString(studentName);
+		record.writeInt(examId);
+		record.writeInt(questionNumber);
+		return record;
+	}
+
+	// applies one journal record to manager
+	private static void replay(byte[] bytes, Manager manager) {
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+			byte type = in.readByte();
+
+			switch (type) {
+			case ADD_EXAM:
+				manager.addExam(in.readInt(), readString(in));
+				break;
+			case ADD_STUDENT:
+				manager.addStudent(readString(in));
+				break;
+			case ADD_TRUE_FALSE:
+				manager.addTrueFalseQuestion(in.readInt(), in.readInt(), readString(in),
+						in.readDouble(), in.readBoolean());
+				break;
+			case ADD_MULTIPLE_CHOICE:
+				manager.addMultipleChoiceQuestion(in.readInt(), in.readInt(), readString(in),
+						in.readDouble(), readStrings(in));
+				break;
+			case ADD_FILL_IN_THE_BLANKS:
+				manager.addFillInTheBlanksQuestion(in.readInt(), in.readInt(), readString(in),
+						in.readDouble(), readStrings(in));
+				break;
+			case ANSWER_TRUE_FALSE:
+				manager.answerTrueFalseQuestion(readString(in), in.readInt(), in.readInt(),
+						in.readBoolean());
+				break;
+			case ANSWER_MULTIPLE_CHOICE:
+				manager.answerMultipleChoiceQuestion(readString(in), in.readInt(), in.readInt(),
+						readStrings(in));
+				break;
+			case ANSWER_FILL_IN_THE_BLANKS:
+				manager.answerFillInTheBlanksQuestion(readString(in), in.readInt(), in.readInt(),
+						readStrings(in));
+				break;
+			case ANSWER_EXAM:
+				manager.answerExamQuestions(readString(in), in.readInt(), readAnswers(in));
+				break;
+			case ANSWER_EXAM_STUDENTS:
+				int examId = in.readInt();
+				int studentCount = in.readInt();
+				Map<String, Map<Integer, Object>> answersByStudent = new HashMap<>();
+				for (int i = 0; i < studentCount; i++) {
+					answersByStudent.put(readString(in), readAnswers(in));
+				}
+				manager.answerExamQuestions(examId, answersByStudent);
+				break;
+			case SET_CUTOFFS:
+				String[] letterGrades = readStrings(in);
+				double[] cutoffs = new double[in.readInt()];
+				for (int i = 0; i < cutoffs.length; i++) {
+					cutoffs[i] = in.readDouble();
+				}
+				manager.setLetterGradesCutoffs(letterGrades, cutoffs);
+				break;
+			case ADD_FILL_IN_THE_BLANKS_MATCHED:
+				manager.addFillInTheBlanksQuestion(in.readInt(), in.readInt(), readString(in),
+						in.readDouble(), readStrings(in), in.readInt(), readAlternatives(in));
+				break;
+			case REGRADE_EXAM:
+				int regradedExamId = in.readInt();
+				int[] questionNumbers = new int[in.readInt()];
+				for (int i = 0; i < questionNumbers.length; i++) {
+					questionNumbers[i] = in.readInt();
+				}
+				manager.regradeExam(regradedExamId, questionNumbers);
+				break;
+			default:
+				throw new IllegalStateException("Unknown journal record type " + type);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static Map<Integer, Object> readAnswers(DataInputStream in) throws IOException {
+		Map<Integer, Object> answers = new HashMap<>();
+		int count = in.readInt();
+
+		for (int i = 0; i < count; i++) {
+			int questionNumber = in.readInt();
+			if (in.readByte() == BOOLEAN_RESPONSE) {
+				answers.put(questionNumber, in.readBoolean());
+			} else {
+				answers.put(questionNumber, readStrings(in));
+			}
+		}
+		return answers;
+	}
+
+	// -1 stands for null, for the array and for each of its entries
+	private static String[][] readAlternatives(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		if (count < 0) {
+			return null;
+		}
+		String[][] alternatives = new String[count][];
+		for (int i = 0; i < count; i++) {
+			if (in.readInt() >= 0) {
+				alternatives[i] = readStrings(in);
+			}
+		}
+		return alternatives;
+	}
+
+	private static String[] readStrings(DataInputStream in) throws IOException {
+		String[] strings = new String[in.readInt()];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = readString(in);
+		}
+		return strings;
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length == ManagerSnapshot.NULL_LENGTH) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * The bytes of one journal record, starting with its type.
+	 */
+	private static class Record {
+		private ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		private DataOutputStream out = new DataOutputStream(bytes);
+
+		Record(byte type) {
+			write(() -> out.writeByte(type));
+		}
+
+		void writeInt(int value) {
+			write(() -> out.writeInt(value));
+		}
+
+		void writeDouble(double value) {
+			write(() -> out.writeDouble(value));
+		}
+
+		void writeBoolean(boolean value) {
+			write(() -> out.writeBoolean(value));
+		}
+
+		// a null entry of an answer is written as the snapshot writes it
+		void writeString(String value) {
+			if (value == null) {
+				writeInt(ManagerSnapshot.NULL_LENGTH);
+				return;
+			}
+			byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+			write(() -> {
+				out.writeInt(utf8.length);
+				out.write(utf8);
+			});
+		}
+
+		void writeStrings(String[] values) {
+			writeInt(values.length);
+			for (String value : values) {
+				writeString(value);
+			}
+		}
+
+		void writeAlternatives(String[][] alternatives) {
+			if (alternatives == null) {
+				writeInt(-1);
+				return;
+			}
+			writeInt(alternatives.length);
+			for (String[] spellings : alternatives) {
+				if (spellings == null) {
+					writeInt(-1);
+				} else {
+					writeInt(0);
+					writeStrings(spellings);
+				}
+			}
+		}
+
+		void writeAnswers(Map<Integer, Object> answers) {
+			writeInt(answers.size());
+			for (Map.Entry<Integer, Object> entry : answers.entrySet()) {
+				writeInt(entry.getKey());
+				if (entry.getValue() instanceof Boolean) {
+					write(() -> out.writeByte(BOOLEAN_RESPONSE));
+					writeBoolean((Boolean) entry.getValue());
+				} else {
+					write(() -> out.writeByte(STRINGS_RESPONSE));
+					writeStrings((String[]) entry.getValue());
+				}
+			}
+		}
+
+		byte[] toByteArray() {
+			return bytes.toByteArray();
+		}
+
+		// a ByteArrayOutputStream never throws, so neither does a Record
+		private void write(IOAction action) {
+			try {
+				action.run();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private interface IOAction {
+		void run() throws IOException;
+	}
+}
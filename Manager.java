@@ -1,5 +1,10 @@
 package onlineTest;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
 public interface Manager {
 	/**
 	 * Adds the specified exam to the database.
@@ -46,6 +51,18 @@ public interface Manager {
 	public void addFillInTheBlanksQuestion(int examId, int questionNumber,
 										   String text, double points, String[] answer);
 
+	/**
+	 * Adds a fill-in-the-blanks question whose responses are matched with
+	 * options.  Scoring is as above, on the normalized responses.
+	 * @param matchFlags a combination of BlankMatcher.IGNORE_CASE and
+	 * BlankMatcher.FOLD_WHITESPACE, or BlankMatcher.EXACT
+	 * @param alternatives other accepted spellings of answer[i] at index i;
+	 * null, or null entries, for none
+	 */
+	public void addFillInTheBlanksQuestion(int examId, int questionNumber,
+										   String text, double points, String[] answer,
+										   int matchFlags, String[][] alternatives);
+
 	/**
 	 * Returns a string with the following information per question:<br />
 	 * "Question Text: " followed by the question's text<br />
@@ -100,6 +117,40 @@ public interface Manager {
 	public void answerFillInTheBlanksQuestion(String studentName, int examId,
 											  int questionNumber, String[] answer);
 
+	/**
+	 * Enters several of the student's answers for one exam into the database.
+	 * Each entry maps a question number to the answer, a Boolean for true or
+	 * false questions and a String[] otherwise.  Nothing is entered unless every
+	 * answer matches its question's type.
+	 * @param studentName
+	 * @param examId
+	 * @param answers
+	 */
+	public void answerExamQuestions(String studentName, int examId,
+									Map<Integer, Object> answers);
+
+	/**
+	 * Enters the answers of several students for one exam into the database.
+	 * Each entry maps a student name to that student's answers, given in the
+	 * same form as for {@link #answerExamQuestions(String, int, Map)}.
+	 * @param examId
+	 * @param answersByStudent
+	 */
+	public void answerExamQuestions(int examId,
+									Map<String, Map<Integer, Object>> answersByStudent);
+
+	/**
+	 * Regrades the specified exam after its questions have been changed, e.g.
+	 * to fix a wrong answer key.  The scores of every student who took the exam
+	 * are recomputed from the answers they entered, and the exam statistics and
+	 * course grades follow.  Only the given questions are regraded, or all of
+	 * them if no question numbers are given.
+	 * @param examId
+	 * @param questionNumbers
+	 * @return the number of students whose exam score changed
+	 */
+	public int regradeExam(int examId, int... questionNumbers);
+
 	/**
 	 * Returns the score the student got for the specified exam.
 	 * @param studentName
@@ -155,6 +206,14 @@ public interface Manager {
 	 */
 	public String getCourseGrades();
 
+	/**
+	 * Writes the same listing as {@link #getCourseGrades()} to the given writer,
+	 * one student at a time, without building the whole listing first.
+	 * @param out
+	 * @throws IOException if writing fails
+	 */
+	public void writeCourseGrades(Writer out) throws IOException;
+
 	/**
 	 * Returns the maximum score (among all the students) for the specified exam.
 	 * @param examId
@@ -169,12 +228,83 @@ public interface Manager {
 	 */
 	public double getMinScore(int examId);
 
+	/**
+	 * Returns the minimum score for the specified exam, counting only the students
+	 * who took it if participantsOnly is true.
+	 * @param examId
+	 * @param participantsOnly
+	 * @return minimum score
+	 */
+	public double getMinScore(int examId, boolean participantsOnly);
+
 	/**
 	 * Returns the average score for the specified exam.
 	 * @param examId
 	 * @return average
 	 */
 	public double getAverageScore(int examId);
+
+	/**
+	 * Returns the average score for the specified exam, counting only the students
+	 * who took it if participantsOnly is true.
+	 * @param examId
+	 * @param participantsOnly
+	 * @return average score
+	 */
+	public double getAverageScore(int examId, boolean participantsOnly);
+
+	/**
+	 * Returns the median score (among all the students) for the specified exam.
+	 * @param examId
+	 * @return median
+	 */
+	public double getMedianScore(int examId);
+
+	/**
+	 * Returns the score at the given percentile (0 to 100, nearest rank) among
+	 * all the students for the specified exam.
+	 * @param examId
+	 * @param percentile
+	 * @return score at the percentile
+	 */
+	public double getScorePercentile(int examId, double percentile);
+
+	/**
+	 * Returns the score at the given percentile for the specified exam, counting
+	 * only the students who took it if participantsOnly is true.
+	 * @param examId
+	 * @param percentile
+	 * @param participantsOnly
+	 * @return score at the percentile
+	 */
+	public double getScorePercentile(int examId, double percentile, boolean participantsOnly);
+
+	/**
+	 * Returns the names of the students who took the specified exam, in sorted order.
+	 * @param examId
+	 * @return names
+	 */
+	public List<String> getExamParticipants(int examId);
+
+	/**
+	 * Returns the distribution of scores for the specified exam, in buckets of
+	 * the given width.  Each non-empty bucket's lower bound is mapped to the
+	 * number of students whose score falls in it.
+	 * @param examId
+	 * @param bucketWidth
+	 * @return histogram
+	 */
+	public Map<Double, Long> getScoreHistogram(int examId, double bucketWidth);
+
+	/**
+	 * Returns the number of students in each letter grade band for the
+	 * specified exam, using the score as a percentage of the exam's points and
+	 * the cutoffs provided.  It is assumed the cutoffs have been set before the
+	 * method is called.
+	 * @param examId
+	 * @return count per letter grade
+	 */
+	public Map<String, Long> getGradeBandCounts(int examId);
 	
 	/**
 	 * It will serialize the Manager object and store it in the
@@ -187,4 +317,24 @@ public interface Manager {
 	 * found in the specified file.
 	 */
 	public Manager restoreManager(String fileName);	
+
+	/**
+	 * It will store the Manager object in the specified file in a compact,
+	 * versioned binary format, written once per exam and once per student.
+	 */
+	public void saveManagerSnapshot(Manager manager, String fileName);
+
+	/**
+	 * It will return a Manager object based on the binary snapshot found
+	 * in the specified file.
+	 */
+	public Manager restoreManagerSnapshot(String fileName);
+
+	/**
+	 * Like restoreManagerSnapshot(fileName), but if lazy is true the file is
+	 * memory-mapped and each student's responses and scores are only read
+	 * when that student is first used. Exams, student names and exam
+	 * statistics are still available right away.
+	 */
+	public Manager restoreManagerSnapshot(String fileName, boolean lazy);
 }
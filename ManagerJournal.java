@@ -0,0 +1,248 @@
+package onlineTest;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * ManagerJournal is an append-only file of records, made durable with
+ * group commit: appending only copies a record into the pending batch, and
+ * a single background thread writes whatever has piled up and syncs it to
+ * disk in one go. While one batch is being synced the next one fills up,
+ * so under load many records share each fsync.
+ *
+ * Each record is framed as its length, a CRC32 of its bytes, then the
+ * bytes. A record cut short by a crash fails the check, and reading stops
+ * at the last complete record.
+ */
+public class ManagerJournal implements AutoCloseable {
+
+	private static final int HEADER_SIZE = 8;
+
+	private FileChannel channel;
+	private Thread flusher;
+
+	// guards everything below; the flusher and waiting appenders wait on it
+	private final Object lock = new Object();
+	private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+	private long appendedSequence;
+	private long durableSequence;
+	private long syncCount;
+	private IOException failure;
+	private boolean closed;
+
+	/**
+	 * Opens the journal for appending, creating the file if needed. Anything
+	 * after the last complete record is cut off first.
+	 */
+	public ManagerJournal(String fileName) throws IOException {
+		long validLength = readRecords(fileName, new ArrayList<>());
+
+		channel = FileChannel.open(new File(fileName).toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE);
+		channel.truncate(validLength);
+		channel.position(validLength);
+
+		flusher = new Thread(this::flush, "manager-journal-flusher");
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+
+	/**
+	 * Adds a record to the pending batch and returns its sequence number.
+	 * The record is not durable until awaitDurable returns for it.
+	 */
+	public long append(byte[] record) throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(record);
+
+		synchronized (lock) {
+			if (failure != null) {
+				throw failure;
+			}
+			if (closed) {
+				throw new IOException("Journal is closed");
+			}
+			writeInt(pending, record.length);
+			writeInt(pending, (int) crc.getValue());
+			pending.write(record, 0, record.length);
+
+			appendedSequence++;
+			lock.notifyAll();
+			return appendedSequence;
+		}
+	}
+
+	// blocks until the record with the given sequence number is on disk
+	public void awaitDurable(long sequence) throws IOException {
+		synchronized (lock) {
+			while (durableSequence < sequence && failure == null) {
+				try {
+					lock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted waiting for the journal");
+				}
+			}
+			if (durableSequence < sequence) {
+				throw failure;
+			}
+		}
+	}
+
+	// blocks until every record appended so far is on disk
+	public void sync() throws IOException {
+		long sequence;
+		synchronized (lock) {
+			sequence = appendedSequence;
+		}
+		awaitDurable(sequence);
+	}
+
+	/**
+	 * Empties the journal, e.g. once a snapshot holds everything in it.
+	 * The caller makes sure nothing is appended meanwhile.
+	 */
+	public void truncate() throws IOException {
+		sync();
+		synchronized (lock) {
+			channel.truncate(0);
+			channel.position(0);
+			channel.force(true);
+		}
+	}
+
+	// number of fsyncs so far; records appended / syncs is the batching factor
+	public long getSyncCount() {
+		synchronized (lock) {
+			return syncCount;
+		}
+	}
+
+	public long getRecordCount() {
+		synchronized (lock) {
+			return appendedSequence;
+		}
+	}
+
+	// body of the flusher thread: write and sync one batch at a time
+	private void flush() {
+		while (true) {
+			byte[] batch;
+			long batchSequence;
+
+			synchronized (lock) {
+				while (pending.size() == 0 && !closed) {
+					try {
+						lock.wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				if (pending.size() == 0) {
+					return;  // closed and nothing left to write
+				}
+				batch = pending.toByteArray();
+				pending.reset();
+				batchSequence = appendedSequence;
+			}
+
+			try {
+				ByteBuffer buffer = ByteBuffer.wrap(batch);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(false);
+			} catch (IOException e) {
+				synchronized (lock) {
+					failure = e;
+					lock.notifyAll();
+				}
+				return;
+			}
+
+			synchronized (lock) {
+				durableSequence = batchSequence;
+				syncCount++;
+				lock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Syncs whatever is pending, then stops the flusher and closes the file.
+	 */
+	public void close() throws IOException {
+		synchronized (lock) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			lock.notifyAll();
+		}
+		try {
+			flusher.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		channel.close();
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Reads every complete record of a journal file into records, stopping
+	 * at the end of the file or at the first torn or corrupt record.
+	 * @return the length of the file up to the end of the last good record
+	 */
+	public static long readRecords(String fileName, List<byte[]> records) throws IOException {
+		File file = new File(fileName);
+		if (!file.exists()) {
+			return 0;
+		}
+
+		long validLength = 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file), 1 << 16))) {
+			while (true) {
+				int length = in.readInt();
+				int checksum = in.readInt();
+				if (length < 0 || length > file.length() - validLength - HEADER_SIZE) {
+					break;
+				}
+				byte[] record = new byte[length];
+				in.readFully(record);
+
+				CRC32 crc = new CRC32();
+				crc.update(record);
+				if ((int) crc.getValue() != checksum) {
+					break;
+				}
+				records.add(record);
+				validLength += HEADER_SIZE + length;
+			}
+		} catch (EOFException e) {
+			// the last record was cut short
+		}
+		return validLength;
+	}
+
+	private static void writeInt(ByteArrayOutputStream out, int value) {
+		out.write(value >>> 24);
+		out.write(value >>> 16);
+		out.write(value >>> 8);
+		out.write(value);
+	}
+}
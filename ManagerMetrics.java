@@ -0,0 +1,153 @@
+package onlineTest;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.ToDoubleFunction;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * ManagerMetrics holds the OperationMetrics of every instrumented Manager
+ * method, and reads gauges of the manager's size (students, exams,
+ * questions and stored responses) when asked. It can be registered as an
+ * MXBean with the platform MBeanServer, and dump renders everything as
+ * plain text.
+ *
+ * The question and response gauges are counters the manager keeps as
+ * questions and responses are added, so reading them never walks the
+ * exams or the roster, and they can be read on JMX's threads whatever the
+ * kind of manager.
+ */
+public class ManagerMetrics implements ManagerMetricsMXBean {
+
+	private SystemManager manager;
+	private ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+	private ObjectName registeredName;
+
+	public ManagerMetrics(SystemManager manager) {
+		this.manager = manager;
+	}
+
+	// the metrics of the method with the given name, created on first use
+	public OperationMetrics operation(String name) {
+		return operations.computeIfAbsent(name, OperationMetrics::new);
+	}
+
+	/**
+	 * Registers these metrics with the platform MBeanServer as
+	 * onlineTest:type=ManagerMetrics,name={name}.
+	 */
+	public synchronized void register(String name) throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = new ObjectName("onlineTest:type=ManagerMetrics,name="
+				+ ObjectName.quote(name));
+		server.registerMBean(this, objectName);
+		registeredName = objectName;
+	}
+
+	public synchronized void unregister() throws JMException {
+		if (registeredName != null) {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+			registeredName = null;
+		}
+	}
+
+// ------------------------------ gauges: ----------------------------------
+
+	public long getStudentCount() {
+		return manager.getStudentCount();
+	}
+
+	public long getExamCount() {
+		return manager.getExams().size();
+	}
+
+	public long getQuestionCount() {
+		return manager.getQuestionCount();
+	}
+
+	public long getResponseCount() {
+		return manager.getResponseCount();
+	}
+
+// --------------------------- per method: ---------------------------------
+
+	public Map<String, Long> getCallCounts() {
+		Map<String, Long> counts = new TreeMap<>();
+		for (OperationMetrics operation : operations.values()) {
+			counts.put(operation.getName(), operation.getCalls());
+		}
+		return counts;
+	}
+
+	public Map<String, Long> getErrorCounts() {
+		Map<String, Long> counts = new TreeMap<>();
+		for (OperationMetrics operation : operations.values()) {
+			counts.put(operation.getName(), operation.getErrors());
+		}
+		return counts;
+	}
+
+	public Map<String, Double> getMeanLatencyMicros() {
+		return latencies(OperationMetrics::getMeanNanos);
+	}
+
+	public Map<String, Double> getMedianLatencyMicros() {
+		return latencies(operation -> operation.getPercentileNanos(50));
+	}
+
+	public Map<String, Double> getP99LatencyMicros() {
+		return latencies(operation -> operation.getPercentileNanos(99));
+	}
+
+	public Map<String, Double> getMaxLatencyMicros() {
+		return latencies(OperationMetrics::getMaxNanos);
+	}
+
+	private Map<String, Double> latencies(ToDoubleFunction<OperationMetrics> nanos) {
+		Map<String, Double> latencies = new TreeMap<>();
+		for (OperationMetrics operation : operations.values()) {
+			latencies.put(operation.getName(), nanos.applyAsDouble(operation) / 1000);
+		}
+		return latencies;
+	}
+
+	/**
+	 * Returns the gauges, then one line per method that has been called:
+	 * {method} {calls} {errors} {mean} {p50} {p99} {max}, latencies in
+	 * microseconds, methods in name order.
+	 */
+	public String dump() {
+		StringBuilder dump = new StringBuilder();
+		dump.append("students ").append(getStudentCount()).append("\n");
+		dump.append("exams ").append(getExamCount()).append("\n");
+		dump.append("questions ").append(getQuestionCount()).append("\n");
+		dump.append("responses ").append(getResponseCount()).append("\n");
+		dump.append(String.format("%-32s %10s %8s %10s %10s %10s %10s%n", "method", "calls",
+				"errors", "mean us", "p50 us", "p99 us", "max us"));
+
+		for (OperationMetrics operation : new TreeMap<>(operations).values()) {
+			if (operation.getCalls() == 0) {
+				continue;
+			}
+			dump.append(String.format("%-32s %10d %8d %10.1f %10.1f %10.1f %10.1f%n",
+					operation.getName(), operation.getCalls(), operation.getErrors(),
+					operation.getMeanNanos() / 1000,
+					operation.getPercentileNanos(50) / 1000.0,
+					operation.getPercentileNanos(99) / 1000.0,
+					operation.getMaxNanos() / 1000.0));
+		}
+		return dump.toString();
+	}
+
+	public void reset() {
+		for (OperationMetrics operation : operations.values()) {
+			operation.reset();
+		}
+	}
+}
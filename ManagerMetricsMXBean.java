@@ -0,0 +1,37 @@
+package onlineTest;
+
+import java.util.Map;
+
+/**
+ * The management interface of ManagerMetrics, as seen from a JMX console.
+ * Per-method values are maps from method name to value; latencies are in
+ * microseconds.
+ */
+public interface ManagerMetricsMXBean {
+
+	public long getStudentCount();
+
+	public long getExamCount();
+
+	public long getQuestionCount();
+
+	// responses held in memory, see SystemManager.getResponseCount
+	public long getResponseCount();
+
+	public Map<String, Long> getCallCounts();
+
+	public Map<String, Long> getErrorCounts();
+
+	public Map<String, Double> getMeanLatencyMicros();
+
+	public Map<String, Double> getMedianLatencyMicros();
+
+	public Map<String, Double> getP99LatencyMicros();
+
+	public Map<String, Double> getMaxLatencyMicros();
+
+	// the plain-text report, see ManagerMetrics.dump
+	public String dump();
+
+	public void reset();
+}
@@ -0,0 +1,27 @@
+package onlineTest;
+
+import java.util.List;
+
+/**
+ * A Manager holding part of the roster, for PartitionedManager. Besides
+ * the Manager operations, which a partition applies to its own students,
+ * it hands out partial aggregates that PartitionedManager merges with the
+ * other partitions'. Every result is a value, so a partition could as well
+ * be a stub for a manager in another JVM. SystemManager is the in-process
+ * partition.
+ */
+public interface ManagerPartition extends Manager {
+
+	// number of students in this partition
+	public int getStudentCount();
+
+	// this partition's statistics of the exam, as a copy; empty if unknown
+	public ExamStatistics getPartialStatistics(int examId);
+
+	/**
+	 * A page of this partition's lines of getCourseGrades, in name order,
+	 * without "\n": up to limit lines, for the students whose names come
+	 * after afterName, or from the first student if afterName is null.
+	 */
+	public List<String> getCourseGradeLines(String afterName, int limit);
+}
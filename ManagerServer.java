@@ -0,0 +1,423 @@
+package onlineTest;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ManagerServer serves a Manager over a line protocol on a TCP port,
+ * loopback only unless another address is given. Each connection is
+ * handled on its own virtual thread when the JVM has them (Java 21 and
+ * later), and on a thread of a cached pool otherwise.
+ *
+ * At most maxConnections connections are open at once. Once that many
+ * are, the server stops accepting until one closes, and new clients wait
+ * in the listen backlog; this also bounds the threads of the cached pool.
+ *
+ * Requests are admitted one at a time. At most maxActive requests run
+ * against the manager at once, and at most maxQueued more wait for a turn;
+ * a request arriving when both are full is answered BUSY straight away,
+ * without touching the manager, so clients can back off instead of piling
+ * up behind a saturated server. The manager must be thread-safe, such as
+ * a ConcurrentSystemManager, unless maxActive is 1.
+ *
+ * A request is one line of tab-separated fields, a command followed by its
+ * arguments; arrays are the trailing fields. A response is one line: OK,
+ * OK and a value, ERROR and a message, or BUSY. Backslash, tab and newline
+ * are escaped as \\, \t and \n in both. Commands:
+ *   PING
+ *   ADD_EXAM           examId title
+ *   ADD_STUDENT        name
+ *   ADD_TRUE_FALSE     examId questionNumber text points answer
+ *   ADD_MULTIPLE_CHOICE / ADD_FILL_IN_THE_BLANKS
+ *                      examId questionNumber text points answer...
+ *   ANSWER_TRUE_FALSE  name examId questionNumber answer
+ *   ANSWER_MULTIPLE_CHOICE / ANSWER_FILL_IN_THE_BLANKS
+ *                      name examId questionNumber answer...
+ *   REGRADE            examId questionNumber...
+ *   KEY / MAX / MIN / AVERAGE / MEDIAN   examId
+ *   SCORE / REPORT     name examId
+ *   NUMERIC_GRADE / LETTER_GRADE         name
+ *   COURSE_GRADES
+ *   METRICS            the dump, if the manager is an InstrumentedManager
+ *   QUIT               closes the connection
+ */
+public class ManagerServer implements Closeable {
+
+	private static final System.Logger LOG = System.getLogger(ManagerServer.class.getName());
+
+	// open connections, unless another limit is given
+	public static final int DEFAULT_MAX_CONNECTIONS = 1024;
+
+	private Manager manager;
+	private ServerSocket serverSocket;
+	private ExecutorService executor;
+	private Thread acceptor;
+	private Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+	// admission: open connections, requests waiting or running, and
+	// requests running
+	private Semaphore connectionSlots;
+	private Semaphore admitted;
+	private Semaphore active;
+
+	// metrics
+	private LongAdder requestCount = new LongAdder();
+	private LongAdder rejectedCount = new LongAdder();
+	private LongAdder errorCount = new LongAdder();
+	private AtomicInteger connectionCount = new AtomicInteger();
+
+	public ManagerServer(Manager manager, int port, int maxActive, int maxQueued)
+			throws IOException {
+		this(manager, new InetSocketAddress(InetAddress.getLoopbackAddress(), port), maxActive,
+				maxQueued);
+	}
+
+	public ManagerServer(Manager manager, InetSocketAddress address, int maxActive, int maxQueued)
+			throws IOException {
+		this(manager, address, maxActive, maxQueued, DEFAULT_MAX_CONNECTIONS);
+	}
+
+	public ManagerServer(Manager manager, InetSocketAddress address, int maxActive, int maxQueued,
+						 int maxConnections) throws IOException {
+		if (maxActive < 1 || maxQueued < 0 || maxConnections < 1) {
+			throw new IllegalArgumentException("Invalid admission limits: " + maxActive + ", "
+					+ maxQueued + ", " + maxConnections);
+		}
+		this.manager = manager;
+		this.connectionSlots = new Semaphore(maxConnections);
+		this.admitted = new Semaphore(maxActive + maxQueued);
+		this.active = new Semaphore(maxActive, true);
+		this.serverSocket = new ServerSocket();
+		serverSocket.bind(address, 1024);
+		this.executor = newThreadPerTaskExecutor("manager-connection");
+	}
+
+	/**
+	 * Returns an executor that runs each task on a new virtual thread if the
+	 * JVM supports them, and on a cached pool of daemon threads otherwise.
+	 * The pool is not bounded: callers bound the tasks they run at once,
+	 * as ManagerServer does with its connection limit.
+	 */
+	static ExecutorService newThreadPerTaskExecutor(String threadName) {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+					.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			AtomicInteger threadCount = new AtomicInteger();
+			return Executors.newCachedThreadPool(runnable -> {
+				Thread thread = new Thread(runnable, threadName + "-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	// starts accepting connections on a background thread
+	public synchronized void start() {
+		if (acceptor != null) {
+			return;
+		}
+		acceptor = new Thread(this::acceptConnections, "manager-server");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	public long getRequestCount() {
+		return requestCount.sum();
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount.sum();
+	}
+
+	public long getErrorCount() {
+		return errorCount.sum();
+	}
+
+	public int getConnectionCount() {
+		return connectionCount.get();
+	}
+
+	// stops accepting, closes open connections and waits for their threads
+	public void close() throws IOException {
+		serverSocket.close();
+		for (Socket socket : connections) {
+			socket.close();
+		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void acceptConnections() {
+		while (!serverSocket.isClosed()) {
+			// released by serve, or below if the connection is never served;
+			// close releases them all by closing the connections
+			connectionSlots.acquireUninterruptibly();
+			try {
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				executor.execute(() -> serve(socket));
+			} catch (IOException | RejectedExecutionException e) {
+				// closed, or a connection that failed before it was handed off
+				connectionSlots.release();
+			}
+		}
+	}
+
+	private void serve(Socket socket) {
+		connections.add(socket);
+		connectionCount.incrementAndGet();
+		try (socket;
+			 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+					 StandardCharsets.UTF_8));
+			 Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+					 StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.equals("QUIT")) {
+					break;
+				}
+				out.write(admit(line));
+				out.write('\n');
+				if (!in.ready()) {
+					out.flush();  // pipelined requests are answered together
+				}
+			}
+		} catch (IOException e) {
+			// the client went away
+		} finally {
+			connections.remove(socket);
+			connectionCount.decrementAndGet();
+			connectionSlots.release();
+		}
+	}
+
+	private String admit(String line) {
+		requestCount.increment();
+		if (!admitted.tryAcquire()) {
+			rejectedCount.increment();
+			return "BUSY";
+		}
+		try {
+			active.acquireUninterruptibly();
+			try {
+				return "OK" + execute(line.split("\t", -1));
+			} finally {
+				active.release();
+			}
+		} catch (RuntimeException e) {
+			errorCount.increment();
+			return "ERROR\t" + escape(String.valueOf(e.getMessage()));
+		} finally {
+			admitted.release();
+		}
+	}
+
+	// the value part of an OK response: empty, or a tab and the value
+	private String execute(String[] fields) {
+		String command = fields[0];
+
+		switch (command) {
+		case "PING":
+			return "";
+		case "ADD_EXAM":
+			return value(manager.addExam(intField(fields, 1), field(fields, 2)));
+		case "ADD_STUDENT":
+			return value(manager.addStudent(field(fields, 1)));
+		case "ADD_TRUE_FALSE":
+			manager.addTrueFalseQuestion(intField(fields, 1), intField(fields, 2), field(fields, 3),
+					doubleField(fields, 4), booleanField(fields, 5));
+			return "";
+		case "ADD_MULTIPLE_CHOICE":
+			manager.addMultipleChoiceQuestion(intField(fields, 1), intField(fields, 2),
+					field(fields, 3), doubleField(fields, 4), arrayField(fields, 5));
+			return "";
+		case "ADD_FILL_IN_THE_BLANKS":
+			manager.addFillInTheBlanksQuestion(intField(fields, 1), intField(fields, 2),
+					field(fields, 3), doubleField(fields, 4), arrayField(fields, 5));
+			return "";
+		case "ANSWER_TRUE_FALSE":
+			manager.answerTrueFalseQuestion(field(fields, 1), intField(fields, 2),
+					intField(fields, 3), booleanField(fields, 4));
+			return "";
+		case "ANSWER_MULTIPLE_CHOICE":
+			manager.answerMultipleChoiceQuestion(field(fields, 1), intField(fields, 2),
+					intField(fields, 3), arrayField(fields, 4));
+			return "";
+		case "ANSWER_FILL_IN_THE_BLANKS":
+			manager.answerFillInTheBlanksQuestion(field(fields, 1), intField(fields, 2),
+					intField(fields, 3), arrayField(fields, 4));
+			return "";
+		case "REGRADE":
+			String[] numbers = arrayField(fields, 2);
+			int[] questionNumbers = new int[numbers.length];
+			for (int i = 0; i < numbers.length; i++) {
+				questionNumbers[i] = Integer.parseInt(numbers[i]);
+			}
+			return value(manager.regradeExam(intField(fields, 1), questionNumbers));
+		case "KEY":
+			return value(manager.getKey(intField(fields, 1)));
+		case "MAX":
+			return value(manager.getMaxScore(intField(fields, 1)));
+		case "MIN":
+			return value(manager.getMinScore(intField(fields, 1)));
+		case "AVERAGE":
+			return value(manager.getAverageScore(intField(fields, 1)));
+		case "MEDIAN":
+			return value(manager.getMedianScore(intField(fields, 1)));
+		case "SCORE":
+			return value(manager.getExamScore(field(fields, 1), intField(fields, 2)));
+		case "REPORT":
+			return value(manager.getGradingReport(field(fields, 1), intField(fields, 2)));
+		case "NUMERIC_GRADE":
+			return value(manager.getCourseNumericGrade(field(fields, 1)));
+		case "LETTER_GRADE":
+			return value(manager.getCourseLetterGrade(field(fields, 1)));
+		case "COURSE_GRADES":
+			return value(manager.getCourseGrades());
+		case "METRICS":
+			if (!(manager instanceof InstrumentedManager)) {
+				throw new IllegalStateException("Manager is not instrumented");
+			}
+			return value(((InstrumentedManager) manager).getMetrics().dump());
+		default:
+			throw new IllegalArgumentException("Unknown command: " + command);
+		}
+	}
+
+// ---------------------------- fields: ------------------------------------
+
+	private static String field(String[] fields, int index) {
+		if (index >= fields.length) {
+			throw new IllegalArgumentException("Missing argument " + index + " of " + fields[0]);
+		}
+		return unescape(fields[index]);
+	}
+
+	private static int intField(String[] fields, int index) {
+		return Integer.parseInt(field(fields, index));
+	}
+
+	private static double doubleField(String[] fields, int index) {
+		return Double.parseDouble(field(fields, index));
+	}
+
+	private static boolean booleanField(String[] fields, int index) {
+		return Boolean.parseBoolean(field(fields, index));
+	}
+
+	// the fields from index on
+	private static String[] arrayField(String[] fields, int index) {
+		String[] array = Arrays.copyOfRange(fields, Math.min(index, fields.length), fields.length);
+		for (int i = 0; i < array.length; i++) {
+			array[i] = unescape(array[i]);
+		}
+		return array;
+	}
+
+	private static String value(Object value) {
+		return "\t" + escape(String.valueOf(value));
+	}
+
+	static String escape(String value) {
+		if (value.indexOf('\\') < 0 && value.indexOf('\t') < 0 && value.indexOf('\n') < 0) {
+			return value;
+		}
+		StringBuilder escaped = new StringBuilder(value.length() + 8);
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '\\':
+				escaped.append("\\\\");
+				break;
+			case '\t':
+				escaped.append("\\t");
+				break;
+			case '\n':
+				escaped.append("\\n");
+				break;
+			default:
+				escaped.append(c);
+			}
+		}
+		return escaped.toString();
+	}
+
+	static String unescape(String value) {
+		if (value.indexOf('\\') < 0) {
+			return value;
+		}
+		StringBuilder unescaped = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' && i + 1 < value.length()) {
+				char next = value.charAt(++i);
+				unescaped.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+			} else {
+				unescaped.append(c);
+			}
+		}
+		return unescaped.toString();
+	}
+
+	/**
+	 * Serves a new ConcurrentSystemManager, or the one saved in a file, until
+	 * the process is stopped. The manager is instrumented, so METRICS works.
+	 * A saved SystemManager that is not concurrent runs one request at a time.
+	 *
+	 * Run with: java onlineTest.ManagerServer port [maxActive maxQueued [file]]
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+		int maxActive = args.length > 1 ? Integer.parseInt(args[1])
+				: Runtime.getRuntime().availableProcessors();
+		int maxQueued = args.length > 2 ? Integer.parseInt(args[2]) : 64 * maxActive;
+		SystemManager manager = new ConcurrentSystemManager();
+		if (args.length > 3) {
+			Manager restored = manager.restoreManager(args[3]);
+			if (!(restored instanceof SystemManager)) {
+				LOG.log(System.Logger.Level.ERROR, "cannot restore a manager from " + args[3]);
+				System.exit(1);
+			}
+			manager = (SystemManager) restored;
+		}
+		if (!(manager instanceof ConcurrentSystemManager)) {
+			maxActive = 1;
+		}
+
+		ManagerServer server = new ManagerServer(new InstrumentedManager(manager), port, maxActive,
+				maxQueued);
+		server.start();
+		LOG.log(System.Logger.Level.INFO, String.format("serving on port %d, %d active, %d queued",
+				server.getPort(), maxActive, maxQueued));
+		Thread.currentThread().join();
+	}
+}
@@ -0,0 +1,786 @@
+package onlineTest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.UnaryOperator;
+
+/**
+ * ManagerSnapshot reads and writes a SystemManager in a compact, versioned
+ * binary format, as a faster and smaller alternative to serializing the
+ * whole object graph.
+ *
+ * Each exam and its questions are written once. Students refer to exams
+ * by examId and hold plain ids, scores and answers, so there are no class
+ * descriptors or boxed keys. The file layout is:
+ *
+ *   header     MAGIC, FORMAT_VERSION
+ *   grades     letter grade count (-1 if none set), then (letter, cutoff)*
+ *   exams      exam count, then per exam: examId, title, question count,
+ *              then per question: type, number, text, points, answer, and
+ *              for fill-in-the-blanks questions match flags and alternatives
+ *   students   student count, then per student: name, exam count, then per
+ *              exam: examId, flags, score, question count, then per question:
+ *              number, flags, score, response
+ *   strings    string count, then the strings of the string table
+ *   index      student count, then per student: name, offset of its record,
+ *              count of exams taken, then their examIds
+ *   statistics exam count, then per exam: examId, count, sum, sum of squares,
+ *              distinct score count, then (score, number of students)*
+ *   trailer    offsets of the strings, index and statistics sections
+ *
+ * Counts, ids and question numbers are written as variable-length ints.
+ * Strings are written as a byte length followed by UTF-8 bytes, or as the
+ * length NULL_LENGTH alone for a null entry of an answer or response. Answer
+ * and response strings, which repeat across students, are written as their
+ * id in the string table.
+ *
+ * The index and statistics let a snapshot be restored lazily (see map):
+ * exams, student names and exam statistics are read up front, and each
+ * student's record is read from the memory-mapped file the first time that
+ * student is used; the exams each student took are in the index, so every
+ * exam knows its participants up front. Version 1 files, which had no index
+ * or statistics and wrote each shared string in full the first time it was
+ * seen, version 2 files, which had no match options, and version 3 files,
+ * which had no exam ids in the index, can still be read, though only
+ * eagerly.
+ */
+public class ManagerSnapshot {
+
+	public static final int MAGIC = 0x4F544D53;  // "OTMS"
+	public static final int FORMAT_VERSION = 4;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int HEADER_SIZE = 8;
+	private static final int TRAILER_SIZE = 24;
+
+	// the length written for a null string, as ResponseDictionary.NULL_ID
+	// stands for one; no real length is negative
+	static final int NULL_LENGTH = -1;
+
+	// question types
+	private static final byte TRUE_FALSE = 1;
+	private static final byte MULTIPLE_CHOICE = 2;
+	private static final byte FILL_IN_THE_BLANKS = 3;
+
+	// flags of an exam or question entry in a student's record
+	private static final int HAS_SCORE = 1;
+	private static final int BOOLEAN_RESPONSE = 2;
+	private static final int STRINGS_RESPONSE = 4;
+
+	private DataOutputStream out;
+	private CountingOutputStream counter;
+	private DataInputStream in;
+	private int version = FORMAT_VERSION;
+
+	// string table: ids of the strings written so far, or the strings read
+	private Map<String, Integer> stringIds = new HashMap<>();
+	private List<String> strings = new ArrayList<>();
+
+	private ManagerSnapshot(CountingOutputStream counter) {
+		this.counter = counter;
+		this.out = new DataOutputStream(counter);
+	}
+
+	private ManagerSnapshot(DataInputStream in, int version, List<String> strings) {
+		this.in = in;
+		this.version = version;
+		this.strings = strings;
+	}
+
+// ------------------------------ writing: ---------------------------------
+
+	/**
+	 * Writes the manager's exams, students and grading cutoffs to fileName.
+	 * Each student is written under its own lock, so a manager that is
+	 * taking answers never has half an update written out. The statistics
+	 * written are computed from the student records as written, so they
+	 * always agree with them.
+	 */
+	public static void write(SystemManager manager, String fileName) throws IOException {
+		FileOutputStream file = new FileOutputStream(fileName);
+		try (CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(
+				file, BUFFER_SIZE))) {
+			ManagerSnapshot snapshot = new ManagerSnapshot(counter);
+			snapshot.writeAll(manager.getLetterGrades(), manager.getCutoffs(),
+					new ArrayList<>(manager.getExams()), new ArrayList<>(manager.getStudents()),
+					UnaryOperator.identity());
+			snapshot.sync(file);
+		}
+	}
+
+	/**
+	 * Writes a checkpoint begun with ConcurrentSystemManager.beginCapture:
+	 * the manager as it was when the capture began, whatever has changed
+	 * since.
+	 * @return the number of bytes written
+	 */
+	static long write(ConcurrentSystemManager manager, ConcurrentSystemManager.Capture capture,
+					  String fileName) throws IOException {
+		FileOutputStream file = new FileOutputStream(fileName);
+		try (CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(
+				file, BUFFER_SIZE))) {
+			ManagerSnapshot snapshot = new ManagerSnapshot(counter);
+			snapshot.writeAll(capture.letterGrades, capture.cutoffs, capture.exams,
+					capture.students, student -> manager.imageOf(capture, student));
+			snapshot.sync(file);
+			return counter.getCount();
+		}
+	}
+
+	/**
+	 * Moves a snapshot written to temp over fileName, replacing the previous
+	 * one in a single step, then syncs the directory so that the move itself
+	 * survives a crash. Callers may rely on the new snapshot once this
+	 * returns, e.g. to empty a journal.
+	 */
+	static void replace(File temp, String fileName) throws IOException {
+		Path target = new File(fileName).getAbsoluteFile().toPath();
+		Files.move(temp.toPath(), target, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+
+		// directories cannot be opened for syncing on Windows, where the move
+		// is durable once it returns
+		if (File.separatorChar == '/') {
+			try (FileChannel directory = FileChannel.open(target.getParent(), StandardOpenOption.READ)) {
+				directory.force(true);
+			}
+		}
+	}
+
+	// everything written is on disk once this returns, not just in the cache
+	private void sync(FileOutputStream file) throws IOException {
+		out.flush();
+		file.getChannel().force(true);
+	}
+
+	// image gives the version of each student to write
+	private void writeAll(String[] letterGrades, double[] cutoffs, List<Exam> exams,
+						  List<Student> students, UnaryOperator<Student> image) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		writeGrades(letterGrades, cutoffs);
+
+		writeVarInt(exams.size());
+		for (Exam exam : exams) {
+			writeExam(exam);
+		}
+
+		Map<String, Long> offsets = new TreeMap<>();
+		Map<String, Set<Integer>> examsTaken = new HashMap<>();
+		Map<Integer, ExamStatistics> statistics = new TreeMap<>();
+		writeVarInt(students.size());
+		for (Student student : students) {
+			offsets.put(student.getName(), counter.getCount());
+			examsTaken.put(student.getName(), writeStudent(image.apply(student), statistics));
+		}
+
+		long stringsOffset = counter.getCount();
+		writeVarInt(strings.size());
+		for (String string : strings) {
+			writeString(string);
+		}
+
+		long indexOffset = counter.getCount();
+		writeVarInt(offsets.size());
+		for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+			writeString(entry.getKey());
+			out.writeLong(entry.getValue());
+			Set<Integer> examIds = examsTaken.get(entry.getKey());
+			writeVarInt(examIds.size());
+			for (int examId : examIds) {
+				writeVarInt(examId);
+			}
+		}
+
+		long statisticsOffset = counter.getCount();
+		writeVarInt(statistics.size());
+		for (Map.Entry<Integer, ExamStatistics> entry : statistics.entrySet()) {
+			writeStatistics(entry.getKey(), entry.getValue());
+		}
+
+		out.writeLong(stringsOffset);
+		out.writeLong(indexOffset);
+		out.writeLong(statisticsOffset);
+		out.flush();
+	}
+
+	private void writeGrades(String[] letterGrades, double[] cutoffs) throws IOException {
+		if (letterGrades == null || cutoffs == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(letterGrades.length);
+		for (int i = 0; i < letterGrades.length; i++) {
+			writeString(letterGrades[i]);
+			out.writeDouble(cutoffs[i]);
+		}
+	}
+
+	private void writeExam(Exam exam) throws IOException {
+		synchronized (exam) {
+			writeVarInt(exam.getExamId());
+			writeString(exam.getTitle());
+			writeVarInt(exam.getQuestions().size());
+
+			for (Question question : exam.getQuestions()) {
+				writeQuestion(exam, question);
+			}
+		}
+	}
+
+	private void writeQuestion(Exam exam, Question question) throws IOException {
+		if (question instanceof TrueFalseQuestion) {
+			out.writeByte(TRUE_FALSE);
+		} else if (question instanceof MultipleChoiceQuestion) {
+			out.writeByte(MULTIPLE_CHOICE);
+		} else {
+			out.writeByte(FILL_IN_THE_BLANKS);
+		}
+		writeVarInt(question.getQuestionNumber());
+		writeString(question.getText());
+		out.writeDouble(question.getPoints());
+
+		if (question instanceof TrueFalseQuestion) {
+			out.writeBoolean(((TrueFalseQuestion) question).getCorrectAnswer());
+		} else if (question instanceof MultipleChoiceQuestion) {
+			writeSharedStrings(((MultipleChoiceQuestion) question).getCorrectAnswer());
+		} else {
+			FillInTheBlanksQuestion blanksQuestion = (FillInTheBlanksQuestion) question;
+			BlankMatcher matcher = exam.getBlankMatcher(blanksQuestion);
+			writeSharedStrings(blanksQuestion.getCorrectAnswer());
+			writeVarInt(matcher.getFlags());
+			writeAlternatives(matcher.getAlternatives());
+		}
+	}
+
+	// counts are written + 1, with 0 for null
+	private void writeAlternatives(String[][] alternatives) throws IOException {
+		if (alternatives == null) {
+			writeVarInt(0);
+			return;
+		}
+		writeVarInt(alternatives.length + 1);
+		for (String[] spellings : alternatives) {
+			if (spellings == null) {
+				writeVarInt(0);
+			} else {
+				writeVarInt(1);
+				writeSharedStrings(spellings);
+			}
+		}
+	}
+
+	// also adds the student's exam scores to statistics; returns the exams written
+	private Set<Integer> writeStudent(Student student,
+							  Map<Integer, ExamStatistics> statistics) throws IOException {
+		synchronized (student) {
+			writeString(student.getName());
+			Map<Integer, Exam> examsTaken = student.getExamsTaken();
+			writeVarInt(examsTaken.size());
+
+			for (int examId : examsTaken.keySet()) {
+				writeVarInt(examId);
+				if (student.hasExamScore(examId)) {
+					double examScore = student.getExamScore(examId);
+					out.writeByte(HAS_SCORE);
+					out.writeDouble(examScore);
+					statistics.computeIfAbsent(examId, id -> new ExamStatistics()).addScore(examScore);
+				} else {
+					out.writeByte(0);
+				}
+				writeQuestions(student.getQuestionScores(examId), student.getResponses(examId));
+			}
+			return examsTaken.keySet();
+		}
+	}
+
+	// one entry per question with a score, a response or both
+	private void writeQuestions(Map<Integer, Double> scores,
+								Map<Integer, Object> responses) throws IOException {
+		TreeSet<Integer> questionNumbers = new TreeSet<>(scores.keySet());
+		questionNumbers.addAll(responses.keySet());
+		writeVarInt(questionNumbers.size());
+
+		for (int questionNumber : questionNumbers) {
+			Double score = scores.get(questionNumber);
+			Object response = responses.get(questionNumber);
+			int flags = score == null ? 0 : HAS_SCORE;
+
+			if (response instanceof Boolean) {
+				flags |= BOOLEAN_RESPONSE;
+			} else if (response != null) {
+				flags |= STRINGS_RESPONSE;
+			}
+
+			writeVarInt(questionNumber);
+			out.writeByte(flags);
+			if (score != null) {
+				out.writeDouble(score);
+			}
+			if (response instanceof Boolean) {
+				out.writeBoolean((Boolean) response);
+			} else if (response != null) {
+				writeSharedStrings((String[]) response);
+			}
+		}
+	}
+
+	private void writeStatistics(int examId, ExamStatistics statistics) throws IOException {
+		long count = statistics.getCount();
+		Map<Double, Long> scoreCounts = statistics.getScoreCounts((int) count);
+
+		writeVarInt(examId);
+		out.writeLong(count);
+		out.writeDouble(statistics.getSum());
+		out.writeDouble(statistics.getSumOfSquares());
+		writeVarInt(scoreCounts.size());
+		for (Map.Entry<Double, Long> entry : scoreCounts.entrySet()) {
+			out.writeDouble(entry.getKey());
+			out.writeLong(entry.getValue());
+		}
+	}
+
+	// by id; the strings themselves go in the string table at the end
+	private void writeSharedStrings(String[] values) throws IOException {
+		writeVarInt(values.length);
+		for (String value : values) {
+			Integer id = stringIds.get(value);
+			if (id == null) {
+				id = strings.size();
+				stringIds.put(value, id);
+				strings.add(value);
+			}
+			writeVarInt(id);
+		}
+	}
+
+	private void writeString(String value) throws IOException {
+		if (value == null) {
+			writeVarInt(NULL_LENGTH);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(bytes.length);
+		out.write(bytes);
+	}
+
+	// 7 bits per byte, high bit set on all but the last byte
+	private void writeVarInt(int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+// --------------------------- eager reading: ------------------------------
+
+	/**
+	 * Reads a snapshot written by write into manager, which should be empty.
+	 */
+	public static void read(String fileName, SystemManager manager) throws IOException {
+		try (FileChannel channel = FileChannel.open(new File(fileName).toPath())) {
+			int version = readHeader(channel, fileName);
+			List<String> strings = new ArrayList<>();
+			long[] trailer = null;
+
+			if (version >= 2) {
+				trailer = readTrailer(channel);
+				readStrings(openAt(channel, trailer[0]), strings);
+			}
+
+			ManagerSnapshot snapshot = new ManagerSnapshot(openAt(channel, HEADER_SIZE),
+														   version, strings);
+			snapshot.readGrades(manager);
+			snapshot.readExams(manager);
+
+			int studentCount = snapshot.readVarInt();
+			for (int i = 0; i < studentCount; i++) {
+				String name = snapshot.readString();
+				manager.addStudent(name);
+				snapshot.readStudentExams(manager.getStudent(name), manager);
+			}
+
+			if (trailer != null) {
+				new ManagerSnapshot(openAt(channel, trailer[2]), version, strings)
+						.readStatistics(manager);
+			} else {
+				manager.rebuildStatistics();
+			}
+		}
+	}
+
+// --------------------------- lazy reading: -------------------------------
+
+	/**
+	 * Restores a snapshot into manager, which should be empty, without
+	 * reading the students' records. The file is memory-mapped; grading
+	 * cutoffs, exams, student names and exam statistics are read right
+	 * away, and each student's scores and responses are read from the
+	 * mapping the first time that student is used. A student who is never
+	 * used costs little more than its name.
+	 *
+	 * Snapshots older than version 4, and files too large to map in one
+	 * piece, are read eagerly instead.
+	 */
+	public static void map(String fileName, SystemManager manager) throws IOException {
+		ByteBuffer buffer = mapFile(fileName);
+		if (buffer == null) {
+			read(fileName, manager);
+			return;
+		}
+
+		long[] trailer = new long[3];
+		for (int i = 0; i < trailer.length; i++) {
+			trailer[i] = buffer.getLong(buffer.capacity() - TRAILER_SIZE + 8 * i);
+		}
+		List<String> strings = new ArrayList<>();
+		readStrings(openAt(buffer, trailer[0]), strings);
+
+		int version = buffer.getInt(4);
+		ManagerSnapshot snapshot = new ManagerSnapshot(openAt(buffer, HEADER_SIZE),
+													   version, strings);
+		snapshot.readGrades(manager);
+		snapshot.readExams(manager);
+
+		ManagerSnapshot index = new ManagerSnapshot(openAt(buffer, trailer[1]),
+													version, strings);
+		int studentCount = index.readVarInt();
+		for (int i = 0; i < studentCount; i++) {
+			String name = index.readString();
+			long offset = index.in.readLong();
+			Student student = new Student(name,
+					loaded -> loadStudent(buffer, offset, version, strings, loaded, manager));
+			manager.addRestoredStudent(student);
+
+			int examCount = index.readVarInt();
+			for (int j = 0; j < examCount; j++) {
+				manager.getExam(index.readVarInt()).addParticipant(student);
+			}
+		}
+
+		new ManagerSnapshot(openAt(buffer, trailer[2]), version, strings)
+				.readStatistics(manager);
+	}
+
+	// null if the file predates version 4 or is too large to map in one piece
+	private static ByteBuffer mapFile(String fileName) throws IOException {
+		try (FileChannel channel = FileChannel.open(new File(fileName).toPath())) {
+			int version = readHeader(channel, fileName);
+			if (version < 4 || channel.size() > Integer.MAX_VALUE) {
+				return null;
+			}
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}  // the mapping stays valid once the channel is closed
+	}
+
+	// fills in a lazily restored student from its record in the mapped file
+	private static void loadStudent(ByteBuffer buffer, long offset, int version,
+									List<String> strings, Student student,
+									SystemManager manager) {
+		try {
+			ManagerSnapshot snapshot = new ManagerSnapshot(openAt(buffer, offset),
+														   version, strings);
+			snapshot.readString();  // the name, already known
+			snapshot.readStudentExams(student, manager);
+
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot load student " + student.getName(), e);
+		}
+	}
+
+// ------------------------------ reading: ---------------------------------
+
+	private static int readHeader(FileChannel channel, String fileName) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		while (header.hasRemaining() && channel.read(header) >= 0) {
+			// keep reading
+		}
+		if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+			throw new IOException("Not a manager snapshot: " + fileName);
+		}
+		int version = header.getInt(4);
+		if (version < 1 || version > FORMAT_VERSION) {
+			throw new IOException("Unsupported snapshot version " + version);
+		}
+		return version;
+	}
+
+	// offsets of the strings, index and statistics sections
+	private static long[] readTrailer(FileChannel channel) throws IOException {
+		ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+		long position = channel.size() - TRAILER_SIZE;
+		while (trailer.hasRemaining()) {
+			if (channel.read(trailer, position + trailer.position()) < 0) {
+				throw new IOException("Truncated snapshot");
+			}
+		}
+		return new long[] {trailer.getLong(0), trailer.getLong(8), trailer.getLong(16)};
+	}
+
+	private static DataInputStream openAt(FileChannel channel, long position) throws IOException {
+		channel.position(position);
+		return new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel),
+														   BUFFER_SIZE));
+	}
+
+	private static DataInputStream openAt(ByteBuffer buffer, long position) {
+		ByteBuffer view = buffer.duplicate();
+		view.position((int) position);
+		return new DataInputStream(new ByteBufferInputStream(view));
+	}
+
+	private static void readStrings(DataInputStream in, List<String> strings) throws IOException {
+		ManagerSnapshot snapshot = new ManagerSnapshot(in, FORMAT_VERSION, strings);
+		int count = snapshot.readVarInt();
+		for (int i = 0; i < count; i++) {
+			strings.add(snapshot.readString());
+		}
+	}
+
+	private void readGrades(SystemManager manager) throws IOException {
+		int count = in.readInt();
+		if (count < 0) {
+			return;
+		}
+		String[] letterGrades = new String[count];
+		double[] cutoffs = new double[count];
+
+		for (int i = 0; i < count; i++) {
+			letterGrades[i] = readString();
+			cutoffs[i] = in.readDouble();
+		}
+		manager.setLetterGradesCutoffs(letterGrades, cutoffs);
+	}
+
+	private void readExams(SystemManager manager) throws IOException {
+		int examCount = readVarInt();
+		for (int i = 0; i < examCount; i++) {
+			readExam(manager);
+		}
+	}
+
+	private void readExam(SystemManager manager) throws IOException {
+		int examId = readVarInt();
+		manager.addExam(examId, readString());
+		int questionCount = readVarInt();
+
+		for (int i = 0; i < questionCount; i++) {
+			byte type = in.readByte();
+			int questionNumber = readVarInt();
+			String text = readString();
+			double points = in.readDouble();
+
+			if (type == TRUE_FALSE) {
+				manager.addTrueFalseQuestion(examId, questionNumber, text, points, in.readBoolean());
+			} else if (type == MULTIPLE_CHOICE) {
+				manager.addMultipleChoiceQuestion(examId, questionNumber, text, points,
+												readSharedStrings());
+			} else if (type == FILL_IN_THE_BLANKS && version >= 3) {
+				manager.addFillInTheBlanksQuestion(examId, questionNumber, text, points,
+												readSharedStrings(), readVarInt(), readAlternatives());
+			} else if (type == FILL_IN_THE_BLANKS) {
+				manager.addFillInTheBlanksQuestion(examId, questionNumber, text, points,
+												readSharedStrings());
+			} else {
+				throw new IOException("Unknown question type " + type);
+			}
+		}
+	}
+
+	// the rest of a student's record, after the name
+	private void readStudentExams(Student student, SystemManager manager) throws IOException {
+		int examCount = readVarInt();
+
+		for (int i = 0; i < examCount; i++) {
+			Exam exam = manager.getExam(readVarInt());
+			Double examScore = null;
+			if ((in.readByte() & HAS_SCORE) != 0) {
+				examScore = in.readDouble();
+			}
+
+			Map<Integer, Double> scores = new HashMap<>();
+			Map<Integer, Object> responses = new HashMap<>();
+			int questionCount = readVarInt();
+
+			for (int j = 0; j < questionCount; j++) {
+				int questionNumber = readVarInt();
+				int flags = in.readByte();
+
+				if ((flags & HAS_SCORE) != 0) {
+					scores.put(questionNumber, in.readDouble());
+				}
+				if ((flags & BOOLEAN_RESPONSE) != 0) {
+					responses.put(questionNumber, in.readBoolean());
+				} else if ((flags & STRINGS_RESPONSE) != 0) {
+					responses.put(questionNumber, readSharedStrings());
+				}
+			}
+
+			student.restoreExam(exam, examScore, scores, responses);
+			manager.countRestoredResponses(responses.size());
+			exam.addParticipant(student);
+		}
+	}
+
+	private void readStatistics(SystemManager manager) throws IOException {
+		for (Exam exam : manager.getExams()) {
+			exam.resetStatistics();
+		}
+
+		int examCount = readVarInt();
+		for (int i = 0; i < examCount; i++) {
+			int examId = readVarInt();
+			long count = in.readLong();
+			double sum = in.readDouble();
+			double sumOfSquares = in.readDouble();
+
+			Map<Double, Long> scoreCounts = new HashMap<>();
+			int distinctScores = readVarInt();
+			for (int j = 0; j < distinctScores; j++) {
+				double score = in.readDouble();
+				scoreCounts.put(score, in.readLong());
+			}
+			manager.getExam(examId).restoreStatistics(
+					new ExamStatistics(count, sum, sumOfSquares, scoreCounts));
+		}
+	}
+
+	private String[][] readAlternatives() throws IOException {
+		int count = readVarInt() - 1;
+		if (count < 0) {
+			return null;
+		}
+		String[][] alternatives = new String[count][];
+		for (int i = 0; i < count; i++) {
+			if (readVarInt() > 0) {
+				alternatives[i] = readSharedStrings();
+			}
+		}
+		return alternatives;
+	}
+
+	private String[] readSharedStrings() throws IOException {
+		String[] values = new String[readVarInt()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = readSharedString();
+		}
+		return values;
+	}
+
+	private String readSharedString() throws IOException {
+		int id = readVarInt();
+		if (version >= 2) {
+			return strings.get(id);
+		}
+
+		// version 1: 0 followed by the string when first seen, its id + 1 after that
+		if (id > 0) {
+			return strings.get(id - 1);
+		}
+		String value = readString();
+		strings.add(value);
+		return value;
+	}
+
+	private String readString() throws IOException {
+		int length = readVarInt();
+		if (length == NULL_LENGTH) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private int readVarInt() throws IOException {
+		int value = 0;
+		int shift = 0;
+		int b;
+
+		do {
+			b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+
+		return value;
+	}
+
+	/**
+	 * Counts the bytes written, to record where records and sections start.
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+		private long count;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		long getCount() {
+			return count;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+
+	/**
+	 * Reads from a ByteBuffer, e.g. a view of a memory-mapped snapshot.
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+		private ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			len = Math.min(len, buffer.remaining());
+			buffer.get(b, off, len);
+			return len;
+		}
+	}
+}
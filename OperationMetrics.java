@@ -0,0 +1,127 @@
+package onlineTest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * OperationMetrics counts the calls and failures of one Manager method and
+ * keeps a histogram of their latencies. Recording is lock-free: counters
+ * are LongAdders, the histogram is an AtomicLongArray, and the maximum is
+ * updated with compare-and-set, so threads recording at the same time do
+ * not wait for each other.
+ *
+ * The histogram is log-linear: latencies below 8 ns have a bucket each, and
+ * each power of two above that is split into 4 buckets, so a percentile is
+ * at most 25% above the true latency. 248 buckets cover any long.
+ */
+public class OperationMetrics {
+
+	private static final int SUB_BUCKETS = 4;  // per power of two
+	private static final int LINEAR_LIMIT = 8;
+	private static final int BUCKETS = LINEAR_LIMIT + (Long.SIZE - 4) * SUB_BUCKETS;
+
+	private String name;
+	private LongAdder calls = new LongAdder();
+	private LongAdder errors = new LongAdder();
+	private LongAdder totalNanos = new LongAdder();
+	private AtomicLong maxNanos = new AtomicLong();
+	private AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+	public OperationMetrics(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	// one call that took nanos, and threw if failed
+	public void record(long nanos, boolean failed) {
+		calls.increment();
+		if (failed) {
+			errors.increment();
+		}
+		totalNanos.add(nanos);
+		histogram.incrementAndGet(bucketOf(nanos));
+
+		long max = maxNanos.get();
+		while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+			max = maxNanos.get();
+		}
+	}
+
+	public long getCalls() {
+		return calls.sum();
+	}
+
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	// 0.0 if there were no calls
+	public double getMeanNanos() {
+		long count = calls.sum();
+		return count == 0 ? 0.0 : (double) totalNanos.sum() / count;
+	}
+
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+	/**
+	 * Returns the latency at the given percentile (0 to 100), as the upper
+	 * bound of the histogram bucket it falls in. 0 if there were no calls.
+	 */
+	public long getPercentileNanos(double percentile) {
+		long[] counts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = histogram.get(i);
+			total += counts[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(upperBoundOf(i), getMaxNanos());
+			}
+		}
+		return getMaxNanos();
+	}
+
+	// starts over; calls recorded meanwhile may be partly counted
+	public void reset() {
+		calls.reset();
+		errors.reset();
+		totalNanos.reset();
+		maxNanos.set(0);
+		for (int i = 0; i < BUCKETS; i++) {
+			histogram.set(i, 0);
+		}
+	}
+
+	private static int bucketOf(long nanos) {
+		if (nanos < LINEAR_LIMIT) {
+			return (int) Math.max(0, nanos);
+		}
+		int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);  // at least 3
+		int subBucket = (int) (nanos >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+		return LINEAR_LIMIT + (exponent - 3) * SUB_BUCKETS + subBucket;
+	}
+
+	private static long upperBoundOf(int bucket) {
+		if (bucket < LINEAR_LIMIT) {
+			return bucket;
+		}
+		int exponent = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 3;
+		int subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+		long lowerBound = (long) (SUB_BUCKETS + subBucket) << (exponent - 2);
+		return lowerBound + (1L << (exponent - 2)) - 1;
+	}
+}
@@ -0,0 +1,523 @@
+package onlineTest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * PartitionedManager spreads the roster over several independent
+ * ManagerPartitions, so no single heap holds every student. Each student
+ * lives in one partition, chosen by name hash, and every call about a
+ * student goes to that partition only. Exams, questions and cutoffs are
+ * replicated to every partition.
+ *
+ * Exam-wide queries are answered by scatter-gather: every partition is
+ * asked in parallel for its ExamStatistics of the exam, and the partials
+ * are merged, then read with the size of the whole roster. Counts, max,
+ * min, percentiles and histograms are exactly those of one SystemManager
+ * holding everybody. Averages and variances add up the partitions' sums
+ * of scores, which rounds differently from one sum, so they can differ
+ * from one SystemManager's in the last digits. The course grade
+ * listing and the exam participants are merged from the partitions' own
+ * name-sorted listings with a k-way merge. The course grade listing is
+ * fetched from each partition a page at a time, as the merge reaches it,
+ * so it is never held whole.
+ *
+ * Calls replicated to every partition are not atomic across them: if one
+ * partition fails, the others may already have applied the call. A batch
+ * of answers for several students is checked and applied per partition.
+ *
+ * Saving writes one file per partition, {fileName}.{partition}, and
+ * restoring reads them back into as many partitions as this manager has.
+ */
+public class PartitionedManager implements Manager, Closeable {
+
+	// course grade lines fetched from a partition at a time
+	private static final int GRADE_PAGE = 1024;
+
+	private ManagerPartition[] partitions;
+	private ExecutorService executor;
+
+	// in-process partitions, each a ConcurrentSystemManager
+	public PartitionedManager(int partitionCount) {
+		this(newPartitions(partitionCount));
+	}
+
+	public PartitionedManager(ManagerPartition... partitions) {
+		if (partitions.length == 0) {
+			throw new IllegalArgumentException("No partitions");
+		}
+		this.partitions = partitions.clone();
+		this.executor = ManagerServer.newThreadPerTaskExecutor("manager-partition");
+	}
+
+	private static ManagerPartition[] newPartitions(int partitionCount) {
+		ManagerPartition[] partitions = new ManagerPartition[partitionCount];
+		for (int i = 0; i < partitionCount; i++) {
+			partitions[i] = new ConcurrentSystemManager();
+		}
+		return partitions;
+	}
+
+	public int getPartitionCount() {
+		return partitions.length;
+	}
+
+	public ManagerPartition getPartition(int index) {
+		return partitions[index];
+	}
+
+	// the partition that holds the student
+	public int partitionOf(String studentName) {
+		int hash = studentName.hashCode();
+		return Math.floorMod(hash ^ (hash >>> 16), partitions.length);
+	}
+
+	private ManagerPartition owner(String studentName) {
+		return partitions[partitionOf(studentName)];
+	}
+
+	public void close() {
+		executor.shutdown();
+	}
+
+// ------------------------- scatter-gather: -------------------------------
+
+	// calls every partition in parallel; the results in partition order
+	private <T> List<T> scatter(Function<ManagerPartition, T> call) {
+		return scatterIndexed(index -> call.apply(partitions[index]));
+	}
+
+	// the same, with the call given the partition's index
+	private <T> List<T> scatterIndexed(IntFunction<T> call) {
+		List<T> results = new ArrayList<>(partitions.length);
+		if (partitions.length == 1) {
+			results.add(call.apply(0));
+			return results;
+		}
+
+		List<CompletableFuture<T>> futures = new ArrayList<>(partitions.length);
+		for (int i = 0; i < partitions.length; i++) {
+			int index = i;
+			futures.add(CompletableFuture.supplyAsync(() -> call.apply(index), executor));
+		}
+		for (CompletableFuture<T> future : futures) {
+			try {
+				results.add(future.join());
+			} catch (CompletionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw e;
+			}
+		}
+		return results;
+	}
+
+	private void replicate(Function<ManagerPartition, ?> call) {
+		scatter(call);
+	}
+
+	private int rosterSize() {
+		int rosterSize = 0;
+		for (int studentCount : scatter(ManagerPartition::getStudentCount)) {
+			rosterSize += studentCount;
+		}
+		return rosterSize;
+	}
+
+	// every partition's statistics of the exam, merged
+	private ExamStatistics statisticsOf(int examId) {
+		ExamStatistics statistics = new ExamStatistics();
+		for (ExamStatistics partial : scatter(partition -> partition.getPartialStatistics(examId))) {
+			statistics.merge(partial);
+		}
+		return statistics;
+	}
+
+	// the whole roster, or only the students with a score on the exam
+	private int rosterSize(ExamStatistics statistics, boolean participantsOnly) {
+		return participantsOnly ? (int) statistics.getCount() : rosterSize();
+	}
+
+	private interface LineSink {
+		void accept(String line) throws IOException;
+	}
+
+	/**
+	 * Merges name-sorted listings into one, taking the smallest next key
+	 * among the listings each time.
+	 */
+	private static void merge(List<Iterator<String>> listings, Function<String, String> keyOf,
+							  LineSink out) throws IOException {
+		PriorityQueue<Head> heads = new PriorityQueue<>();
+		for (Iterator<String> listing : listings) {
+			if (listing.hasNext()) {
+				heads.add(new Head(listing, listing.next(), keyOf));
+			}
+		}
+
+		while (!heads.isEmpty()) {
+			Head head = heads.poll();
+			out.accept(head.line);
+			if (head.listing.hasNext()) {
+				heads.add(new Head(head.listing, head.listing.next(), keyOf));
+			}
+		}
+	}
+
+	// the next line of one listing
+	private static class Head implements Comparable<Head> {
+		private Iterator<String> listing;
+		private String line;
+		private String key;
+
+		Head(Iterator<String> listing, String line, Function<String, String> keyOf) {
+			this.listing = listing;
+			this.line = line;
+			this.key = keyOf.apply(line);
+		}
+
+		public int compareTo(Head other) {
+			return key.compareTo(other.key);
+		}
+	}
+
+	/**
+	 * One partition's course grade lines, fetching the next page when the
+	 * merge has taken every line of the one before. A page shorter than
+	 * GRADE_PAGE is the last.
+	 */
+	private static class GradePages implements Iterator<String> {
+		private ManagerPartition partition;
+		private Iterator<String> page;
+		private String lastName;
+		private boolean lastPage;
+
+		GradePages(ManagerPartition partition, List<String> firstPage) {
+			this.partition = partition;
+			setPage(firstPage);
+		}
+
+		private void setPage(List<String> lines) {
+			page = lines.iterator();
+			lastPage = lines.size() < GRADE_PAGE;
+			if (!lines.isEmpty()) {
+				lastName = studentNameOf(lines.get(lines.size() - 1));
+			}
+		}
+
+		public boolean hasNext() {
+			if (!page.hasNext() && !lastPage) {
+				setPage(partition.getCourseGradeLines(lastName, GRADE_PAGE));
+			}
+			return page.hasNext();
+		}
+
+		public String next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return page.next();
+		}
+	}
+
+	// the name in "{studentName} {numericGrade} {letterGrade}"
+	private static String studentNameOf(String gradeLine) {
+		int letterGrade = gradeLine.lastIndexOf(' ');
+		return gradeLine.substring(0, gradeLine.lastIndexOf(' ', letterGrade - 1));
+	}
+
+// --------------------------- replicated: ---------------------------------
+
+	public boolean addExam(int examId, String title) {
+		return scatter(partition -> partition.addExam(examId, title)).get(0);
+	}
+
+	public void addTrueFalseQuestion(int examId, int questionNumber, String text,
+									 double points, boolean answer) {
+		replicate(partition -> {
+			partition.addTrueFalseQuestion(examId, questionNumber, text, points, answer);
+			return null;
+		});
+	}
+
+	public void addMultipleChoiceQuestion(int examId, int questionNumber, String text,
+										  double points, String[] answer) {
+		replicate(partition -> {
+			partition.addMultipleChoiceQuestion(examId, questionNumber, text, points, answer);
+			return null;
+		});
+	}
+
+	public void addFillInTheBlanksQuestion(int examId, int questionNumber, String text,
+										   double points, String[] answer) {
+		replicate(partition -> {
+			partition.addFillInTheBlanksQuestion(examId, questionNumber, text, points, answer);
+			return null;
+		});
+	}
+
+	public void addFillInTheBlanksQuestion(int examId, int questionNumber, String text,
+										   double points, String[] answer, int matchFlags,
+										   String[][] alternatives) {
+		replicate(partition -> {
+			partition.addFillInTheBlanksQuestion(examId, questionNumber, text, points, answer,
+					matchFlags, alternatives);
+			return null;
+		});
+	}
+
+	// every partition has the same questions
+	public String getKey(int examId) {
+		return partitions[0].getKey(examId);
+	}
+
+	public void setLetterGradesCutoffs(String[] letterGrades, double[] cutoffs) {
+		replicate(partition -> {
+			partition.setLetterGradesCutoffs(letterGrades, cutoffs);
+			return null;
+		});
+	}
+
+	public int regradeExam(int examId, int... questionNumbers) {
+		int regraded = 0;
+		for (int count : scatter(partition -> partition.regradeExam(examId, questionNumbers))) {
+			regraded += count;
+		}
+		return regraded;
+	}
+
+// ---------------------------- students: ----------------------------------
+
+	public boolean addStudent(String name) {
+		return owner(name).addStudent(name);
+	}
+
+	public void answerTrueFalseQuestion(String studentName, int examId, int questionNumber,
+										boolean answer) {
+		owner(studentName).answerTrueFalseQuestion(studentName, examId, questionNumber, answer);
+	}
+
+	public void answerMultipleChoiceQuestion(String studentName, int examId, int questionNumber,
+											 String[] answer) {
+		owner(studentName).answerMultipleChoiceQuestion(studentName, examId, questionNumber,
+				answer);
+	}
+
+	public void answerFillInTheBlanksQuestion(String studentName, int examId, int questionNumber,
+											  String[] answer) {
+		owner(studentName).answerFillInTheBlanksQuestion(studentName, examId, questionNumber,
+				answer);
+	}
+
+	public void answerExamQuestions(String studentName, int examId, Map<Integer, Object> answers) {
+		owner(studentName).answerExamQuestions(studentName, examId, answers);
+	}
+
+	// split by partition; each partition checks its students before applying
+	public void answerExamQuestions(int examId,
+									Map<String, Map<Integer, Object>> answersByStudent) {
+		List<Map<String, Map<Integer, Object>>> batches = new ArrayList<>(partitions.length);
+		for (int i = 0; i < partitions.length; i++) {
+			batches.add(new HashMap<>());
+		}
+		for (Map.Entry<String, Map<Integer, Object>> entry : answersByStudent.entrySet()) {
+			batches.get(partitionOf(entry.getKey())).put(entry.getKey(), entry.getValue());
+		}
+
+		scatterIndexed(index -> {
+			if (!batches.get(index).isEmpty()) {
+				partitions[index].answerExamQuestions(examId, batches.get(index));
+			}
+			return null;
+		});
+	}
+
+	public double getExamScore(String studentName, int examId) {
+		return owner(studentName).getExamScore(studentName, examId);
+	}
+
+	public String getGradingReport(String studentName, int examId) {
+		return owner(studentName).getGradingReport(studentName, examId);
+	}
+
+	public double getCourseNumericGrade(String studentName) {
+		return owner(studentName).getCourseNumericGrade(studentName);
+	}
+
+	public String getCourseLetterGrade(String studentName) {
+		return owner(studentName).getCourseLetterGrade(studentName);
+	}
+
+// ------------------------- scatter-gather: -------------------------------
+
+	public String getCourseGrades() {
+		StringWriter grades = new StringWriter();
+
+		try {
+			writeCourseGrades(grades);
+		} catch (IOException e) {
+			throw new AssertionError("not thrown by a StringWriter", e);
+		}
+
+		return grades.toString();
+	}
+
+	// the first pages are fetched in parallel, the rest as the merge needs them
+	public void writeCourseGrades(Writer out) throws IOException {
+		List<Iterator<String>> listings = new ArrayList<>();
+		List<List<String>> firstPages = scatter(
+				partition -> partition.getCourseGradeLines(null, GRADE_PAGE));
+		for (int i = 0; i < partitions.length; i++) {
+			listings.add(new GradePages(partitions[i], firstPages.get(i)));
+		}
+
+		merge(listings, PartitionedManager::studentNameOf, line -> {
+			out.write(line);
+			out.write("\n");
+		});
+		out.flush();
+	}
+
+	public double getMaxScore(int examId) {
+		return statisticsOf(examId).getMaxScore();
+	}
+
+	public double getMinScore(int examId) {
+		return getMinScore(examId, false);
+	}
+
+	public double getMinScore(int examId, boolean participantsOnly) {
+		ExamStatistics statistics = statisticsOf(examId);
+		return statistics.getMinScore(rosterSize(statistics, participantsOnly));
+	}
+
+	public double getAverageScore(int examId) {
+		return getAverageScore(examId, false);
+	}
+
+	public double getAverageScore(int examId, boolean participantsOnly) {
+		ExamStatistics statistics = statisticsOf(examId);
+		return statistics.getAverageScore(rosterSize(statistics, participantsOnly));
+	}
+
+	public double getMedianScore(int examId) {
+		return getScorePercentile(examId, 50);
+	}
+
+	public double getScorePercentile(int examId, double percentile) {
+		return getScorePercentile(examId, percentile, false);
+	}
+
+	public double getScorePercentile(int examId, double percentile, boolean participantsOnly) {
+		ExamStatistics statistics = statisticsOf(examId);
+		return statistics.getPercentile(percentile, rosterSize(statistics, participantsOnly));
+	}
+
+	public Map<Double, Long> getScoreHistogram(int examId, double bucketWidth) {
+		return statisticsOf(examId).getHistogram(bucketWidth, rosterSize());
+	}
+
+	// each student is counted in one partition, so the counts add up
+	public Map<String, Long> getGradeBandCounts(int examId) {
+		Map<String, Long> bands = new LinkedHashMap<>();
+		for (Map<String, Long> partial : scatter(partition -> partition.getGradeBandCounts(examId))) {
+			for (Map.Entry<String, Long> entry : partial.entrySet()) {
+				bands.merge(entry.getKey(), entry.getValue(), Long::sum);
+			}
+		}
+		return bands;
+	}
+
+	public List<String> getExamParticipants(int examId) {
+		List<Iterator<String>> listings = new ArrayList<>();
+		for (List<String> names : scatter(partition -> partition.getExamParticipants(examId))) {
+			listings.add(names.iterator());
+		}
+
+		List<String> participants = new ArrayList<>();
+		try {
+			merge(listings, Function.identity(), participants::add);
+		} catch (IOException e) {
+			throw new AssertionError("not thrown by a list", e);
+		}
+		return participants;
+	}
+
+// --------------------------- persistence: --------------------------------
+
+	private static String partitionFile(String fileName, int partition) {
+		return fileName + "." + partition;
+	}
+
+	// saving this manager saves each partition to its own file
+	public void saveManager(Manager manager, String fileName) {
+		if (manager != this) {
+			partitions[0].saveManager(manager, fileName);
+			return;
+		}
+		for (int i = 0; i < partitions.length; i++) {
+			partitions[i].saveManager(partitions[i], partitionFile(fileName, i));
+		}
+	}
+
+	// null, like SystemManager's, if any partition's file fails to restore
+	public Manager restoreManager(String fileName) {
+		ManagerPartition[] restored = new ManagerPartition[partitions.length];
+		for (int i = 0; i < partitions.length; i++) {
+			Manager partition = partitions[i].restoreManager(partitionFile(fileName, i));
+			if (!(partition instanceof ManagerPartition)) {
+				return null;
+			}
+			restored[i] = (ManagerPartition) partition;
+		}
+		return new PartitionedManager(restored);
+	}
+
+	public void saveManagerSnapshot(Manager manager, String fileName) {
+		if (manager != this) {
+			partitions[0].saveManagerSnapshot(manager, fileName);
+			return;
+		}
+		for (int i = 0; i < partitions.length; i++) {
+			partitions[i].saveManagerSnapshot(partitions[i], partitionFile(fileName, i));
+		}
+	}
+
+	public Manager restoreManagerSnapshot(String fileName) {
+		return restoreManagerSnapshot(fileName, false);
+	}
+
+	// null if any partition's file fails to restore, as above
+	public Manager restoreManagerSnapshot(String fileName, boolean lazy) {
+		ManagerPartition[] restored = new ManagerPartition[partitions.length];
+		for (int i = 0; i < partitions.length; i++) {
+			Manager partition = partitions[i].restoreManagerSnapshot(partitionFile(fileName, i),
+					lazy);
+			if (!(partition instanceof ManagerPartition)) {
+				return null;
+			}
+			restored[i] = (ManagerPartition) partition;
+		}
+		return new PartitionedManager(restored);
+	}
+}
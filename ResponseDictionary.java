@@ -0,0 +1,70 @@
+package onlineTest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ResponseDictionary gives each distinct response string of an exam a small
+ * int id, so that students store the ids instead of their own String[] of
+ * String objects. The same few options and blanks come back from thousands
+ * of students, and each is kept here once.
+ *
+ * Ids are never reused or removed. Lookups of known strings take no lock;
+ * new strings are added one at a time.
+ */
+class ResponseDictionary {
+
+	// the id stored for a null entry of a response
+	static final int NULL_ID = -1;
+
+	private Map<String, Integer> ids = new ConcurrentHashMap<>();
+	private volatile String[] values = new String[16];
+	private int size;  // guarded by this
+
+	int idOf(String value) {
+		if (value == null) {
+			return NULL_ID;
+		}
+		Integer id = ids.get(value);
+		return id != null ? id : add(value);
+	}
+
+	String valueOf(int id) {
+		return id == NULL_ID ? null : values[id];
+	}
+
+	int[] encode(String[] response) {
+		int[] encoded = new int[response.length];
+		for (int i = 0; i < response.length; i++) {
+			encoded[i] = idOf(response[i]);
+		}
+		return encoded;
+	}
+
+	// a new array each time, so callers may sort or change it
+	String[] decode(int[] encoded) {
+		String[] response = new String[encoded.length];
+		for (int i = 0; i < encoded.length; i++) {
+			response[i] = valueOf(encoded[i]);
+		}
+		return response;
+	}
+
+	synchronized int size() {
+		return size;
+	}
+
+	private synchronized int add(String value) {
+		Integer id = ids.get(value);
+		if (id != null) {
+			return id;
+		}
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+		}
+		values[size] = value;
+		ids.put(value, size);  // published after the value is in place
+		return size++;
+	}
+}
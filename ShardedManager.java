@@ -0,0 +1,485 @@
+package onlineTest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * ShardedManager applies answers to a SystemManager without locking it.
+ * Students are split by name hash among a number of shards, each a single
+ * worker thread that alone touches its students. An answer becomes an
+ * event on its student's shard: a bounded ring buffer (see EventRing) that
+ * producers fill with compare-and-set and the worker drains in batches.
+ * Queries about one student are events too, so they see every answer
+ * submitted before them.
+ *
+ * Each Manager method returns once its event has been applied; the Async
+ * variants return a future instead. When a shard's ring is full, callers
+ * wait for room.
+ *
+ * Exam statistics are read directly, since ExamStatistics and the exam's
+ * participants are safe to read while answers are applied. Changes to the
+ * roster, exams, questions and cutoffs, regrades, multi-student batches,
+ * course grade listings and saves run exclusively: every shard is paused
+ * at an event boundary first, and resumes after.
+ *
+ * The wrapped manager must not be used directly while it is sharded.
+ */
+public class ShardedManager implements Manager, Closeable {
+
+	public static final int DEFAULT_RING_CAPACITY = 1024;
+
+	private static final int BATCH = 64;  // events applied per wakeup, at most
+
+	private SystemManager manager;
+	private Shard[] shards;
+	private volatile boolean closed;
+
+	// exclusive operations hold the write lock; direct reads, the read lock
+	private ReadWriteLock exclusion = new ReentrantReadWriteLock();
+
+	private static class Event {
+		private Function<SystemManager, Object> action;
+		private CompletableFuture<Object> result = new CompletableFuture<>();
+
+		Event(Function<SystemManager, Object> action) {
+			this.action = action;
+		}
+	}
+
+	private class Shard implements Runnable {
+		private EventRing<Event> ring;
+		private Thread worker;
+		private volatile boolean sleeping;
+
+		// publishing holds the read lock, and close the write lock while it
+		// sets closed, so no event is published once the worker may be done
+		private ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+		Shard(int index, int ringCapacity) {
+			ring = new EventRing<>(ringCapacity);
+			worker = new Thread(this, "manager-shard-" + index);
+			worker.setDaemon(true);
+		}
+
+		// waits for room if the ring is full
+		void publish(Event event) {
+			closeLock.readLock().lock();
+			try {
+				if (closed) {
+					throw new IllegalStateException("Manager is closed");
+				}
+				while (!ring.offer(event)) {
+					LockSupport.unpark(worker);
+					Thread.yield();
+				}
+			} finally {
+				closeLock.readLock().unlock();
+			}
+			if (sleeping) {
+				LockSupport.unpark(worker);
+			}
+		}
+
+		public void run() {
+			while (true) {
+				int applied = 0;
+				Event event;
+				while (applied < BATCH && (event = ring.poll()) != null) {
+					apply(event);
+					applied++;
+				}
+				if (applied > 0) {
+					continue;
+				}
+				// closed is set once nothing more can be published, so what
+				// the ring holds then is all there is left
+				if (closed && ring.isEmpty()) {
+					return;
+				}
+
+				// publish checks sleeping after offering, so one of us sees the other
+				sleeping = true;
+				if (ring.isEmpty() && !closed) {
+					LockSupport.park(this);
+				}
+				sleeping = false;
+			}
+		}
+
+		private void apply(Event event) {
+			try {
+				event.result.complete(event.action.apply(manager));
+			} catch (Throwable e) {
+				event.result.completeExceptionally(e);
+			}
+		}
+	}
+
+	public ShardedManager(SystemManager manager, int shardCount) {
+		this(manager, shardCount, DEFAULT_RING_CAPACITY);
+	}
+
+	public ShardedManager(SystemManager manager, int shardCount, int ringCapacity) {
+		if (shardCount < 1 || ringCapacity < 1) {
+			throw new IllegalArgumentException("Invalid shard count or ring capacity: "
+					+ shardCount + ", " + ringCapacity);
+		}
+		this.manager = manager;
+		this.shards = new Shard[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			shards[i] = new Shard(i, ringCapacity);
+		}
+		for (Shard shard : shards) {
+			shard.worker.start();
+		}
+	}
+
+	public SystemManager getManager() {
+		return manager;
+	}
+
+	public int getShardCount() {
+		return shards.length;
+	}
+
+	// the shard that owns the student
+	public int shardOf(String studentName) {
+		int hash = studentName.hashCode();
+		return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+	}
+
+	/**
+	 * Applies the events already submitted, then stops the workers. Calls
+	 * made after this fail with IllegalStateException.
+	 */
+	public void close() {
+		for (Shard shard : shards) {
+			shard.closeLock.writeLock().lock();
+		}
+		closed = true;
+		for (Shard shard : shards) {
+			shard.closeLock.writeLock().unlock();
+		}
+
+		// every event was published before closed was set, and the workers
+		// apply all of them before they stop
+		for (Shard shard : shards) {
+			LockSupport.unpark(shard.worker);
+		}
+		for (Shard shard : shards) {
+			try {
+				shard.worker.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+// ---------------------------- events: ------------------------------------
+
+	@SuppressWarnings("unchecked")
+	private <T> CompletableFuture<T> submit(String studentName, Function<SystemManager, T> action) {
+		Event event = new Event((Function<SystemManager, Object>) action);
+		shards[shardOf(studentName)].publish(event);
+		return (CompletableFuture<T>) event.result;
+	}
+
+	// the result of an event, or what it threw
+	private static <T> T await(CompletableFuture<T> result) {
+		try {
+			return result.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	// runs action with every shard paused at an event boundary
+	private <T> T exclusive(Supplier<T> action) {
+		if (closed) {
+			throw new IllegalStateException("Manager is closed");
+		}
+		exclusion.writeLock().lock();
+		CountDownLatch paused = new CountDownLatch(shards.length);
+		CountDownLatch resumed = new CountDownLatch(1);
+		try {
+			// if closing stops this halfway, the shards paused so far resume
+			for (Shard shard : shards) {
+				shard.publish(new Event(manager -> {
+					paused.countDown();
+					awaitUninterruptibly(resumed);
+					return null;
+				}));
+			}
+
+			awaitUninterruptibly(paused);
+			return action.get();
+		} finally {
+			resumed.countDown();
+			exclusion.writeLock().unlock();
+		}
+	}
+
+	private void exclusive(Runnable action) {
+		exclusive(() -> {
+			action.run();
+			return null;
+		});
+	}
+
+	// a read of exam-wide state that needs no shard
+	private <T> T shared(Supplier<T> action) {
+		exclusion.readLock().lock();
+		try {
+			return action.get();
+		} finally {
+			exclusion.readLock().unlock();
+		}
+	}
+
+	private static void awaitUninterruptibly(CountDownLatch latch) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				latch.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+// ---------------------------- exclusive: ---------------------------------
+
+	public boolean addExam(int examId, String title) {
+		return exclusive(() -> manager.addExam(examId, title));
+	}
+
+	public void addTrueFalseQuestion(int examId, int questionNumber, String text,
+									 double points, boolean answer) {
+		exclusive(() -> manager.addTrueFalseQuestion(examId, questionNumber, text, points, answer));
+	}
+
+	public void addMultipleChoiceQuestion(int examId, int questionNumber, String text,
+										  double points, String[] answer) {
+		exclusive(() -> manager.addMultipleChoiceQuestion(examId, questionNumber, text, points,
+				answer));
+	}
+
+	public void addFillInTheBlanksQuestion(int examId, int questionNumber, String text,
+										   double points, String[] answer) {
+		exclusive(() -> manager.addFillInTheBlanksQuestion(examId, questionNumber, text, points,
+				answer));
+	}
+
+	public void addFillInTheBlanksQuestion(int examId, int questionNumber, String text,
+										   double points, String[] answer, int matchFlags,
+										   String[][] alternatives) {
+		exclusive(() -> manager.addFillInTheBlanksQuestion(examId, questionNumber, text, points,
+				answer, matchFlags, alternatives));
+	}
+
+	public boolean addStudent(String name) {
+		return exclusive(() -> manager.addStudent(name));
+	}
+
+	public void setLetterGradesCutoffs(String[] letterGrades, double[] cutoffs) {
+		exclusive(() -> manager.setLetterGradesCutoffs(letterGrades, cutoffs));
+	}
+
+	public int regradeExam(int examId, int... questionNumbers) {
+		return exclusive(() -> manager.regradeExam(examId, questionNumbers));
+	}
+
+	// every student's responses are still checked before any is applied
+	public void answerExamQuestions(int examId,
+									Map<String, Map<Integer, Object>> answersByStudent) {
+		exclusive(() -> manager.answerExamQuestions(examId, answersByStudent));
+	}
+
+	public String getCourseGrades() {
+		return exclusive(() -> manager.getCourseGrades());
+	}
+
+	public void writeCourseGrades(Writer out) throws IOException {
+		try {
+			exclusive(() -> {
+				try {
+					manager.writeCourseGrades(out);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	public void saveManager(Manager manager, String fileName) {
+		exclusive(() -> this.manager.saveManager(manager == this ? this.manager : manager,
+				fileName));
+	}
+
+	public void saveManagerSnapshot(Manager manager, String fileName) {
+		exclusive(() -> this.manager.saveManagerSnapshot(manager == this ? this.manager : manager,
+				fileName));
+	}
+
+	// restored managers are not sharded
+	public Manager restoreManager(String fileName) {
+		return manager.restoreManager(fileName);
+	}
+
+	public Manager restoreManagerSnapshot(String fileName) {
+		return manager.restoreManagerSnapshot(fileName);
+	}
+
+	public Manager restoreManagerSnapshot(String fileName, boolean lazy) {
+		return manager.restoreManagerSnapshot(fileName, lazy);
+	}
+
+// ----------------------------- shards: -----------------------------------
+
+	public CompletableFuture<Void> answerTrueFalseQuestionAsync(String studentName, int examId,
+																int questionNumber, boolean answer) {
+		return submit(studentName, manager -> {
+			manager.answerTrueFalseQuestion(studentName, examId, questionNumber, answer);
+			return null;
+		});
+	}
+
+	public CompletableFuture<Void> answerMultipleChoiceQuestionAsync(String studentName,
+			int examId, int questionNumber, String[] answer) {
+		return submit(studentName, manager -> {
+			manager.answerMultipleChoiceQuestion(studentName, examId, questionNumber, answer);
+			return null;
+		});
+	}
+
+	public CompletableFuture<Void> answerFillInTheBlanksQuestionAsync(String studentName,
+			int examId, int questionNumber, String[] answer) {
+		return submit(studentName, manager -> {
+			manager.answerFillInTheBlanksQuestion(studentName, examId, questionNumber, answer);
+			return null;
+		});
+	}
+
+	public CompletableFuture<Void> answerExamQuestionsAsync(String studentName, int examId,
+															Map<Integer, Object> answers) {
+		return submit(studentName, manager -> {
+			manager.answerExamQuestions(studentName, examId, answers);
+			return null;
+		});
+	}
+
+	public CompletableFuture<Double> getExamScoreAsync(String studentName, int examId) {
+		return submit(studentName, manager -> manager.getExamScore(studentName, examId));
+	}
+
+	public void answerTrueFalseQuestion(String studentName, int examId, int questionNumber,
+										boolean answer) {
+		await(answerTrueFalseQuestionAsync(studentName, examId, questionNumber, answer));
+	}
+
+	public void answerMultipleChoiceQuestion(String studentName, int examId, int questionNumber,
+											 String[] answer) {
+		await(answerMultipleChoiceQuestionAsync(studentName, examId, questionNumber, answer));
+	}
+
+	public void answerFillInTheBlanksQuestion(String studentName, int examId, int questionNumber,
+											  String[] answer) {
+		await(answerFillInTheBlanksQuestionAsync(studentName, examId, questionNumber, answer));
+	}
+
+	public void answerExamQuestions(String studentName, int examId, Map<Integer, Object> answers) {
+		await(answerExamQuestionsAsync(studentName, examId, answers));
+	}
+
+	public double getExamScore(String studentName, int examId) {
+		return await(getExamScoreAsync(studentName, examId));
+	}
+
+	public String getGradingReport(String studentName, int examId) {
+		return await(submit(studentName, manager -> manager.getGradingReport(studentName, examId)));
+	}
+
+	public double getCourseNumericGrade(String studentName) {
+		return await(submit(studentName, manager -> manager.getCourseNumericGrade(studentName)));
+	}
+
+	public String getCourseLetterGrade(String studentName) {
+		return await(submit(studentName, manager -> manager.getCourseLetterGrade(studentName)));
+	}
+
+// ----------------------------- shared: -----------------------------------
+
+	public String getKey(int examId) {
+		return shared(() -> manager.getKey(examId));
+	}
+
+	public double getMaxScore(int examId) {
+		return shared(() -> manager.getMaxScore(examId));
+	}
+
+	public double getMinScore(int examId) {
+		return shared(() -> manager.getMinScore(examId));
+	}
+
+	public double getMinScore(int examId, boolean participantsOnly) {
+		return shared(() -> manager.getMinScore(examId, participantsOnly));
+	}
+
+	public double getAverageScore(int examId) {
+		return shared(() -> manager.getAverageScore(examId));
+	}
+
+	public double getAverageScore(int examId, boolean participantsOnly) {
+		return shared(() -> manager.getAverageScore(examId, participantsOnly));
+	}
+
+	public double getMedianScore(int examId) {
+		return shared(() -> manager.getMedianScore(examId));
+	}
+
+	public double getScorePercentile(int examId, double percentile) {
+		return shared(() -> manager.getScorePercentile(examId, percentile));
+	}
+
+	public double getScorePercentile(int examId, double percentile, boolean participantsOnly) {
+		return shared(() -> manager.getScorePercentile(examId, percentile, participantsOnly));
+	}
+
+	public List<String> getExamParticipants(int examId) {
+		return shared(() -> manager.getExamParticipants(examId));
+	}
+
+	public Map<Double, Long> getScoreHistogram(int examId, double bucketWidth) {
+		return shared(() -> manager.getScoreHistogram(examId, bucketWidth));
+	}
+
+	public Map<String, Long> getGradeBandCounts(int examId) {
+		return shared(() -> manager.getGradeBandCounts(examId));
+	}
+}
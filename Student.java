@@ -1,151 +1,414 @@
 package onlineTest;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.TreeSet;
 
 /**
  * Student class will represent the student who takes the exam(s) and the
  * questions that they have entered responses to.
+ *
+ * The scores and responses are kept in one ExamRecord per exam taken, in
+ * primitive arrays rather than maps of boxed values. The getters that
+ * return maps build them on each call.
+ *
+ * The student's own monitor guards its containers, so a single student can
+ * be read and updated from several threads. Callers that iterate one of the
+ * maps returned by the getters must hold that monitor themselves.
  */
 public class Student implements Comparable<Student>, Serializable {
 	private static final long serialVersionUID = 1L;
-	private String name;
 
-	// maps an examId to a Map that maps questionNum to student response
-	private Map<Integer, Map<Integer, Object>> responses;  // 2 types of Object
+	// the serialized form is still the maps the records replaced, so managers
+	// saved with saveManager before them can still be restored
+	private static final ObjectStreamField[] serialPersistentFields = {
+		new ObjectStreamField("name", String.class),
+		new ObjectStreamField("responses", Map.class),
+		new ObjectStreamField("studentExamScores", Map.class),
+		new ObjectStreamField("questionScores", Map.class),
+		new ObjectStreamField("examsTaken", Map.class),
+		new ObjectStreamField("gradingReports", Map.class),
+	};
+
+	private static final ExamRecord[] NO_RECORDS = new ExamRecord[0];
+
+	private String name;
 
-	// maps an examId to the student's score on that exam
-	private Map<Integer, Double> studentExamScores;
+	// one record per exam, sorted by examId
+	private transient ExamRecord[] records;
 
-	// maps an examId to the corresponding Exam object
-	private Map<Integer, Exam> examsTaken;
-	
 	// maps an examId to the corresponding exam's gradingReport for the student
 	private Map<Integer, Collection<String[]>> gradingReports;
 
+	// course numeric grade last computed by the manager, and the version of
+	// the exam point totals it was computed against
+	private transient boolean courseGradeCached;
+	private transient long courseGradeVersion;
+	private transient double courseNumericGrade;
+
+	// when restored lazily, reads this student's record on first use
+	private transient RecordLoader loader;
+
+	// the latest checkpoint that already has an image of this student
+	private transient long checkpointEpoch;
+
 	public Student(String name) {
 		this.name = name;
-		
+		createContainers();
+	}
+
+	/**
+	 * A student restored lazily from a snapshot: the containers are only
+	 * created, and filled by the loader, the first time they are needed.
+	 */
+	Student(String name, RecordLoader loader) {
+		this.name = name;
+		this.loader = loader;
+	}
+
+	private void createContainers() {
 		// instantiate the containers in the constructor!!
-		responses = new HashMap<>();  
-		studentExamScores = new HashMap<>();
-		examsTaken = new HashMap<>();
+		records = NO_RECORDS;
 		gradingReports = new HashMap<>();
 	}
 
+	// reads the record of a lazily restored student; callers hold its lock
+	private void load() {
+		if (loader != null) {
+			RecordLoader pending = loader;
+			loader = null;
+			createContainers();
+			pending.load(this);
+		}
+	}
+
+	// true until a lazily restored student's record has been read
+	synchronized boolean isLoadPending() {
+		return loader != null;
+	}
+
+	// the record of an exam, or null; binary search over the sorted records
+	private ExamRecord findRecord(int examId) {
+		int index = indexOf(examId);
+		return index >= 0 ? records[index] : null;
+	}
+
+	// the record of an exam, added if there is none yet
+	private ExamRecord record(int examId, Exam exam) {
+		int index = indexOf(examId);
+		if (index >= 0) {
+			return records[index];
+		}
+
+		index = -index - 1;
+		ExamRecord record = new ExamRecord(examId, exam);
+		ExamRecord[] grown = Arrays.copyOf(records, records.length + 1);
+		System.arraycopy(records, index, grown, index + 1, records.length - index);
+		grown[index] = record;
+		records = grown;
+		return record;
+	}
+
+	private int indexOf(int examId) {
+		int low = 0;
+		int high = records.length - 1;
+
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int middleId = records[middle].getExamId();
+			if (middleId < examId) {
+				low = middle + 1;
+			} else if (middleId > examId) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -(low + 1);
+	}
+
+	// the record of an exam, registering the exam as taken
+	private ExamRecord takenRecord(Exam exam) {
+		ExamRecord record = record(exam.getExamId(), exam);
+		if (record.getExam() == null) {
+			record.setExam(exam);
+		}
+		return record;
+	}
+
 	public String getName() {
 		return name;
 	}
-	
-	public Map<Integer, Double> getStudentExamScores() {
-		return studentExamScores;
+
+	// a new map of examId to score, in examId order
+	public synchronized Map<Integer, Double> getStudentExamScores() {
+		load();
+		Map<Integer, Double> scores = new LinkedHashMap<>();
+		for (ExamRecord record : records) {
+			if (record.hasScore()) {
+				scores.put(record.getExamId(), record.getScore());
+			}
+		}
+		return scores;
 	}
-	
-	public Map<Integer, Exam> getExamsTaken() {
+
+	// a new map of examId to Exam, in examId order
+	public synchronized Map<Integer, Exam> getExamsTaken() {
+		load();
+		Map<Integer, Exam> examsTaken = new LinkedHashMap<>();
+		for (ExamRecord record : records) {
+			if (record.getExam() != null) {
+				examsTaken.put(record.getExamId(), record.getExam());
+			}
+		}
 		return examsTaken;
 	}
-	
-	public void addToExamsTaken(Integer examId, Exam exam) {
-		examsTaken.put(examId, exam);
+
+	public synchronized void addToExamsTaken(Integer examId, Exam exam) {
+		load();
+		record(examId, exam).setExam(exam);
+	}
+
+	// binary search over the few exams a student takes
+	public synchronized boolean hasTakenExam(int examId) {
+		load();
+		ExamRecord record = findRecord(examId);
+		return record != null && record.getExam() != null;
+	}
+
+	/**
+	 * Registers the exam as taken by this student.
+	 * @return true if the exam was not registered before
+	 */
+	public synchronized boolean takeExam(Exam exam) {
+		load();
+		ExamRecord record = findRecord(exam.getExamId());
+		if (record != null && record.getExam() != null) {
+			return false;
+		}
+		takenRecord(exam);
+		return true;
 	}
-	
-	public Map<Integer, Collection<String[]>> getGradingReports() {
+
+	public synchronized Map<Integer, Collection<String[]>> getGradingReports() {
+		load();
 		return gradingReports;
 	}
 
 	// This method is called in SystemManager
-	public double getExamScore(int examId) {
-		if (studentExamScores.containsKey(examId)) {
-			return studentExamScores.get(examId);
-			
-		} else {
-			return 0.0;
-		}
+	public synchronized double getExamScore(int examId) {
+		load();
+		ExamRecord record = findRecord(examId);
+		return record == null ? 0.0 : record.getScore();
 	}
-	
+
+	// true once the student has a score on the exam, even a 0.0
+	public synchronized boolean hasExamScore(int examId) {
+		load();
+		ExamRecord record = findRecord(examId);
+		return record != null && record.hasScore();
+	}
+
 	// This method is called in SystemManager by the "answerXXXXX" methods
-	public void updateExamScore(Exam exam, double increaseScore) {
-		int examId = exam.getExamId();
+	public synchronized void updateExamScore(Exam exam, double increaseScore) {
+		load();
+		takenRecord(exam).addToScore(increaseScore);
+		courseGradeCached = false;
+	}
+
+	/**
+	 * Records the score earned on one question. When the question was already
+	 * answered, only the difference from its previous score is applied to the
+	 * exam total, so resubmitting an answer never counts it twice.
+	 * @return the change applied to the exam score
+	 */
+	public synchronized double setQuestionScore(Exam exam, int questionNumber, double score) {
+		load();
+		ExamRecord record = takenRecord(exam);
+		double delta = record.setQuestionScore(questionNumber, score);
+
+		record.addToScore(delta);
+		courseGradeCached = false;
+		return delta;
+	}
 
-		if (!studentExamScores.containsKey(examId)) {
-			studentExamScores.put(examId, increaseScore);
-		} else {
-			double newScore = studentExamScores.get(examId) + increaseScore;
-			studentExamScores.put(examId, newScore);
+	// the score recorded for one question, 0.0 if it was never answered
+	public synchronized double getQuestionScore(int examId, int questionNumber) {
+		load();
+		ExamRecord record = findRecord(examId);
+		return record == null ? 0.0 : record.getQuestionScore(questionNumber);
+	}
+
+	/**
+	 * Returns the cached course numeric grade, or null if one of this
+	 * student's exam scores or any exam's point total has changed since it
+	 * was computed.
+	 */
+	public synchronized Double getCachedCourseGrade(long examTotalsVersion) {
+		if (courseGradeCached && courseGradeVersion == examTotalsVersion) {
+			return courseNumericGrade;
 		}
-		examsTaken.put(examId, exam);
+		return null;
 	}
-	
-	// add a boolean response
-	public void addResponse(int examId, int questionNumber, boolean response) {
-		if (!responses.containsKey(examId)) {
-			responses.put(examId, new HashMap<>());
+
+	public synchronized void cacheCourseGrade(double numericGrade, long examTotalsVersion) {
+		courseNumericGrade = numericGrade;
+		courseGradeVersion = examTotalsVersion;
+		courseGradeCached = true;
+	}
+
+	// add a boolean response; true if the question had none before
+	public synchronized boolean addResponse(int examId, int questionNumber, boolean response) {
+		load();
+		return record(examId, null).setResponse(questionNumber, response);
+	}
+
+	// add a String[] response; true if the question had none before
+	public synchronized boolean addResponse(int examId, int questionNumber, String[] response) {
+		load();
+		return record(examId, null).setResponse(questionNumber, response);
+	}
+
+	// add several responses (Boolean or String[]) for the same exam at once;
+	// returns how many of the questions had none before
+	public synchronized int addResponses(int examId, Map<Integer, Object> examResponses) {
+		load();
+		ExamRecord record = record(examId, null);
+		int added = 0;
+		for (Map.Entry<Integer, Object> entry : examResponses.entrySet()) {
+			if (record.setResponse(entry.getKey(), entry.getValue())) {
+				added++;
+			}
+		}
+		return added;
+	}
+
+	// a new map of the responses for one exam, empty if none
+	synchronized Map<Integer, Object> getResponses(int examId) {
+		load();
+		ExamRecord record = findRecord(examId);
+		return record == null ? new HashMap<>() : record.getResponses();
+	}
+
+	/**
+	 * The number of responses this student holds, over all exams. A lazily
+	 * restored student that has not been read yet holds none, and is not
+	 * read by this.
+	 */
+	synchronized int getResponseCount() {
+		if (loader != null) {
+			return 0;
+		}
+		int count = 0;
+		for (ExamRecord record : records) {
+			count += record.getResponseCount();
+		}
+		return count;
+	}
+
+	// a new map of the question scores for one exam, empty if none
+	synchronized Map<Integer, Double> getQuestionScores(int examId) {
+		load();
+		ExamRecord record = findRecord(examId);
+		return record == null ? new HashMap<>() : record.getQuestionScores();
+	}
+
+	/**
+	 * True the first time it is called for a checkpoint, i.e. while the
+	 * image of this student for that checkpoint has yet to be taken.
+	 */
+	synchronized boolean claimCheckpoint(long epoch) {
+		if (checkpointEpoch >= epoch) {
+			return false;
 		}
-		Map<Integer, Object> entry = responses.get(examId);
+		checkpointEpoch = epoch;
+		return true;
+	}
+
+	// a copy of this student that later changes to it do not affect
+	synchronized Student copy() {
+		load();
+		Student copy = new Student(name);
 
-		if (entry == null) {
-			entry = new HashMap<>();
+		copy.records = new ExamRecord[records.length];
+		for (int i = 0; i < records.length; i++) {
+			copy.records[i] = records[i].copy();
 		}
-		entry.put(questionNumber, response);
-		responses.put(examId, entry);
+		copy.gradingReports.putAll(gradingReports);
+		return copy;
 	}
-	
-	// add a String[] response
-	public void addResponse(int examId, int questionNumber, String[] response) {
-		if (!responses.containsKey(examId)) {
-			responses.put(examId, new HashMap<Integer, Object>());
+
+	/**
+	 * Puts back one exam's state as saved in a snapshot: the exam score
+	 * (null if the student had none), the question scores and the responses.
+	 */
+	synchronized void restoreExam(Exam exam, Double examScore,
+						Map<Integer, Double> scores, Map<Integer, Object> examResponses) {
+		ExamRecord record = record(exam.getExamId(), exam);
+
+		if (examScore != null) {
+			record.setScore(examScore);
+		}
+		for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+			record.setQuestionScore(entry.getKey(), entry.getValue());
 		}
-		Map<Integer, Object> entry = responses.get(examId);
-		
-		if (entry == null) {
-			entry = new HashMap<>();
+		for (Map.Entry<Integer, Object> entry : examResponses.entrySet()) {
+			record.setResponse(entry.getKey(), entry.getValue());
 		}
-		entry.put(questionNumber, response);
-		responses.put(examId, entry);
+		courseGradeCached = false;
+	}
+
+	// the responses of the exam with the given id, or null if there are none
+	public synchronized Object getResponse(int questionNumber) {
+		load();
+		ExamRecord record = findRecord(questionNumber);
+		return record == null || !record.hasResponses() ? null : record.getResponses();
 	}
-	
-	public Object getResponse(int questionNumber) {
-		return responses.get(questionNumber);
+
+	/**
+	 * returns the student's grading report for a specified exam. The report
+	 * is rendered once and kept until one of the student's responses or
+	 * scores for the exam changes, or a question is added to the exam.
+	 */
+	public synchronized String getGradingReport(int examId) {
+		load();
+		ExamRecord record = findRecord(examId);
+		Exam exam = record.getExam();
+		long questionsVersion = exam.getQuestionsVersion();
+
+		String report = record.getReport(questionsVersion);
+		if (report == null) {
+			report = renderGradingReport(examId, record, exam);
+			record.setReport(report, questionsVersion);
+		}
+		return report;
 	}
-	
-	// returns the student's grading report for a specified exam
-	public String getGradingReport(int examId) {
+
+	/**
+	 * Renders the report from the per-question scores stored as answers
+	 * were graded, never regrading here, so its lines always add up to the
+	 * final score. After an answer key changes, both keep their old values
+	 * until the exam is regraded. Unanswered questions show 0.
+	 */
+	private String renderGradingReport(int examId, ExamRecord record, Exam exam) {
 		StringBuffer sb = new StringBuffer();
-		Exam exam = examsTaken.get(examId);
 		ArrayList<Question> questions = exam.getQuestions();
-		Double studenTotalScore = 0.0;
 		Double totalPoints = 0.0;
-		
+
 		for (Question question : questions) {
 			int questionNum = question.getQuestionNumber();
 			sb.append("Question #").append(questionNum);
 			sb.append(" ");
-			
-			if (question instanceof TrueFalseQuestion) {
-				TrueFalseQuestion TFQuestion = (TrueFalseQuestion) question;
-				boolean response = (boolean) responses.get(examId).get(questionNum);
-				double score = TFQuestion.computeQuestionScore(response);
-				sb.append(score);
-				studenTotalScore += score ;
-
-			} else if (question instanceof MultipleChoiceQuestion) {				
-				MultipleChoiceQuestion MCQuestion = (MultipleChoiceQuestion) question;
-				String[] response = (String[]) responses.get(examId).get(questionNum);
-				double score = MCQuestion.computeQuestionScore(response);
-				studenTotalScore += score;
-				sb.append(score);
-
-			} else {
-				FillInTheBlanksQuestion FBQuestion = (FillInTheBlanksQuestion) question;
-				String[] response = (String[]) responses.get(examId).get(questionNum);
-				double score = FBQuestion.computeQuestionScore(response);
-				studenTotalScore += score;
-				sb.append(score);						 
-			}
-
+			sb.append(record.getQuestionScore(questionNum));
 			sb.append(" points out of ");
 			sb.append(question.getPoints()).append("\n");
 			totalPoints += question.getPoints();
@@ -160,5 +423,80 @@ public class Student implements Comparable<Student>, Serializable {
 	public int compareTo(Student other) {
 		return getName().compareTo(other.getName());
 	}
+
+	// a student is written out whole, never halfway through an update
+	private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+		load();
+		Map<Integer, Map<Integer, Object>> responses = new HashMap<>();
+		Map<Integer, Map<Integer, Double>> questionScores = new HashMap<>();
+
+		for (ExamRecord record : records) {
+			if (record.hasResponses()) {
+				responses.put(record.getExamId(), record.getResponses());
+			}
+			Map<Integer, Double> scores = record.getQuestionScores();
+			if (!scores.isEmpty()) {
+				questionScores.put(record.getExamId(), scores);
+			}
+		}
+
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("name", name);
+		fields.put("responses", responses);
+		fields.put("studentExamScores", new HashMap<>(getStudentExamScores()));
+		fields.put("questionScores", questionScores);
+		fields.put("examsTaken", new HashMap<>(getExamsTaken()));
+		fields.put("gradingReports", gradingReports);
+		out.writeFields();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		name = (String) fields.get("name", null);
+		gradingReports = (Map<Integer, Collection<String[]>>) fields.get("gradingReports", null);
+		records = NO_RECORDS;
+
+		Map<Integer, Map<Integer, Object>> responses =
+				(Map<Integer, Map<Integer, Object>>) fields.get("responses", null);
+		Map<Integer, Double> studentExamScores =
+				(Map<Integer, Double>) fields.get("studentExamScores", null);
+		Map<Integer, Map<Integer, Double>> questionScores =
+				(Map<Integer, Map<Integer, Double>>) fields.get("questionScores", null);
+		Map<Integer, Exam> examsTaken = (Map<Integer, Exam>) fields.get("examsTaken", null);
+
+		if (gradingReports == null) {
+			gradingReports = new HashMap<>();
+		}
+		if (questionScores == null) {  // saved before per-question scores existed
+			questionScores = new HashMap<>();
+		}
+
+		TreeSet<Integer> examIds = new TreeSet<>(examsTaken.keySet());
+		examIds.addAll(studentExamScores.keySet());
+		examIds.addAll(responses.keySet());
+		examIds.addAll(questionScores.keySet());
+
+		for (int examId : examIds) {
+			ExamRecord record = record(examId, examsTaken.get(examId));
+			if (studentExamScores.containsKey(examId)) {
+				record.setScore(studentExamScores.get(examId));
+			}
+			for (Map.Entry<Integer, Double> entry
+					: questionScores.getOrDefault(examId, new HashMap<>()).entrySet()) {
+				record.setQuestionScore(entry.getKey(), entry.getValue());
+			}
+			for (Map.Entry<Integer, Object> entry
+					: responses.getOrDefault(examId, new HashMap<>()).entrySet()) {
+				record.setResponse(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Fills in a lazily restored student's record, see ManagerSnapshot.
+	 */
+	interface RecordLoader {
+		void load(Student student);
+	}
 }
-	
@@ -7,25 +7,59 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
-public class SystemManager implements Manager, Serializable {
+public class SystemManager implements ManagerPartition, Serializable {
 
 	private static final long serialVersionUID = 1L;
+
+	// students regraded by one fork/join task before it splits
+	private static final int REGRADE_BATCH = 256;
 	
 	private Map<Integer, Exam> exams;
 	private Map<String, Student> students;
+	private NavigableMap<String, Student> studentIndex; // students sorted by name
 	private String[] letterGrades; // e.g. = {"A", "B", "C", "D", "F"};
 	private double[] cutoffs; // e.g. = {90, 80, 70, 60, 0};
 
+	// bumped whenever any exam's point total changes, which makes every
+	// course grade cached in a Student stale; not serialized, since the
+	// cached grades are not either
+	private transient AtomicLong examTotalsVersion = new AtomicLong();
+
+	// the questions in all exams and the responses the students hold, kept
+	// as they are added for ManagerMetrics, which reads them on threads of
+	// its own; recounted on restore
+	private transient LongAdder questionCount = new LongAdder();
+	private transient LongAdder responseCount = new LongAdder();
+
 	public SystemManager() {
-		exams = new HashMap<>();
-		students = new HashMap<>();
+		this(new HashMap<>(), new HashMap<>(), new TreeMap<>());
+	}
+
+	/**
+	 * Lets subclasses supply their own containers, e.g. concurrent maps.
+	 * studentIndex holds the same students as students, sorted by name.
+	 */
+	protected SystemManager(Map<Integer, Exam> exams, Map<String, Student> students,
+							NavigableMap<String, Student> studentIndex) {
+		this.exams = exams;
+		this.students = students;
+		this.studentIndex = studentIndex;
 	}
 
 	/**
@@ -50,7 +84,9 @@ public class SystemManager implements Manager, Serializable {
 		if (students.containsKey(studentName)) {
 			return false;
 		} else {
-			students.put(studentName, new Student(studentName));
+			Student student = new Student(studentName);
+			students.put(studentName, student);
+			studentIndex.put(studentName, student);
 			return true;
 		}
 	}
@@ -69,7 +105,8 @@ public class SystemManager implements Manager, Serializable {
 											double points, boolean answer) {
 		Exam exam = exams.get(examId);
 		Question question = new TrueFalseQuestion(questionNumber, text, points, answer);
-		exam.addQuestion(question);
+		countQuestion(exam.addQuestion(question));
+		examTotalsVersion.incrementAndGet();
 	};
 
 	/**
@@ -86,7 +123,8 @@ public class SystemManager implements Manager, Serializable {
 								String text, double points, String[] answer) {
 		Exam exam = exams.get(examId);
 		Question question = new MultipleChoiceQuestion(questionNumber, text, points, answer);
-		exam.addQuestion(question);
+		countQuestion(exam.addQuestion(question));
+		examTotalsVersion.incrementAndGet();
 	}
 
 	/**
@@ -102,8 +140,26 @@ public class SystemManager implements Manager, Serializable {
 	 */
 	public void addFillInTheBlanksQuestion(int examId, int questionNumber, 
 								String text, double points, String[] answer) {
-		Question question = new FillInTheBlanksQuestion(questionNumber, text, points, answer);
-		exams.get(examId).addQuestion(question);
+		addFillInTheBlanksQuestion(examId, questionNumber, text, points, answer, 
+								BlankMatcher.EXACT, null);
+	}
+
+	/**
+	 * Adds a fill-in-the-blanks question whose responses are matched with 
+	 * options: matchFlags combines BlankMatcher.IGNORE_CASE and 
+	 * BlankMatcher.FOLD_WHITESPACE, and alternatives[i] lists other accepted
+	 * spellings of answer[i]. The matcher is built once, here.
+	 * 
+	 * @param alternatives   null, or null entries, for no alternatives
+	 */
+	public void addFillInTheBlanksQuestion(int examId, int questionNumber, String text, 
+								double points, String[] answer, int matchFlags, 
+								String[][] alternatives) {
+		FillInTheBlanksQuestion question = 
+				new FillInTheBlanksQuestion(questionNumber, text, points, answer);
+		countQuestion(exams.get(examId).addQuestion(question, 
+				new BlankMatcher(points, answer, matchFlags, alternatives)));
+		examTotalsVersion.incrementAndGet();
 	}
 
 	/**
@@ -128,37 +184,7 @@ public class SystemManager implements Manager, Serializable {
 			return "Exam not found";
 		}
 
-		ArrayList<Question> questions = exam.getQuestions();
-		StringBuffer key = new StringBuffer();
-
-		for (Question question : questions) {
-			key.append("Question Text: ").append(question.getText());
-			key.append("\nPoints: ").append(question.getPoints());
-			key.append("\nCorrect Answer: ");
-
-			if (question instanceof TrueFalseQuestion) {
-				boolean ans = ((TrueFalseQuestion) question).getCorrectAnswer();
-				key.append(ans ? "True" : "False").append("\n");
-
-			} else {
-				String[] ans = null;
-
-				if (question instanceof MultipleChoiceQuestion) {
-					ans = ((MultipleChoiceQuestion) question).getCorrectAnswer();
-				} else if (question instanceof FillInTheBlanksQuestion) {
-					ans = ((FillInTheBlanksQuestion) question).getCorrectAnswer();
-				}
-
-				Arrays.sort(ans);
-
-				key.append("[");
-				for (int i = 0; i < ans.length - 1; i++) {
-					key.append(ans[i]).append(", ");
-				}
-				key.append(ans[ans.length - 1]).append("]\n");
-			}
-		}
-		return key.toString();
+		return exam.getKey();
 	}
 
 	/**
@@ -173,21 +199,16 @@ public class SystemManager implements Manager, Serializable {
 										int questionNumber, boolean answer) {
 
 		Student student = students.get(studentName);
-		Collection<Exam> examsTaken = student.getExamsTaken().values();
 		Exam currExam = exams.get(examId);
-
-		if (!examsTaken.contains(currExam)) {
-			student.addToExamsTaken(examId, currExam);
-		}
+		takeExam(student, currExam);
 
 		Question question = currExam.getQuestion(questionNumber);
 		TrueFalseQuestion TFQuestion = (TrueFalseQuestion) question;
 
-		if (TFQuestion.isCorrectAnswer(answer)) {
-			student.updateExamScore(currExam, question.getPoints());
-		}
+		double score = TFQuestion.isCorrectAnswer(answer) ? question.getPoints() : 0.0;
+		recordScore(student, currExam, questionNumber, score);
 
-		student.addResponse(examId, questionNumber, answer);
+		countResponse(student.addResponse(examId, questionNumber, answer));
 	}
 
 	/**
@@ -201,23 +222,16 @@ public class SystemManager implements Manager, Serializable {
 	public void answerMultipleChoiceQuestion(String studentName, int examId, 
 										int questionNumber, String[] answer) {
 		Student student = students.get(studentName);
-		Collection<Exam> examsTaken = student.getExamsTaken().values();
 		Exam currExam = exams.get(examId);
-
-		if (!examsTaken.contains(currExam)) {
-			student.addToExamsTaken(examId, currExam);
-		}
+		takeExam(student, currExam);
 
 		Question question = currExam.getQuestion(questionNumber);
 		MultipleChoiceQuestion MCQuestion = (MultipleChoiceQuestion) question;
 
-		if (MCQuestion.isCorrectAnswer(answer)) {
-			student.updateExamScore(currExam, question.getPoints());
-		} else {
-			student.updateExamScore(currExam, 0.0);
-		}
+		double score = currExam.isCorrectAnswer(MCQuestion, answer) ? question.getPoints() : 0.0;
+		recordScore(student, currExam, questionNumber, score);
 
-		student.addResponse(examId, questionNumber, answer);
+		countResponse(student.addResponse(examId, questionNumber, answer));
 	}
 
 	/**
@@ -232,24 +246,253 @@ public class SystemManager implements Manager, Serializable {
 										int questionNumber, String[] answer) {
 		Student student = students.get(studentName);
 		Exam currExam = exams.get(examId);
-		Collection<Exam> examsTaken = student.getExamsTaken().values();
 
-		if (!examsTaken.contains(currExam)) {
-			student.addToExamsTaken(examId, currExam);
+		if (takeExam(student, currExam)) {
 			student.getGradingReports().put(examId, new ArrayList<>());
 		}
 
 		Question question = currExam.getQuestion(questionNumber);
 		FillInTheBlanksQuestion FBQuestion = (FillInTheBlanksQuestion) question;
 
-		if (FBQuestion.isCorrectAnswer(answer)) {
-			student.updateExamScore(currExam, question.getPoints());
+		double score = currExam.computeQuestionScore(FBQuestion, answer);
+		recordScore(student, currExam, questionNumber, score);
+
+		countResponse(student.addResponse(examId, questionNumber, answer));
+	}
+
+	/**
+	 * Enter several of a student's responses for one exam to the database.
+	 * The student and exam are looked up once, all responses are checked
+	 * against their questions' types, and only then are they applied.
+	 * 
+	 * @param studentName
+	 * @param examId
+	 * @param answers maps question number to a Boolean or String[] response
+	 * @throws IllegalArgumentException if a response does not fit its question
+	 */
+	public void answerExamQuestions(String studentName, int examId,
+									Map<Integer, Object> answers) {
+		Student student = students.get(studentName);
+		Exam exam = exams.get(examId);
+
+		if (student == null) {
+			throw new IllegalArgumentException("Student not found: " + studentName);
+		}
+		checkAnswers(exam, examId, answers);
+		applyAnswers(student, exam, answers);
+	}
+
+	/**
+	 * Enter the responses of several students for one exam to the database.
+	 * Every student's responses are checked before any of them is applied.
+	 * 
+	 * @param examId
+	 * @param answersByStudent maps student name to that student's responses
+	 * @throws IllegalArgumentException if a student or response is invalid
+	 */
+	public void answerExamQuestions(int examId, 
+									Map<String, Map<Integer, Object>> answersByStudent) {
+		Exam exam = exams.get(examId);
+		Map<Student, Map<Integer, Object>> batch = new HashMap<>();
+
+		for (Map.Entry<String, Map<Integer, Object>> entry : answersByStudent.entrySet()) {
+			Student student = students.get(entry.getKey());
+			if (student == null) {
+				throw new IllegalArgumentException("Student not found: " + entry.getKey());
+			}
+			checkAnswers(exam, examId, entry.getValue());
+			batch.put(student, entry.getValue());
+		}
+
+		for (Map.Entry<Student, Map<Integer, Object>> entry : batch.entrySet()) {
+			applyAnswers(entry.getKey(), exam, entry.getValue());
+		}
+	}
+
+	// makes sure each response has the type its question expects
+	private void checkAnswers(Exam exam, int examId, Map<Integer, Object> answers) {
+		if (exam == null) {
+			throw new IllegalArgumentException("Exam not found: " + examId);
+		}
+
+		for (Map.Entry<Integer, Object> entry : answers.entrySet()) {
+			int questionNumber = entry.getKey();
+			Object answer = entry.getValue();
+
+			if (!exam.hasQuestion(questionNumber)) {
+				throw new IllegalArgumentException("Question not found: " + questionNumber);
+			}
+			if (!fitsQuestion(exam.getQuestion(questionNumber), answer)) {
+				throw new IllegalArgumentException("Wrong response type for question " 
+												+ questionNumber);
+			}
+		}
+	}
+
+	// a Boolean for a true or false question, a String[] for the others
+	private static boolean fitsQuestion(Question question, Object answer) {
+		boolean expectsBoolean = question instanceof TrueFalseQuestion;
+		return expectsBoolean ? answer instanceof Boolean : answer instanceof String[];
+	}
+
+	/**
+	 * Applies already checked responses for one student in a single pass:
+	 * the exam is registered once, each question's score is recorded as it
+	 * is graded, and the responses are stored with one update.
+	 */
+	protected void applyAnswers(Student student, Exam exam, Map<Integer, Object> answers) {
+		takeExam(student, exam);
+
+		for (Map.Entry<Integer, Object> entry : answers.entrySet()) {
+			int questionNumber = entry.getKey();
+			double score = gradeAnswer(exam, exam.getQuestion(questionNumber), entry.getValue());
+			recordScore(student, exam, questionNumber, score);
+		}
+
+		responseCount.add(student.addResponses(exam.getExamId(), answers));
+	}
+
+	/**
+	 * Registers the exam as taken by the student, and the student as one of
+	 * the exam's participants.
+	 * @return true if the student had not taken the exam before
+	 */
+	private static boolean takeExam(Student student, Exam exam) {
+		if (student.takeExam(exam)) {
+			exam.addParticipant(student);
+			return true;
+		}
+		return false;
+	}
+
+	// the score of an answer already checked against its question's type
+	private static double gradeAnswer(Exam exam, Question question, Object answer) {
+		if (question instanceof TrueFalseQuestion) {
+			boolean correct = ((TrueFalseQuestion) question).isCorrectAnswer((Boolean) answer);
+			return correct ? question.getPoints() : 0.0;
+		} else if (question instanceof MultipleChoiceQuestion) {
+			boolean correct = exam.isCorrectAnswer((MultipleChoiceQuestion) question, (String[]) answer);
+			return correct ? question.getPoints() : 0.0;
 		} else {
-			double score = FBQuestion.computeQuestionScore(answer);
-			student.updateExamScore(currExam, score);
+			return exam.computeQuestionScore((FillInTheBlanksQuestion) question, 
+											(String[]) answer);
+		}
+	}
+
+	/**
+	 * Records a question's score for the student. A resubmitted answer only
+	 * moves the exam total by the difference from its previous score.
+	 */
+	protected void recordScore(Student student, Exam exam, int questionNumber, double score) {
+		int examId = exam.getExamId();
+		boolean scoredBefore = student.hasExamScore(examId);
+		double oldScore = student.getExamScore(examId);
+		double delta = student.setQuestionScore(exam, questionNumber, score);
+
+		if (!scoredBefore) {
+			exam.getStatistics().addScore(oldScore + delta);
+		} else if (delta != 0.0) {
+			exam.getStatistics().updateScore(oldScore, oldScore + delta);
+		}
+	}
+
+	/**
+	 * Regrades the specified exam from the answers the students entered, 
+	 * e.g. after a question was overwritten to fix its answer key. Only the 
+	 * exam's participants are visited, in parallel with fork/join; each question score is 
+	 * recorded like a resubmitted answer, so the exam statistics, course 
+	 * grades and grading reports follow. An answer that no longer fits its 
+	 * question's type earns 0.0.
+	 * 
+	 * @param examId
+	 * @param questionNumbers the questions to regrade, all of them if none
+	 * @return the number of students whose exam score changed
+	 * @throws IllegalArgumentException if the exam or a question is not found
+	 */
+	public int regradeExam(int examId, int... questionNumbers) {
+		Exam exam = exams.get(examId);
+		if (exam == null) {
+			throw new IllegalArgumentException("Exam not found: " + examId);
+		}
+
+		if (questionNumbers.length == 0) {
+			List<Question> questions = exam.getQuestions();
+			questionNumbers = new int[questions.size()];
+			for (int i = 0; i < questionNumbers.length; i++) {
+				questionNumbers[i] = questions.get(i).getQuestionNumber();
+			}
+		}
+		for (int questionNumber : questionNumbers) {
+			if (!exam.hasQuestion(questionNumber)) {
+				throw new IllegalArgumentException("Question not found: " + questionNumber);
+			}
+		}
+
+		List<Student> roster = new ArrayList<>(exam.getParticipants());
+		return ForkJoinPool.commonPool().invoke(
+				new RegradeTask(exam, questionNumbers, roster, 0, roster.size()));
+	}
+
+	/**
+	 * Regrades the given questions for one of the exam's participants. 
+	 * Questions the student never answered are left without a score.
+	 * @return true if the student's exam score changed
+	 */
+	protected boolean regradeStudent(Student student, Exam exam, int[] questionNumbers) {
+		int examId = exam.getExamId();
+		if (!student.hasTakenExam(examId)) {
+			return false;
+		}
+		double oldScore = student.getExamScore(examId);
+		Map<Integer, Object> responses = student.getResponses(examId);
+
+		for (int questionNumber : questionNumbers) {
+			Object answer = responses.get(questionNumber);
+			if (answer != null) {
+				Question question = exam.getQuestion(questionNumber);
+				double score = fitsQuestion(question, answer) 
+						? gradeAnswer(exam, question, answer) : 0.0;
+				recordScore(student, exam, questionNumber, score);
+			}
+		}
+		return student.getExamScore(examId) != oldScore;
+	}
+
+	// regrades roster[from, to), splitting it while it is larger than a batch
+	private class RegradeTask extends RecursiveTask<Integer> {
+		private static final long serialVersionUID = 1L;
+
+		private Exam exam;
+		private int[] questionNumbers;
+		private List<Student> roster;
+		private int from;
+		private int to;
+
+		RegradeTask(Exam exam, int[] questionNumbers, List<Student> roster, int from, int to) {
+			this.exam = exam;
+			this.questionNumbers = questionNumbers;
+			this.roster = roster;
+			this.from = from;
+			this.to = to;
 		}
 
-		student.addResponse(examId, questionNumber, answer);
+		protected Integer compute() {
+			if (to - from > REGRADE_BATCH) {
+				int middle = (from + to) >>> 1;
+				RegradeTask left = new RegradeTask(exam, questionNumbers, roster, from, middle);
+				left.fork();
+				int right = new RegradeTask(exam, questionNumbers, roster, middle, to).compute();
+				return left.join() + right;
+			}
+
+			int changed = 0;
+			for (int i = from; i < to; i++) {
+				if (regradeStudent(roster.get(i), exam, questionNumbers)) {
+					changed++;
+				}
+			}
+			return changed;
+		}
 	}
 
 	/**
@@ -302,9 +545,23 @@ public class SystemManager implements Manager, Serializable {
 	 * into consideration all the exams. All exams have the same weight.
 	 * 
 	 * Formula: (exam1score/exam1totalscore + ...) / totalNumberOfExams
+	 * 
+	 * The grade is cached in the Student and only recomputed after one of
+	 * the student's exam scores, or some exam's point total, has changed.
 	 */
 	public double getCourseNumericGrade(String studentName) {
-		Student student = students.get(studentName);
+		return getCourseNumericGrade(students.get(studentName));
+	}
+
+	// computes (or reads the cached) course grade of a student already looked up
+	protected double getCourseNumericGrade(Student student) {
+		long version = examTotalsVersion.get();
+		Double cachedGrade = student.getCachedCourseGrade(version);
+
+		if (cachedGrade != null) {
+			return cachedGrade;
+		}
+
 		Map<Integer, Double> studentScores = student.getStudentExamScores();
 		Set<Integer> examIds = studentScores.keySet();
 		double totalAdjustedScore = 0.0;
@@ -325,6 +582,7 @@ public class SystemManager implements Manager, Serializable {
 			numericGrade = totalAdjustedScore / studentScores.size();
 		}
 
+		student.cacheCourseGrade(numericGrade, version);
 		return numericGrade;
 	}
 
@@ -333,8 +591,17 @@ public class SystemManager implements Manager, Serializable {
 	 * cutoffs have been set before the method is called.
 	 */
 	public String getCourseLetterGrade(String studentName) {
+		return getLetterGrade(getCourseNumericGrade(studentName));
+	}
+
+	// maps a grade between 0 and 100 to a letter using the cutoffs
+	private String getLetterGrade(double numericGrade) {
+		return getLetterGrade(numericGrade, letterGrades, cutoffs);
+	}
+
+	private static String getLetterGrade(double numericGrade, String[] letterGrades,
+										 double[] cutoffs) {
 		String letterGrade = "F";
-		double numericGrade = getCourseNumericGrade(studentName);
 
 		for (int i = 0; i < cutoffs.length; i++) {
 			if (numericGrade >= cutoffs[i]) {
@@ -355,19 +622,68 @@ public class SystemManager implements Manager, Serializable {
 	 * @return grades
 	 */
 	public String getCourseGrades() {
-		StringBuffer sb = new StringBuffer();
-		Collection<Student> allStudents = students.values();
-		Student[] studentsArray = allStudents.toArray(new Student[] {});
-		Arrays.sort(studentsArray); 
+		StringWriter grades = new StringWriter();
 
-		for (Student student : studentsArray) {
-			String name = student.getName();
-			sb.append(name).append(" ");
-			sb.append(getCourseNumericGrade(name)).append(" ");
-			sb.append(getCourseLetterGrade(name)).append("\n");
+		try {
+			writeCourseGrades(grades);
+		} catch (IOException e) {
+			e.printStackTrace();  // not thrown by a StringWriter
+		}
+
+		return grades.toString();
+	}
+
+	/**
+	 * Writes the same listing as getCourseGrades to out, one student at a
+	 * time, so the full report is never held in memory. Students are read
+	 * from the name-sorted index kept by addStudent, so nothing is sorted
+	 * here. Wrap out in a BufferedWriter when it is a file or socket.
+	 * 
+	 * @param out
+	 * @throws IOException if out fails
+	 */
+	public void writeCourseGrades(Writer out) throws IOException {
+		writeCourseGrades(out, letterGrades, cutoffs);
+	}
+
+	// the listing, with letters from the given letter grades and cutoffs
+	protected void writeCourseGrades(Writer out, String[] letterGrades, double[] cutoffs)
+			throws IOException {
+		for (Student student : studentIndex.values()) {
+			double numericGrade = getCourseNumericGrade(student);
+			out.write(student.getName());
+			out.write(" ");
+			out.write(Double.toString(numericGrade));
+			out.write(" ");
+			out.write(getLetterGrade(numericGrade, letterGrades, cutoffs));
+			out.write("\n");
 		}
+		out.flush();
+	}
 
-		return sb.toString();
+	/**
+	 * Returns up to limit lines of getCourseGrades, in name order, without
+	 * "\n", for the students after afterName, or from the first if it is
+	 * null. The name index is entered at afterName, so each page costs the
+	 * lines on it, not those before.
+	 */
+	public List<String> getCourseGradeLines(String afterName, int limit) {
+		Collection<Student> students = afterName == null ? studentIndex.values()
+				: studentIndex.tailMap(afterName, false).values();
+		List<String> lines = new ArrayList<>();
+		for (Student student : students) {
+			if (lines.size() >= limit) {
+				break;
+			}
+			lines.add(courseGradeLine(student));
+		}
+		return lines;
+	}
+
+	// {studentName} {courseNumericGrade} {courseLetterGrade}
+	protected String courseGradeLine(Student student) {
+		double numericGrade = getCourseNumericGrade(student);
+		return student.getName() + " " + numericGrade + " " + getLetterGrade(numericGrade);
 	}
 
 	
@@ -375,64 +691,302 @@ public class SystemManager implements Manager, Serializable {
 	
 	/**
 	 * Returns the maximum score (among all students) for the specified exam.
+	 * Served from the exam's running statistics, without walking the roster.
 	 *
 	 * @param examId
 	 * @return maxScore
 	 */
 	public double getMaxScore(int examId) {
-		double maxScore = 0.0, currScore = 0.0;
-		
-		for(Student student : students.values()) {
-			currScore = student.getExamScore(examId);
-			if (currScore > maxScore) {
-				maxScore = currScore;
-			}
-		}
-
-		return maxScore;		
+		return statisticsOf(examId).getMaxScore();
 	}
 
 	/**
 	 * Returns the minimum score (among all students) for the specified exam.
+	 * Served from the exam's running statistics, without walking the roster.
 	 *
 	 * @param examId
 	 * @return minScore
 	 */
 	public double getMinScore(int examId) {
-		double minScore = 1000.0, currScore = 0.0;
-		
-		for(Student student : students.values()) {
-			currScore = student.getExamScore(examId);
-			if (currScore < minScore) {
-				minScore = currScore;
-			}
-		}
+		return getMinScore(examId, false);
+	}
 
-		return minScore;	
+	/**
+	 * Returns the minimum score for the specified exam, among its 
+	 * participants only if participantsOnly is true, so students who never 
+	 * took the exam do not count as 0.0.
+	 *
+	 * @param examId
+	 * @param participantsOnly
+	 * @return minScore
+	 */
+	public double getMinScore(int examId, boolean participantsOnly) {
+		ExamStatistics statistics = statisticsOf(examId);
+		return statistics.getMinScore(rosterSize(statistics, participantsOnly));
 	}
 
 	/**
 	 * Returns the average score (among all students) for the specified exam.
+	 * Served from the exam's running statistics, without walking the roster.
 	 *
 	 * @param examId
 	 * @return average
 	 */
 	public double getAverageScore(int examId) {
-		double average = 0.0, currScore = 0.0;
-		double sumScores = 0.0;
+		return getAverageScore(examId, false);
+	}
+
+	/**
+	 * Returns the average score for the specified exam, among its 
+	 * participants only if participantsOnly is true. NaN if nobody is 
+	 * counted.
+	 *
+	 * @param examId
+	 * @param participantsOnly
+	 * @return average
+	 */
+	public double getAverageScore(int examId, boolean participantsOnly) {
+		ExamStatistics statistics = statisticsOf(examId);
+		return statistics.getAverageScore(rosterSize(statistics, participantsOnly));
+	}
+
+	/**
+	 * Returns the median score (among all students) for the specified exam.
+	 *
+	 * @param examId
+	 * @return median
+	 */
+	public double getMedianScore(int examId) {
+		return getScorePercentile(examId, 50);
+	}
+
+	/**
+	 * Returns the score at the given percentile (nearest rank) among all 
+	 * students for the specified exam.
+	 *
+	 * @param examId
+	 * @param percentile between 0 and 100
+	 * @return score at the percentile
+	 */
+	public double getScorePercentile(int examId, double percentile) {
+		return getScorePercentile(examId, percentile, false);
+	}
+
+	/**
+	 * Returns the score at the given percentile (nearest rank) for the 
+	 * specified exam, among its participants only if participantsOnly is 
+	 * true.
+	 *
+	 * @param examId
+	 * @param percentile between 0 and 100
+	 * @param participantsOnly
+	 * @return score at the percentile
+	 */
+	public double getScorePercentile(int examId, double percentile, boolean participantsOnly) {
+		ExamStatistics statistics = statisticsOf(examId);
+		return statistics.getPercentile(percentile, rosterSize(statistics, participantsOnly));
+	}
+
+	/**
+	 * Returns the names of the students who took the specified exam, in 
+	 * sorted order, read from the exam's participants without walking the 
+	 * roster.
+	 *
+	 * @param examId
+	 * @return names, empty if the exam is not found
+	 */
+	public List<String> getExamParticipants(int examId) {
+		List<String> names = new ArrayList<>();
+		Exam exam = exams.get(examId);
+
+		if (exam != null) {
+			for (Student student : exam.getParticipants()) {
+				names.add(student.getName());
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Returns the distribution of scores for the specified exam, mapping each
+	 * non-empty bucket's lower bound to its number of students.
+	 *
+	 * @param examId
+	 * @param bucketWidth
+	 * @return histogram
+	 */
+	public Map<Double, Long> getScoreHistogram(int examId, double bucketWidth) {
+		return statisticsOf(examId).getHistogram(bucketWidth, students.size());
+	}
+
+	/**
+	 * Returns the number of students per letter grade on the specified exam,
+	 * applying the cutoffs to the score as a percentage of the exam's points.
+	 * Letters appear in the order of the cutoffs.
+	 *
+	 * @param examId
+	 * @return count per letter grade
+	 */
+	public Map<String, Long> getGradeBandCounts(int examId) {
+		Exam exam = exams.get(examId);
+		double examTotalScore = exam == null ? 0.0 : exam.getExamTotalScores();
+		Map<String, Long> bands = new LinkedHashMap<>();
+
+		for (String letterGrade : letterGrades) {
+			bands.put(letterGrade, 0L);
+		}
+
+		statisticsOf(examId).walkScoreCounts(students.size(), (score, scoreCount) -> {
+			double percentage = 0.0;
+			if (examTotalScore != 0.0) {
+				percentage = 100 * score / examTotalScore;
+			}
+			bands.merge(getLetterGrade(percentage), scoreCount, Long::sum);
+			return true;
+		});
+
+		return bands;
+	}
+
+	public int getStudentCount() {
+		return students.size();
+	}
+
+	public ExamStatistics getPartialStatistics(int examId) {
+		return statisticsOf(examId).copy();
+	}
+
+	// an unknown exam has no scores, like an exam nobody has taken yet
+	private ExamStatistics statisticsOf(int examId) {
+		Exam exam = exams.get(examId);
+		return exam == null ? new ExamStatistics() : exam.getStatistics();
+	}
 
-		for(Student student : students.values()) {
-			currScore = student.getExamScore(examId);
-			sumScores += currScore;
+	// the whole roster, or only the students with a score on the exam
+	private int rosterSize(ExamStatistics statistics, boolean participantsOnly) {
+		return participantsOnly ? (int) statistics.getCount() : students.size();
+	}
+
+	/**
+	 * Recomputes every exam's statistics and participants from the 
+	 * students' exams taken and exam scores.
+	 */
+	protected void rebuildStatistics() {
+		for (Exam exam : exams.values()) {
+			exam.resetStatistics();
+			exam.clearParticipants();
 		}
-		average = sumScores / students.size();
 
-		return average;
+		for (Student student : students.values()) {
+			synchronized (student) {
+				for (Exam exam : student.getExamsTaken().values()) {
+					exams.get(exam.getExamId()).addParticipant(student);
+				}
+				for (Map.Entry<Integer, Double> entry : student.getStudentExamScores().entrySet()) {
+					exams.get(entry.getKey()).getStatistics().addScore(entry.getValue());
+				}
+			}
+		}
 	}
 	
 
 //---------------------------- Serialization: ------------------------------
 
+	// ---- direct access for ManagerSnapshot and other classes in this package ----
+
+	Exam getExam(int examId) {
+		return exams.get(examId);
+	}
+
+	Student getStudent(String studentName) {
+		return students.get(studentName);
+	}
+
+	Collection<Exam> getExams() {
+		return exams.values();
+	}
+
+	// students in name order
+	Collection<Student> getStudents() {
+		return studentIndex.values();
+	}
+
+	NavigableMap<String, Student> getStudentIndex() {
+		return studentIndex;
+	}
+
+	String[] getLetterGrades() {
+		return letterGrades;
+	}
+
+	double[] getCutoffs() {
+		return cutoffs;
+	}
+
+	// the number of questions in all exams, see ManagerMetrics
+	long getQuestionCount() {
+		return questionCount.sum();
+	}
+
+	// the number of responses the students hold, counting a lazily restored
+	// student's only once it is loaded; see ManagerMetrics
+	long getResponseCount() {
+		return responseCount.sum();
+	}
+
+	private void countQuestion(boolean added) {
+		if (added) {
+			questionCount.increment();
+		}
+	}
+
+	private void countResponse(boolean added) {
+		if (added) {
+			responseCount.increment();
+		}
+	}
+
+	// counts responses restored from a snapshot, see ManagerSnapshot
+	void countRestoredResponses(int count) {
+		responseCount.add(count);
+	}
+
+	// adds a student restored from a snapshot, possibly not yet loaded
+	void addRestoredStudent(Student student) {
+		students.put(student.getName(), student);
+		studentIndex.put(student.getName(), student);
+	}
+
+	// an empty manager of the same kind, for restoring a snapshot into
+	protected SystemManager newManager() {
+		return new SystemManager();
+	}
+
+	// an empty name index of the kind this manager keeps, see readObject
+	protected NavigableMap<String, Student> newStudentIndex() {
+		return new TreeMap<>();
+	}
+
+	// exam statistics are not serialized, they are rebuilt from the students;
+	// so is the name index, for managers saved before it existed
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (studentIndex == null) {
+			studentIndex = newStudentIndex();
+			studentIndex.putAll(students);
+		}
+		examTotalsVersion = new AtomicLong();
+		questionCount = new LongAdder();
+		responseCount = new LongAdder();
+		for (Exam exam : exams.values()) {
+			questionCount.add(exam.getQuestionCount());
+		}
+		for (Student student : students.values()) {
+			responseCount.add(student.getResponseCount());
+		}
+		rebuildStatistics();
+	}
+
 	/**
 	 * It will serialize the Manager object and store it in the specified file.
 	 */
@@ -480,4 +1034,48 @@ public class SystemManager implements Manager, Serializable {
 		
 		return (Manager) manager;
 	}
+
+	/**
+	 * It will store the Manager object in the specified file using the
+	 * compact binary snapshot format of ManagerSnapshot.
+	 */
+	public void saveManagerSnapshot(Manager manager, String fileName) {
+		try {
+			ManagerSnapshot.write((SystemManager) manager, fileName);
+
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * It will return a Manager object based on the binary snapshot found
+	 * in the specified file.
+	 */
+	public Manager restoreManagerSnapshot(String fileName) {
+		return restoreManagerSnapshot(fileName, false);
+	}
+
+	/**
+	 * It will return a Manager object based on the binary snapshot found
+	 * in the specified file. If lazy is true, students are read from the
+	 * memory-mapped file the first time they are used.
+	 */
+	public Manager restoreManagerSnapshot(String fileName, boolean lazy) {
+		SystemManager manager = newManager();
+
+		try {
+			if (lazy) {
+				ManagerSnapshot.map(fileName, manager);
+			} else {
+				ManagerSnapshot.read(fileName, manager);
+			}
+
+		} catch (IOException e) {
+			e.printStackTrace();
+			manager = null;
+		}
+
+		return manager;
+	}
 }
@@ -0,0 +1,89 @@
+package onlineTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Micro-benchmark for scoring fill-in-the-blanks responses: the question's
+ * own computeQuestionScore against the precompiled BlankMatcher used by
+ * Exam, on the same random responses. Each operation scores one response.
+ *
+ * Run with: gradle jmh -Pjmh=BlankMatcherBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlankMatcherBenchmark {
+
+	private static final String[] WORDS = {"red", "green", "blue", "cyan", "magenta", "yellow"};
+
+	@Param("4096")
+	private int responseCount;
+
+	private Exam exam;
+	private FillInTheBlanksQuestion question;
+	private String[][] responses;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		exam = new Exam(1, "Bench");
+		question = new FillInTheBlanksQuestion(1, "Name four colors", 4,
+				new String[] {"red", "green", "blue", "cyan"});
+		exam.addQuestion(question);
+
+		// fresh strings, as if parsed from requests; no word twice in one
+		// response, where the two scorers agree
+		responses = new String[responseCount][];
+		List<String> words = new ArrayList<>(Arrays.asList(WORDS));
+		for (int i = 0; i < responseCount; i++) {
+			Collections.shuffle(words, random);
+			responses[i] = new String[1 + random.nextInt(4)];
+			for (int j = 0; j < responses[i].length; j++) {
+				responses[i][j] = new String(words.get(j));
+			}
+		}
+
+		for (String[] response : responses) {
+			if (question.computeQuestionScore(response) != exam.computeQuestionScore(question, response)) {
+				throw new IllegalStateException("scorers disagree");
+			}
+		}
+	}
+
+	@Benchmark
+	public double computeQuestionScore() {
+		return question.computeQuestionScore(nextResponse());
+	}
+
+	@Benchmark
+	public double blankMatcher() {
+		return exam.computeQuestionScore(question, nextResponse());
+	}
+
+	private String[] nextResponse() {
+		String[] response = responses[next];
+		next = next + 1 == responses.length ? 0 : next + 1;
+		return response;
+	}
+}
@@ -0,0 +1,129 @@
+package onlineTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency of answer submissions while checkpoints are taken,
+ * with three setups: no checkpoints, blocking checkpoints that hold an
+ * exclusive lock while the snapshot is written (as JournaledManager does),
+ * and background checkpoints taken by CheckpointScheduler. JMH's sample
+ * mode reports the latency percentiles; the number of checkpoints taken is
+ * printed when a trial ends.
+ *
+ * Run with: gradle jmh -Pjmh='CheckpointBenchmark -p period=100'
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class CheckpointBenchmark {
+
+	private static final int EXAMS = 5;
+	private static final int QUESTIONS = 20;
+
+	@Param({"none", "blocking", "background"})
+	private String checkpoints;
+
+	@Param("20000")
+	private int students;
+
+	// milliseconds between checkpoints
+	@Param("100")
+	private int period;
+
+	private ConcurrentSystemManager manager;
+	private ReadWriteLock lock = new ReentrantReadWriteLock();
+	private File snapshot;
+	private CheckpointScheduler scheduler;
+	private Thread blocking;
+	private AtomicLong blockingCount = new AtomicLong();
+
+	@Setup
+	public void setUp() throws IOException {
+		SyntheticCourse course = new SyntheticCourse(students, EXAMS, QUESTIONS);
+		manager = new ConcurrentSystemManager();
+		course.populate(manager);
+		course.answerAll(manager);
+		snapshot = File.createTempFile("checkpoint", ".snap");
+
+		if (checkpoints.equals("background")) {
+			scheduler = new CheckpointScheduler(manager, snapshot.getPath(), period,
+					TimeUnit.MILLISECONDS);
+		} else if (checkpoints.equals("blocking")) {
+			blocking = new Thread(this::checkpointBlocking);
+			blocking.start();
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws InterruptedException {
+		long taken = blockingCount.get();
+		if (scheduler != null) {
+			scheduler.close();
+			taken = scheduler.getCheckpointCount();
+		}
+		if (blocking != null) {
+			blocking.interrupt();
+			blocking.join();
+			taken = blockingCount.get();
+		}
+		System.out.printf("%ncheckpoints taken: %d%n", taken);
+		snapshot.delete();
+	}
+
+	// one answer to a random question of a random student
+	@Benchmark
+	public void answer() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		String name = SyntheticCourse.studentName(random.nextInt(students));
+		int exam = 1 + random.nextInt(EXAMS);
+		int question = 1 + random.nextInt(QUESTIONS);
+
+		lock.readLock().lock();
+		try {
+			SyntheticCourse.answer(manager, random, name, exam, question);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void checkpointBlocking() {
+		while (!Thread.currentThread().isInterrupted()) {
+			lock.writeLock().lock();
+			try {
+				manager.saveManagerSnapshot(manager, snapshot.getPath());
+				blockingCount.incrementAndGet();
+			} finally {
+				lock.writeLock().unlock();
+			}
+			try {
+				Thread.sleep(period);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package onlineTest;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Micro-benchmark for grading multiple choice responses: the question's own
+ * isCorrectAnswer against the bitmask ChoiceGrader used by Exam, on the same
+ * random responses. Each operation grades one response.
+ *
+ * Run with: gradle jmh -Pjmh=ChoiceGradingBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChoiceGradingBenchmark {
+
+	private static final String[] OPTIONS = {"A", "B", "C", "D", "E"};
+
+	@Param("4096")
+	private int responseCount;
+
+	private Exam exam;
+	private MultipleChoiceQuestion question;
+	private String[][] responses;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		exam = new Exam(1, "Bench");
+		question = new MultipleChoiceQuestion(1, "Pick two", 3, new String[] {"B", "D"});
+		exam.addQuestion(question);
+
+		// fresh strings, as if parsed from requests
+		responses = new String[responseCount][];
+		for (int i = 0; i < responseCount; i++) {
+			responses[i] = new String[1 + random.nextInt(3)];
+			for (int j = 0; j < responses[i].length; j++) {
+				responses[i][j] = new String(OPTIONS[random.nextInt(OPTIONS.length)]);
+			}
+		}
+
+		for (String[] response : responses) {
+			if (question.isCorrectAnswer(response) != exam.isCorrectAnswer(question, response)) {
+				throw new IllegalStateException("graders disagree");
+			}
+		}
+	}
+
+	@Benchmark
+	public boolean isCorrectAnswer() {
+		return question.isCorrectAnswer(nextResponse());
+	}
+
+	@Benchmark
+	public boolean bitmask() {
+		return exam.isCorrectAnswer(question, nextResponse());
+	}
+
+	private String[] nextResponse() {
+		String[] response = responses[next];
+		next = next + 1 == responses.length ? 0 : next + 1;
+		return response;
+	}
+}
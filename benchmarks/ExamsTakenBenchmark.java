@@ -0,0 +1,67 @@
+package onlineTest;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Micro-benchmark for the "has this student taken the exam" check made on
+ * every answer. It compares the old scan over the values of examsTaken with
+ * the keyed lookup now used by Student.takeExam, as the number of exams per
+ * student grows. Each operation checks one exam the student has taken.
+ *
+ * Run with: gradle jmh -Pjmh=ExamsTakenBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExamsTakenBenchmark {
+
+	@Param({"1", "10", "100", "1000", "5000"})
+	private int examCount;
+
+	private Student student;
+	private Exam[] exams;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		student = new Student("Student,Bench");
+		exams = new Exam[examCount];
+		for (int i = 0; i < examCount; i++) {
+			exams[i] = new Exam(i, "Exam " + i);
+			student.takeExam(exams[i]);
+		}
+	}
+
+	// the check answerXxxQuestion used to make
+	@Benchmark
+	public boolean scan() {
+		return student.getExamsTaken().values().contains(nextExam());
+	}
+
+	// the check answerXxxQuestion makes now
+	@Benchmark
+	public boolean keyed() {
+		return !student.takeExam(nextExam());
+	}
+
+	private Exam nextExam() {
+		Exam exam = exams[next];
+		next = next + 1 == exams.length ? 0 : next + 1;
+		return exam;
+	}
+}
@@ -0,0 +1,102 @@
+package onlineTest;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures serving grading reports after an exam closes. Each operation is
+ * one pass in which every student asks for each exam's report:
+ *
+ *   rendered  the first pass, on a course rebuilt before each iteration,
+ *             so every report is rendered and cached
+ *   cached    a later pass, so every report is served from the cache
+ *
+ * Divide by students x exams for the time per report.
+ *
+ * Run with: gradle jmh -Pjmh=GradingReportBenchmark
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class GradingReportBenchmark {
+
+	@Param("2000")
+	private int students;
+
+	@Param("5")
+	private int exams;
+
+	@Param("20")
+	private int questions;
+
+	/** A course none of whose reports were rendered yet. */
+	@State(Scope.Benchmark)
+	public static class Fresh {
+		private Manager manager;
+
+		@Setup(Level.Iteration)
+		public void setUp(GradingReportBenchmark benchmark) {
+			manager = benchmark.course();
+		}
+	}
+
+	/** A course all of whose reports were rendered once. */
+	@State(Scope.Benchmark)
+	public static class Rendered {
+		private Manager manager;
+
+		@Setup
+		public void setUp(GradingReportBenchmark benchmark) {
+			manager = benchmark.course();
+			benchmark.requestAll(manager);
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 3)
+	@Measurement(iterations = 10)
+	public long rendered(Fresh fresh) {
+		return requestAll(fresh.manager);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@Warmup(iterations = 3, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	public long cached(Rendered rendered) {
+		return requestAll(rendered.manager);
+	}
+
+	private Manager course() {
+		SyntheticCourse course = new SyntheticCourse(students, exams, questions);
+		SystemManager manager = new SystemManager();
+		course.populate(manager);
+		course.answerAll(manager);
+		return manager;
+	}
+
+	// every student's report for every exam; returns their total length
+	private long requestAll(Manager manager) {
+		long length = 0;
+		for (int student = 0; student < students; student++) {
+			String name = SyntheticCourse.studentName(student);
+			for (int exam = 1; exam <= exams; exam++) {
+				length += manager.getGradingReport(name, exam).length();
+			}
+		}
+		return length;
+	}
+}
@@ -0,0 +1,70 @@
+package onlineTest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Micro-benchmark for the cost of instrumentation: getExamScore and
+ * answerTrueFalseQuestion on a plain SystemManager against the same calls
+ * through an InstrumentedManager, on the same synthetic course.
+ *
+ * Run with: gradle jmh -Pjmh=InstrumentationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstrumentationBenchmark {
+
+	private static final int STUDENTS = 1000;
+	private static final int EXAMS = 5;
+	private static final int QUESTIONS = 20;
+
+	@Param({"false", "true"})
+	private boolean instrumented;
+
+	private Manager target;
+	private String[] names;
+
+	@Setup
+	public void setUp() {
+		SyntheticCourse course = new SyntheticCourse(STUDENTS, EXAMS, QUESTIONS);
+		SystemManager manager = new SystemManager();
+		course.populate(manager);
+		course.answerAll(manager);
+		target = InstrumentedManager.instrument(manager, instrumented);
+
+		names = new String[STUDENTS];
+		for (int i = 0; i < STUDENTS; i++) {
+			names[i] = SyntheticCourse.studentName(i);
+		}
+	}
+
+	@Benchmark
+	public double getExamScore() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return target.getExamScore(names[random.nextInt(STUDENTS)], 1 + random.nextInt(EXAMS));
+	}
+
+	@Benchmark
+	public void answerTrueFalseQuestion() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		// true/false questions are the multiples of 3, see SyntheticCourse
+		target.answerTrueFalseQuestion(names[random.nextInt(STUDENTS)], 1 + random.nextInt(EXAMS),
+				3 + 3 * random.nextInt(QUESTIONS / 3), random.nextBoolean());
+	}
+}
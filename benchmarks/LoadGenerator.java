@@ -0,0 +1,235 @@
+package onlineTest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the peak submission throughput and tail latency of a
+ * ManagerServer on one machine. A number of clients, each with its own
+ * connection, submit answers from random students of a synthetic course
+ * as fast as the server answers them, one request in flight per client.
+ * A client answered BUSY waits backoff milliseconds before its next
+ * request. Latencies are those of accepted requests, measured at the
+ * client, after a warmup period.
+ *
+ * Without a port, the server is started in this process, serving a
+ * ConcurrentSystemManager with the course already added. With one, the
+ * course is added over the connection first, so the server should be new.
+ *
+ * Options, given as name=value:
+ *   port                        a running server on this machine (none)
+ *   students, exams, questions  size of the course (2000, 5, 20)
+ *   clients                     connections submitting at once (64)
+ *   active, queued              admission limits of the started server
+ *                               (processors, 32)
+ *   backoff                     milliseconds to wait after BUSY (1)
+ *   warmup, time                milliseconds of warmup and measurement
+ *                               (2000, 5000)
+ *
+ * Run with: gradle runTool -Ptool=LoadGenerator -Pargs='[name=value]...'
+ */
+public class LoadGenerator {
+
+	private static final String[] OPTIONS = {"A", "B", "C", "D", "E"};
+	private static final String[] BLANKS = {"red", "green", "blue", "cyan", "magenta"};
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new HashMap<>();
+		for (String arg : args) {
+			String[] option = arg.split("=", 2);
+			options.put(option[0], option.length > 1 ? option[1] : "");
+		}
+
+		int students = Integer.parseInt(options.getOrDefault("students", "2000"));
+		int exams = Integer.parseInt(options.getOrDefault("exams", "5"));
+		int questions = Integer.parseInt(options.getOrDefault("questions", "20"));
+		int clients = Integer.parseInt(options.getOrDefault("clients", "64"));
+		int active = Integer.parseInt(options.getOrDefault("active",
+				String.valueOf(Runtime.getRuntime().availableProcessors())));
+		int queued = Integer.parseInt(options.getOrDefault("queued", "32"));
+		long backoff = Long.parseLong(options.getOrDefault("backoff", "1"));
+		long warmup = Long.parseLong(options.getOrDefault("warmup", "2000"));
+		long time = Long.parseLong(options.getOrDefault("time", "5000"));
+
+		SyntheticCourse course = new SyntheticCourse(students, exams, questions);
+		ManagerServer server = null;
+		int port;
+		if (options.containsKey("port")) {
+			port = Integer.parseInt(options.get("port"));
+			populate(course, port);
+		} else {
+			ConcurrentSystemManager manager = new ConcurrentSystemManager();
+			course.populate(manager);
+			server = new ManagerServer(manager, 0, active, queued);
+			server.start();
+			port = server.getPort();
+		}
+
+		OperationMetrics latencies = new OperationMetrics("submission");
+		LongAdder busy = new LongAdder();
+		LongAdder errors = new LongAdder();
+		ExecutorService executor = ManagerServer.newThreadPerTaskExecutor("load-client");
+		long start = System.nanoTime();
+		long measureStart = start + warmup * 1_000_000;
+		long deadline = measureStart + time * 1_000_000;
+
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < clients; i++) {
+			futures.add(executor.submit(() -> {
+				submit(course, port, backoff, deadline, latencies, busy, errors);
+				return null;
+			}));
+		}
+		while (System.nanoTime() < measureStart) {
+			Thread.sleep(10);
+		}
+		latencies.reset();
+		busy.reset();
+		errors.reset();
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		if (server != null) {
+			server.close();
+		}
+
+		double seconds = time / 1000.0;
+		System.out.printf("%d clients, %d students, %d exams, %d questions per exam%n", clients,
+				students, exams, questions);
+		if (server != null) {
+			System.out.printf("server admits %d active and %d queued requests%n", active, queued);
+		}
+		System.out.printf("%-12s %12s %10s %10s %10s %10s %10s%n", "accepted/s", "busy/s",
+				"errors", "mean us", "p50 us", "p99 us", "max us");
+		System.out.printf("%-12.1f %12.1f %10d %10.1f %10.1f %10.1f %10.1f%n",
+				latencies.getCalls() / seconds, busy.sum() / seconds, errors.sum(),
+				latencies.getMeanNanos() / 1000, latencies.getPercentileNanos(50) / 1000.0,
+				latencies.getPercentileNanos(99) / 1000.0, latencies.getMaxNanos() / 1000.0);
+	}
+
+	// one client: submits until the deadline
+	private static void submit(SyntheticCourse course, int port, long backoff, long deadline,
+							   OperationMetrics latencies, LongAdder busy, LongAdder errors)
+			throws IOException, InterruptedException {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+
+		try (Connection connection = new Connection(port)) {
+			while (System.nanoTime() < deadline) {
+				String request = answerRequest(course, random);
+				long start = System.nanoTime();
+				String response = connection.send(request);
+				long nanos = System.nanoTime() - start;
+
+				if (response.equals("BUSY")) {
+					busy.increment();
+					Thread.sleep(backoff);
+				} else if (response.startsWith("OK")) {
+					latencies.record(nanos, false);
+				} else {
+					errors.increment();
+				}
+			}
+		}
+	}
+
+	// one random answer from a random student, like SyntheticCourse.answer
+	private static String answerRequest(SyntheticCourse course, ThreadLocalRandom random) {
+		String name = SyntheticCourse.studentName(random.nextInt(course.getStudentCount()));
+		int exam = 1 + random.nextInt(course.getExamCount());
+		int question = 1 + random.nextInt(course.getQuestionsPerExam());
+		String prefix = name + "\t" + exam + "\t" + question + "\t";
+
+		switch (course.typeOf(question)) {
+		case 0:
+			return "ANSWER_TRUE_FALSE\t" + prefix + (random.nextInt(3) > 0);
+		case 1:
+			return "ANSWER_MULTIPLE_CHOICE\t" + prefix + OPTIONS[random.nextInt(5)] + "\t"
+					+ OPTIONS[(question + 2) % 5];
+		default:
+			return "ANSWER_FILL_IN_THE_BLANKS\t" + prefix + BLANKS[question % 5] + "\t"
+					+ BLANKS[random.nextInt(5)];
+		}
+	}
+
+	// adds the course to a running server, as SyntheticCourse.populate would
+	private static void populate(SyntheticCourse course, int port) throws IOException {
+		try (Connection connection = new Connection(port)) {
+			for (int exam = 1; exam <= course.getExamCount(); exam++) {
+				connection.expectOk("ADD_EXAM\t" + exam + "\tExam " + exam);
+				for (int question = 1; question <= course.getQuestionsPerExam(); question++) {
+					String prefix = exam + "\t" + question + "\tQuestion " + question + "\t";
+					switch (course.typeOf(question)) {
+					case 0:
+						connection.expectOk("ADD_TRUE_FALSE\t" + prefix + "2\t" + (question % 2 == 0));
+						break;
+					case 1:
+						connection.expectOk("ADD_MULTIPLE_CHOICE\t" + prefix + "3\t"
+								+ OPTIONS[question % 5] + "\t" + OPTIONS[(question + 2) % 5]);
+						break;
+					default:
+						connection.expectOk("ADD_FILL_IN_THE_BLANKS\t" + prefix + "4\t"
+								+ BLANKS[question % 5] + "\t" + BLANKS[(question + 1) % 5]);
+					}
+				}
+			}
+			for (int student = 0; student < course.getStudentCount(); student++) {
+				connection.expectOk("ADD_STUDENT\t" + SyntheticCourse.studentName(student));
+			}
+		}
+	}
+
+	private static class Connection implements AutoCloseable {
+		private Socket socket;
+		private BufferedReader in;
+		private Writer out;
+
+		Connection(int port) throws IOException {
+			socket = new Socket(InetAddress.getLoopbackAddress(), port);
+			socket.setTcpNoDelay(true);
+			in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+					StandardCharsets.UTF_8));
+			out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+		}
+
+		String send(String request) throws IOException {
+			out.write(request);
+			out.write('\n');
+			out.flush();
+			String response = in.readLine();
+			if (response == null) {
+				throw new IOException("Server closed the connection");
+			}
+			return response;
+		}
+
+		// retries while the server is busy
+		void expectOk(String request) throws IOException {
+			String response;
+			while ((response = send(request)).equals("BUSY")) {
+				Thread.onSpinWait();
+			}
+			if (!response.startsWith("OK")) {
+				throw new IOException(request + ": " + response);
+			}
+		}
+
+		public void close() throws IOException {
+			socket.close();
+		}
+	}
+}
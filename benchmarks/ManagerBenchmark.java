@@ -0,0 +1,171 @@
+package onlineTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * JMH benchmarks for the Manager hot paths, on one synthetic course in
+ * which every student has answered every question. The answer benchmarks
+ * resubmit answers, so the course does not grow while they run.
+ *
+ * SystemManager is not thread-safe and refuses to run on more than one
+ * thread; ConcurrentSystemManager is meant to be run with JMH's -t option.
+ * saveManager and restoreManager share one file, so they are only
+ * meaningful on one thread. The size of that file is printed when a trial
+ * ends.
+ *
+ * Run with, e.g.:
+ *   gradle jmh -Pjmh='ManagerBenchmark -p manager=ConcurrentSystemManager -t 4'
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManagerBenchmark {
+
+	@Param({"SystemManager", "ConcurrentSystemManager"})
+	private String manager;
+
+	@Param("2000")
+	private int students;
+
+	@Param("5")
+	private int exams;
+
+	@Param("20")
+	private int questions;
+
+	// weights of true/false, multiple choice and fill-in-the-blanks questions
+	@Param("1:1:1")
+	private String mix;
+
+	private Manager target;
+	private String[] names;
+	private int[][] questionsByType;
+	private File file;
+
+	@Setup
+	public void setUp(BenchmarkParams params) throws IOException {
+		if (manager.equals("SystemManager") && params.getThreads() > 1) {
+			throw new IllegalStateException("SystemManager is not thread-safe, run it with -t 1");
+		}
+
+		String[] weights = mix.split(":");
+		int[] typeMix = new int[weights.length];
+		for (int i = 0; i < weights.length; i++) {
+			typeMix[i] = Integer.parseInt(weights[i].trim());
+		}
+		SyntheticCourse course = new SyntheticCourse(students, exams, questions, typeMix);
+		target = manager.equals("SystemManager") ? new SystemManager() : new ConcurrentSystemManager();
+		course.populate(target);
+		course.answerAll(target);
+
+		names = new String[students];
+		for (int i = 0; i < students; i++) {
+			names[i] = SyntheticCourse.studentName(i);
+		}
+
+		// question numbers of each type, so each answer benchmark has its own
+		questionsByType = new int[3][];
+		for (int type = 0; type < 3; type++) {
+			List<Integer> numbers = new ArrayList<>();
+			for (int question = 1; question <= questions; question++) {
+				if (course.typeOf(question) == type) {
+					numbers.add(question);
+				}
+			}
+			if (numbers.isEmpty()) {
+				throw new IllegalStateException("the mix " + mix + " has no questions of type " + type);
+			}
+			questionsByType[type] = numbers.stream().mapToInt(Integer::intValue).toArray();
+		}
+
+		file = File.createTempFile("manager", ".ser");
+		target.saveManager(target, file.getPath());
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.out.printf("%nsaveManager file size: %d KB%n", file.length() / 1024);
+		file.delete();
+	}
+
+	@Benchmark
+	public int answerTrueFalseQuestion() {
+		return answer(0);
+	}
+
+	@Benchmark
+	public int answerMultipleChoiceQuestion() {
+		return answer(1);
+	}
+
+	@Benchmark
+	public int answerFillInTheBlanksQuestion() {
+		return answer(2);
+	}
+
+	@Benchmark
+	public double getExamScore() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return target.getExamScore(names[random.nextInt(students)], 1 + random.nextInt(exams));
+	}
+
+	@Benchmark
+	public String getGradingReport() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return target.getGradingReport(names[random.nextInt(students)], 1 + random.nextInt(exams));
+	}
+
+	@Benchmark
+	public String getCourseGrades() {
+		return target.getCourseGrades();
+	}
+
+	@Benchmark
+	public double getMaxMinAverageScore() {
+		int exam = 1 + ThreadLocalRandom.current().nextInt(exams);
+		return target.getMaxScore(exam) + target.getMinScore(exam) + target.getAverageScore(exam);
+	}
+
+	@Benchmark
+	public long saveManager() {
+		target.saveManager(target, file.getPath());
+		return file.length();
+	}
+
+	@Benchmark
+	public Manager restoreManager() {
+		return target.restoreManager(file.getPath());
+	}
+
+	// one random answer to a random question of the given type
+	private int answer(int type) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int[] numbers = questionsByType[type];
+		int question = numbers[random.nextInt(numbers.length)];
+		SyntheticCourse.answer(target, random, names[random.nextInt(students)],
+				1 + random.nextInt(exams), question, type);
+		return question;
+	}
+}
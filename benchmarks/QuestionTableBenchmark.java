@@ -0,0 +1,109 @@
+package onlineTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures authoring a large question bank out of order. Each operation
+ * works on a whole bank:
+ *
+ *   add        every question is added in a random order
+ *   overwrite  the same, then every question is overwritten once, as when
+ *              an answer key is corrected; subtract add for the overwrites
+ *   lookup     every question of a full bank is looked up by number
+ *
+ * Divide by the number of questions for the time per question.
+ *
+ * Run with: gradle jmh -Pjmh=QuestionTableBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuestionTableBenchmark {
+
+	// shuffled orders to cycle through, so no single order gets optimized for
+	private static final int ORDERS = 16;
+
+	@Param("500")
+	private int questions;
+
+	private int[][] orders;
+	private int next;
+	private Exam bank;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		List<Integer> order = new ArrayList<>();
+		for (int number = 1; number <= questions; number++) {
+			order.add(number);
+		}
+
+		orders = new int[ORDERS][];
+		for (int i = 0; i < ORDERS; i++) {
+			Collections.shuffle(order, random);
+			orders[i] = order.stream().mapToInt(Integer::intValue).toArray();
+		}
+
+		bank = add(orders[0]);
+		if (bank.getQuestions().size() != questions) {
+			throw new IllegalStateException("lost questions");
+		}
+	}
+
+	@Benchmark
+	public Exam add() {
+		return add(nextOrder());
+	}
+
+	@Benchmark
+	public Exam overwrite() {
+		int[] order = nextOrder();
+		Exam exam = add(order);
+		for (int number : order) {
+			exam.addQuestion(new TrueFalseQuestion(number, "Q", 2, false));
+		}
+		return exam;
+	}
+
+	@Benchmark
+	public double lookup() {
+		double points = 0.0;
+		for (int number : nextOrder()) {
+			points += bank.getQuestion(number).getPoints();
+		}
+		return points;
+	}
+
+	private Exam add(int[] order) {
+		Exam exam = new Exam(1, "Bank");
+		for (int number : order) {
+			exam.addQuestion(new TrueFalseQuestion(number, "Q", 1, true));
+		}
+		return exam;
+	}
+
+	private int[] nextOrder() {
+		int[] order = orders[next];
+		next = (next + 1) % ORDERS;
+		return order;
+	}
+}
@@ -0,0 +1,58 @@
+package onlineTest;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures regrading one exam after its answer key was fixed, on a
+ * synthetic course where every student answered every question: one
+ * question, then the whole exam. Regrading runs on the common fork/join
+ * pool.
+ *
+ * Run with: gradle jmh -Pjmh=RegradeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegradeBenchmark {
+
+	@Param("50000")
+	private int students;
+
+	@Param("20")
+	private int questions;
+
+	private Manager manager;
+
+	@Setup
+	public void setUp() {
+		SyntheticCourse course = new SyntheticCourse(students, 1, questions);
+		manager = new ConcurrentSystemManager();
+		course.populate(manager);
+		course.answerAll(manager);
+	}
+
+	@Benchmark
+	public int regradeQuestion() {
+		return manager.regradeExam(1, 2);
+	}
+
+	@Benchmark
+	public int regradeExam() {
+		return manager.regradeExam(1);
+	}
+}
@@ -0,0 +1,131 @@
+package onlineTest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures the heap taken by students' scores and responses. It compares
+ * the compact ExamRecord store with the maps of boxed values Student used
+ * to keep (rebuilt here with the same contents), on a synthetic course.
+ *
+ * Answers are fresh String objects, as they would be when parsed from
+ * requests, rather than shared literals.
+ *
+ * Run with: gradle runTool -Ptool=ResponseMemoryBenchmark -Pargs='[students] [exams] [questions]'
+ */
+public class ResponseMemoryBenchmark {
+
+	private static final String[] OPTIONS = {"A", "B", "C", "D", "E"};
+	private static final String[] BLANKS = {"red", "green", "blue", "cyan", "magenta"};
+
+	public static void main(String[] args) {
+		int students = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+		int exams = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		int questions = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		long responses = (long) students * exams * questions;
+
+		SyntheticCourse course = new SyntheticCourse(students, exams, questions);
+
+		long baseline = usedHeap();
+		SystemManager manager = new SystemManager();
+		course.populate(manager);
+		long empty = usedHeap() - baseline;
+		answerAll(manager, course);
+		long compact = usedHeap() - baseline - empty;
+
+		baseline = usedHeap();
+		List<Object> legacy = legacyLayout(manager, course);
+		long boxed = usedHeap() - baseline;
+
+		System.out.printf("%d students, %d exams, %d questions per exam%n", students, exams, questions);
+		System.out.printf("%-10s %14s %16s %16s%n", "layout", "heap (KB)", "per student (B)",
+				"per response (B)");
+		print("maps", boxed, students, responses);
+		print("compact", compact, students, responses);
+		System.out.printf("compact store is %.1fx smaller%n", (double) boxed / compact);
+
+		// keep both alive until measured
+		if (legacy.size() != students || manager.getMaxScore(1) < 0) {
+			throw new IllegalStateException();
+		}
+	}
+
+	// every student answers every question, with fresh strings
+	private static void answerAll(Manager manager, SyntheticCourse course) {
+		Random random = new Random(42);
+
+		for (int student = 0; student < course.getStudentCount(); student++) {
+			String name = SyntheticCourse.studentName(student);
+			for (int exam = 1; exam <= course.getExamCount(); exam++) {
+				for (int question = 1; question <= course.getQuestionsPerExam(); question++) {
+					switch (SyntheticCourse.questionType(question)) {
+					case 0:
+						manager.answerTrueFalseQuestion(name, exam, question, random.nextBoolean());
+						break;
+					case 1:
+						manager.answerMultipleChoiceQuestion(name, exam, question,
+								new String[] {fresh(OPTIONS, random), fresh(OPTIONS, random)});
+						break;
+					default:
+						manager.answerFillInTheBlanksQuestion(name, exam, question,
+								new String[] {fresh(BLANKS, random), fresh(BLANKS, random)});
+					}
+				}
+			}
+		}
+	}
+
+	// the maps each Student held before: responses, exam scores, question
+	// scores and exams taken, with a fresh String[] of fresh strings each
+	private static List<Object> legacyLayout(SystemManager manager, SyntheticCourse course) {
+		List<Object> students = new ArrayList<>();
+
+		for (int student = 0; student < course.getStudentCount(); student++) {
+			Student source = manager.getStudent(SyntheticCourse.studentName(student));
+			Map<Integer, Map<Integer, Object>> responses = new HashMap<>();
+			Map<Integer, Double> examScores = new HashMap<>();
+			Map<Integer, Map<Integer, Double>> questionScores = new HashMap<>();
+			Map<Integer, Exam> examsTaken = new HashMap<>();
+
+			for (int exam = 1; exam <= course.getExamCount(); exam++) {
+				Map<Integer, Object> examResponses = new HashMap<>();
+				for (Map.Entry<Integer, Object> entry : source.getResponses(exam).entrySet()) {
+					Object response = entry.getValue();
+					if (response instanceof String[]) {
+						String[] strings = (String[]) response;
+						for (int i = 0; i < strings.length; i++) {
+							strings[i] = new String(strings[i]);
+						}
+					}
+					examResponses.put(entry.getKey(), response);
+				}
+				responses.put(exam, examResponses);
+				questionScores.put(exam, new HashMap<>(source.getQuestionScores(exam)));
+				examScores.put(exam, source.getExamScore(exam));
+				examsTaken.put(exam, manager.getExam(exam));
+			}
+			students.add(new Object[] {responses, examScores, questionScores, examsTaken});
+		}
+		return students;
+	}
+
+	private static String fresh(String[] values, Random random) {
+		return new String(values[random.nextInt(values.length)]);
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static void print(String layout, long bytes, int students, long responses) {
+		System.out.printf("%-10s %14d %16.1f %16.1f%n", layout, bytes / 1024,
+				(double) bytes / students, (double) bytes / responses);
+	}
+}
@@ -0,0 +1,111 @@
+package onlineTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for answer ingestion: a number of threads submit answers from
+ * random students of a synthetic course to a ConcurrentSystemManager, and
+ * to a ShardedManager, waiting for each answer, and asynchronously with a
+ * window of outstanding futures per thread. Throughput is in answers per
+ * second, all threads together.
+ *
+ * Run with: gradle jmh -Pjmh='ShardedIngestBenchmark -t 8 -p shards=8'
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class ShardedIngestBenchmark {
+
+	private static final int STUDENTS = 2000;
+	private static final int EXAMS = 5;
+	private static final int QUESTIONS = 20;
+	private static final int WINDOW = 256;  // outstanding futures per thread
+
+	// 0 for one per available processor
+	@Param("0")
+	private int shards;
+
+	private ConcurrentSystemManager concurrent;
+	private ShardedManager sharded;
+	private String[] names;
+
+	/** The outstanding futures of one thread. */
+	@State(Scope.Thread)
+	public static class Window {
+		private List<CompletableFuture<Void>> futures = new ArrayList<>(WINDOW);
+	}
+
+	@Setup
+	public void setUp() {
+		SyntheticCourse course = new SyntheticCourse(STUDENTS, EXAMS, QUESTIONS);
+		concurrent = new ConcurrentSystemManager();
+		course.populate(concurrent);
+		sharded = new ShardedManager(new SystemManager(),
+				shards > 0 ? shards : Runtime.getRuntime().availableProcessors());
+		course.populate(sharded);
+
+		names = new String[STUDENTS];
+		for (int i = 0; i < STUDENTS; i++) {
+			names[i] = SyntheticCourse.studentName(i);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		sharded.close();
+	}
+
+	@Benchmark
+	public void concurrentSystemManager() {
+		answer(concurrent);
+	}
+
+	@Benchmark
+	public void shardedManager() {
+		answer(sharded);
+	}
+
+	// a whole window of answers, then waits for all of them
+	@Benchmark
+	@OperationsPerInvocation(WINDOW)
+	public void shardedManagerAsync(Window window) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = 0; i < WINDOW; i++) {
+			// true/false questions are the multiples of 3, see SyntheticCourse
+			window.futures.add(sharded.answerTrueFalseQuestionAsync(names[random.nextInt(STUDENTS)],
+					1 + random.nextInt(EXAMS), 3 + 3 * random.nextInt(QUESTIONS / 3),
+					random.nextBoolean()));
+		}
+		CompletableFuture.allOf(window.futures.toArray(new CompletableFuture<?>[0])).join();
+		window.futures.clear();
+	}
+
+	private void answer(Manager manager) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		SyntheticCourse.answer(manager, random, names[random.nextInt(STUDENTS)],
+				1 + random.nextInt(EXAMS), 1 + random.nextInt(QUESTIONS));
+	}
+}
@@ -0,0 +1,111 @@
+package onlineTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares Java serialization (saveManager/restoreManager) with the binary
+ * snapshot format (saveManagerSnapshot/restoreManagerSnapshot) on a
+ * synthetic course. The lazy benchmark restores the same snapshot
+ * memory-mapped and touches a single student. The size of both files is
+ * printed when a trial ends.
+ *
+ * Run with: gradle jmh -Pjmh=SnapshotBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotBenchmark {
+
+	@Param("20000")
+	private int students;
+
+	@Param("5")
+	private int exams;
+
+	@Param("20")
+	private int questions;
+
+	private SystemManager manager;
+	private String name;
+	private File serialized;
+	private File snapshot;
+
+	@Setup
+	public void setUp() throws IOException {
+		SyntheticCourse course = new SyntheticCourse(students, exams, questions);
+		manager = new SystemManager();
+		course.populate(manager);
+		course.answerAll(manager);
+		name = SyntheticCourse.studentName(students / 2);
+
+		serialized = File.createTempFile("manager", ".ser");
+		snapshot = File.createTempFile("manager", ".snap");
+		manager.saveManager(manager, serialized.getPath());
+		manager.saveManagerSnapshot(manager, snapshot.getPath());
+
+		check(manager.restoreManager(serialized.getPath()));
+		check(manager.restoreManagerSnapshot(snapshot.getPath()));
+		check(manager.restoreManagerSnapshot(snapshot.getPath(), true));
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.out.printf("%nserialization: %d KB, snapshot: %d KB%n",
+				serialized.length() / 1024, snapshot.length() / 1024);
+		serialized.delete();
+		snapshot.delete();
+	}
+
+	@Benchmark
+	public long saveManager() {
+		manager.saveManager(manager, serialized.getPath());
+		return serialized.length();
+	}
+
+	@Benchmark
+	public Manager restoreManager() {
+		return manager.restoreManager(serialized.getPath());
+	}
+
+	@Benchmark
+	public long saveManagerSnapshot() {
+		manager.saveManagerSnapshot(manager, snapshot.getPath());
+		return snapshot.length();
+	}
+
+	@Benchmark
+	public Manager restoreManagerSnapshot() {
+		return manager.restoreManagerSnapshot(snapshot.getPath());
+	}
+
+	@Benchmark
+	public double restoreManagerSnapshotLazy() {
+		return manager.restoreManagerSnapshot(snapshot.getPath(), true).getCourseNumericGrade(name);
+	}
+
+	// spot-check that the restored manager grades like the original
+	private void check(Manager restored) {
+		if (manager.getCourseNumericGrade(name) != restored.getCourseNumericGrade(name)
+				|| manager.getAverageScore(1) != restored.getAverageScore(1)) {
+			throw new IllegalStateException("restored manager does not match the original");
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package onlineTest;
+
+import java.util.Random;
+
+/**
+ * Builds reproducible synthetic courses for the benchmarks: a number of
+ * exams with a mix of question types, and a roster of students who have
+ * answered every question.
+ *
+ * By default the question types simply cycle. A mix gives the relative
+ * weights of true/false, multiple choice and fill-in-the-blanks questions
+ * instead, e.g. {2, 1, 1} for half true/false.
+ */
+public class SyntheticCourse {
+
+	private static final String[] OPTIONS = {"A", "B", "C", "D", "E"};
+	private static final String[] BLANKS = {"red", "green", "blue", "cyan", "magenta"};
+
+	private int studentCount;
+	private int examCount;
+	private int questionsPerExam;
+	private int[] mix;  // null for the default cycle
+	private long seed = 42;
+
+	public SyntheticCourse(int studentCount, int examCount, int questionsPerExam) {
+		this(studentCount, examCount, questionsPerExam, null);
+	}
+
+	public SyntheticCourse(int studentCount, int examCount, int questionsPerExam, int[] mix) {
+		this.studentCount = studentCount;
+		this.examCount = examCount;
+		this.questionsPerExam = questionsPerExam;
+		this.mix = mix;
+	}
+
+	public int getStudentCount() {
+		return studentCount;
+	}
+
+	public int getExamCount() {
+		return examCount;
+	}
+
+	public int getQuestionsPerExam() {
+		return questionsPerExam;
+	}
+
+	public static String studentName(int student) {
+		return "Student" + student + ",First" + student;
+	}
+
+	// questions cycle through true/false, multiple choice and fill-in-the-blanks
+	public static int questionType(int questionNumber) {
+		return questionNumber % 3;
+	}
+
+	// 0 for true/false, 1 for multiple choice, 2 for fill-in-the-blanks
+	public int typeOf(int questionNumber) {
+		if (mix == null) {
+			return questionType(questionNumber);
+		}
+		int position = (questionNumber - 1) % (mix[0] + mix[1] + mix[2]);
+		return position < mix[0] ? 0 : position < mix[0] + mix[1] ? 1 : 2;
+	}
+
+	// adds the exams, questions, students and cutoffs, but no answers
+	public void populate(Manager manager) {
+		for (int exam = 1; exam <= examCount; exam++) {
+			manager.addExam(exam, "Exam " + exam);
+
+			for (int question = 1; question <= questionsPerExam; question++) {
+				String text = "Question " + question + " of exam " + exam;
+				switch (typeOf(question)) {
+				case 0:
+					manager.addTrueFalseQuestion(exam, question, text, 2, question % 2 == 0);
+					break;
+				case 1:
+					manager.addMultipleChoiceQuestion(exam, question, text, 3,
+							new String[] {OPTIONS[question % 5], OPTIONS[(question + 2) % 5]});
+					break;
+				default:
+					manager.addFillInTheBlanksQuestion(exam, question, text, 4,
+							new String[] {BLANKS[question % 5], BLANKS[(question + 1) % 5]});
+				}
+			}
+		}
+
+		for (int student = 0; student < studentCount; student++) {
+			manager.addStudent(studentName(student));
+		}
+		manager.setLetterGradesCutoffs(new String[] {"A", "B", "C", "D", "F"},
+				new double[] {90, 80, 70, 60, 0});
+	}
+
+	// has every student answer every question, about two thirds correctly
+	public void answerAll(Manager manager) {
+		Random random = new Random(seed);
+
+		for (int student = 0; student < studentCount; student++) {
+			for (int exam = 1; exam <= examCount; exam++) {
+				for (int question = 1; question <= questionsPerExam; question++) {
+					answer(manager, random, studentName(student), exam, question, typeOf(question));
+				}
+			}
+		}
+	}
+
+	// one random answer from the given student
+	public static void answer(Manager manager, Random random, String name, int exam, int question) {
+		answer(manager, random, name, exam, question, questionType(question));
+	}
+
+	// one random answer to a question of the given type
+	public static void answer(Manager manager, Random random, String name, int exam,
+							  int question, int type) {
+		switch (type) {
+		case 0:
+			manager.answerTrueFalseQuestion(name, exam, question, random.nextInt(3) > 0);
+			break;
+		case 1:
+			manager.answerMultipleChoiceQuestion(name, exam, question,
+					new String[] {OPTIONS[random.nextInt(5)], OPTIONS[(question + 2) % 5]});
+			break;
+		default:
+			manager.answerFillInTheBlanksQuestion(name, exam, question,
+					new String[] {BLANKS[question % 5], BLANKS[random.nextInt(5)]});
+		}
+	}
+}
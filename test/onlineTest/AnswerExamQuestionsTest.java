@@ -0,0 +1,125 @@
+package onlineTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Batches of answers: applied like the answers one at a time, and only
+ * once every answer in the batch has been checked.
+ */
+class AnswerExamQuestionsTest {
+
+	private SystemManager manager;
+
+	@BeforeEach
+	void setUp() {
+		manager = new SystemManager();
+		manager.addExam(1, "Midterm");
+		manager.addTrueFalseQuestion(1, 1, "Is the sky blue?", 2, true);
+		manager.addMultipleChoiceQuestion(1, 2, "Pick the primes", 3, new String[] {"A", "C"});
+		manager.addFillInTheBlanksQuestion(1, 3, "Name two colors", 4,
+				new String[] {"red", "blue"});
+		manager.addStudent("Smith,John");
+		manager.addStudent("Doe,Jane");
+	}
+
+	private static Map<Integer, Object> answers() {
+		Map<Integer, Object> answers = new LinkedHashMap<>();
+		answers.put(1, true);
+		answers.put(2, new String[] {"C", "A"});
+		answers.put(3, new String[] {"red", "green"});
+		return answers;
+	}
+
+	// nothing of any batch was applied
+	private void assertUnanswered() {
+		for (String name : List.of("Smith,John", "Doe,Jane")) {
+			assertEquals(0.0, manager.getExamScore(name, 1));
+			assertTrue(manager.getStudent(name).getResponses(1).isEmpty());
+		}
+		assertTrue(manager.getExamParticipants(1).isEmpty());
+	}
+
+	@Test
+	void batchScoresLikeSingleAnswers() {
+		SystemManager single = new SystemManager();
+		single.addExam(1, "Midterm");
+		single.addTrueFalseQuestion(1, 1, "Is the sky blue?", 2, true);
+		single.addMultipleChoiceQuestion(1, 2, "Pick the primes", 3, new String[] {"A", "C"});
+		single.addFillInTheBlanksQuestion(1, 3, "Name two colors", 4,
+				new String[] {"red", "blue"});
+		single.addStudent("Smith,John");
+		single.answerTrueFalseQuestion("Smith,John", 1, 1, true);
+		single.answerMultipleChoiceQuestion("Smith,John", 1, 2, new String[] {"C", "A"});
+		single.answerFillInTheBlanksQuestion("Smith,John", 1, 3, new String[] {"red", "green"});
+
+		manager.answerExamQuestions("Smith,John", 1, answers());
+
+		assertEquals(7.0, manager.getExamScore("Smith,John", 1));
+		assertEquals(single.getGradingReport("Smith,John", 1),
+				manager.getGradingReport("Smith,John", 1));
+		assertEquals(List.of("Smith,John"), manager.getExamParticipants(1));
+	}
+
+	@Test
+	void unknownQuestionRejectsTheWholeBatch() {
+		Map<Integer, Object> answers = answers();
+		answers.put(9, true);
+
+		assertThrows(IllegalArgumentException.class,
+				() -> manager.answerExamQuestions("Smith,John", 1, answers));
+		assertUnanswered();
+	}
+
+	@Test
+	void wrongResponseTypeRejectsTheWholeBatch() {
+		Map<Integer, Object> answers = answers();
+		answers.put(3, false);
+
+		assertThrows(IllegalArgumentException.class,
+				() -> manager.answerExamQuestions("Smith,John", 1, answers));
+		assertUnanswered();
+	}
+
+	@Test
+	void unknownStudentOrExamIsRejected() {
+		assertThrows(IllegalArgumentException.class,
+				() -> manager.answerExamQuestions("Nobody,No", 1, answers()));
+		assertThrows(IllegalArgumentException.class,
+				() -> manager.answerExamQuestions("Smith,John", 2, answers()));
+		assertUnanswered();
+	}
+
+	@Test
+	void oneBadStudentRejectsEveryStudentsAnswers() {
+		Map<String, Map<Integer, Object>> batch = new LinkedHashMap<>();
+		batch.put("Smith,John", answers());
+		Map<Integer, Object> bad = new HashMap<>(answers());
+		bad.put(1, new String[] {"True"});
+		batch.put("Doe,Jane", bad);
+
+		assertThrows(IllegalArgumentException.class,
+				() -> manager.answerExamQuestions(1, batch));
+		assertUnanswered();
+
+		batch.put("Doe,Jane", answers());
+		batch.put("Nobody,No", answers());
+		assertThrows(IllegalArgumentException.class,
+				() -> manager.answerExamQuestions(1, batch));
+		assertUnanswered();
+
+		batch.remove("Nobody,No");
+		manager.answerExamQuestions(1, batch);
+		assertEquals(7.0, manager.getExamScore("Smith,John", 1));
+		assertEquals(7.0, manager.getExamScore("Doe,Jane", 1));
+	}
+}
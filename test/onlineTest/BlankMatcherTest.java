@@ -0,0 +1,108 @@
+package onlineTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Fill-in-the-blanks scoring: each blank is credited at most once, by an
+ * accepted spelling of that blank, and never beyond the question's points.
+ */
+class BlankMatcherTest {
+
+	private static final String[] COLORS = {"red", "blue", "green"};
+
+	@Test
+	void defaultModeScoresLikeComputeQuestionScore() {
+		FillInTheBlanksQuestion question = new FillInTheBlanksQuestion(1, "Name three colors",
+				6, COLORS);
+		BlankMatcher matcher = new BlankMatcher(question);
+		String[] words = {"red", "blue", "green", "cyan", "Red", ""};
+
+		// every response of up to three different words
+		List<String[]> responses = new ArrayList<>();
+		responses.add(new String[0]);
+		for (String first : words) {
+			responses.add(new String[] {first});
+			for (String second : words) {
+				if (!second.equals(first)) {
+					responses.add(new String[] {first, second});
+					for (String third : words) {
+						if (!third.equals(first) && !third.equals(second)) {
+							responses.add(new String[] {first, second, third});
+						}
+					}
+				}
+			}
+		}
+		for (String[] response : responses) {
+			assertEquals(question.computeQuestionScore(response),
+					matcher.computeQuestionScore(response), String.join(",", response));
+		}
+	}
+
+	@Test
+	void eachBlankIsCreditedOnce() {
+		BlankMatcher matcher = new BlankMatcher(4, new String[] {"red", "blue"},
+				BlankMatcher.EXACT, null);
+
+		assertEquals(2.0, matcher.computeQuestionScore(new String[] {"red", "red"}));
+		assertEquals(4.0, matcher.computeQuestionScore(new String[] {"blue", "red", "red"}));
+		assertEquals(4.0, matcher.computeQuestionScore(
+				new String[] {"red", "blue", "red", "blue", "red"}));
+	}
+
+	@Test
+	void alternativesBelongToTheirBlank() {
+		BlankMatcher matcher = new BlankMatcher(4, new String[] {"color", "shape"},
+				BlankMatcher.EXACT, new String[][] {{"colour"}, null});
+
+		assertEquals(2.0, matcher.computeQuestionScore(new String[] {"color", "colour"}));
+		assertEquals(4.0, matcher.computeQuestionScore(new String[] {"colour", "shape"}));
+		assertEquals(0.0, matcher.computeQuestionScore(new String[] {"Colour"}));
+	}
+
+	@Test
+	void entriesAreMovedToFillTheMostBlanks() {
+		// "grey" fills either blank, "gray" only the first
+		BlankMatcher matcher = new BlankMatcher(2, new String[] {"gray", "grey"},
+				BlankMatcher.EXACT, new String[][] {{"grey"}, null});
+
+		assertEquals(2.0, matcher.computeQuestionScore(new String[] {"grey", "gray"}));
+		assertEquals(2.0, matcher.computeQuestionScore(new String[] {"grey", "grey"}));
+		assertEquals(1.0, matcher.computeQuestionScore(new String[] {"gray", "gray"}));
+	}
+
+	@Test
+	void ignoreCase() {
+		BlankMatcher matcher = new BlankMatcher(4, new String[] {"Red", "blue"},
+				BlankMatcher.IGNORE_CASE, null);
+
+		assertEquals(2.0, matcher.computeQuestionScore(new String[] {"red", "RED"}));
+		assertEquals(4.0, matcher.computeQuestionScore(new String[] {"BLUE", "rEd"}));
+	}
+
+	@Test
+	void foldWhitespace() {
+		BlankMatcher matcher = new BlankMatcher(2, new String[] {"New York", "Los Angeles"},
+				BlankMatcher.FOLD_WHITESPACE, null);
+
+		assertEquals(2.0, matcher.computeQuestionScore(
+				new String[] {" New\tYork ", "Los  Angeles"}));
+		assertEquals(1.0, matcher.computeQuestionScore(new String[] {"new york", "Los Angeles"}));
+		assertEquals(1.0, matcher.computeQuestionScore(new String[] {"NewYork", "Los Angeles"}));
+	}
+
+	@Test
+	void bothFlagsApplyToAlternatives() {
+		BlankMatcher matcher = new BlankMatcher(3, new String[] {"USA"},
+				BlankMatcher.IGNORE_CASE | BlankMatcher.FOLD_WHITESPACE,
+				new String[][] {{"United States"}});
+
+		assertEquals(3.0, matcher.computeQuestionScore(new String[] {"  united   STATES"}));
+		assertEquals(3.0, matcher.computeQuestionScore(new String[] {"usa", "United States"}));
+	}
+}
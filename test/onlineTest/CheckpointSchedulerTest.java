@@ -0,0 +1,49 @@
+package onlineTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Failed checkpoints are counted and kept, not only thrown, since the
+ * scheduled ones have nobody to throw to.
+ */
+class CheckpointSchedulerTest {
+
+	@TempDir
+	File directory;
+
+	@Test
+	void failedCheckpointsAreCounted() throws IOException {
+		ConcurrentSystemManager manager = new ConcurrentSystemManager();
+		manager.addExam(1, "Midterm");
+		manager.addStudent("Smith,John");
+		String missing = new File(directory, "missing/manager.snap").getPath();
+
+		try (CheckpointScheduler scheduler = new CheckpointScheduler(manager, missing,
+				1, TimeUnit.HOURS)) {
+			assertThrows(ExecutionException.class, () -> scheduler.requestCheckpoint().get());
+			assertEquals(1, scheduler.getFailureCount());
+			assertNotNull(scheduler.getLastFailure());
+			assertEquals(0, scheduler.getCheckpointCount());
+		}
+
+		String snapshot = new File(directory, "manager.snap").getPath();
+		try (CheckpointScheduler scheduler = new CheckpointScheduler(manager, snapshot,
+				1, TimeUnit.HOURS)) {
+			scheduler.checkpoint();
+			assertEquals(0, scheduler.getFailureCount());
+			assertNull(scheduler.getLastFailure());
+			assertEquals(1, scheduler.getCheckpointCount());
+		}
+	}
+}
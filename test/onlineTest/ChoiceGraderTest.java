@@ -0,0 +1,116 @@
+package onlineTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * ChoiceGrader must grade every response as the question's own
+ * isCorrectAnswer does, whether it uses its mask or not.
+ */
+class ChoiceGraderTest {
+
+	private static final String[] OPTIONS = {"A", "B", "C", null};
+
+	// the result, or the kind of exception thrown instead
+	private static Object outcome(BooleanSupplier grading) {
+		try {
+			return grading.getAsBoolean();
+		} catch (RuntimeException e) {
+			return e.getClass();
+		}
+	}
+
+	private static void assertGradesLikeTheQuestion(String[] answer, List<String[]> responses) {
+		MultipleChoiceQuestion question = new MultipleChoiceQuestion(1, "Pick", 2, answer);
+		ChoiceGrader grader = new ChoiceGrader(question);
+		for (String[] response : responses) {
+			assertEquals(outcome(() -> question.isCorrectAnswer(response)),
+					outcome(() -> grader.isCorrectAnswer(response)),
+					Arrays.toString(answer) + " " + Arrays.toString(response));
+		}
+	}
+
+	// every response of up to four options drawn from OPTIONS, repeats included
+	private static List<String[]> smallResponses() {
+		List<String[]> responses = new ArrayList<>();
+		responses.add(new String[0]);
+		for (int length = 1; length <= 4; length++) {
+			int[] picks = new int[length];
+			while (true) {
+				String[] response = new String[length];
+				for (int i = 0; i < length; i++) {
+					response[i] = OPTIONS[picks[i]];
+				}
+				responses.add(response);
+
+				int i = 0;
+				while (i < length && ++picks[i] == OPTIONS.length) {
+					picks[i++] = 0;
+				}
+				if (i == length) {
+					break;
+				}
+			}
+		}
+		return responses;
+	}
+
+	@Test
+	void distinctOptions() {
+		assertGradesLikeTheQuestion(new String[] {"A", "C"}, smallResponses());
+		assertGradesLikeTheQuestion(new String[] {"B"}, smallResponses());
+		assertGradesLikeTheQuestion(new String[0], smallResponses());
+	}
+
+	@Test
+	void repeatedOptionsInTheAnswer() {
+		assertGradesLikeTheQuestion(new String[] {"A", "A"}, smallResponses());
+		assertGradesLikeTheQuestion(new String[] {"A", "C", "A"}, smallResponses());
+	}
+
+	@Test
+	void nullOptions() {
+		assertGradesLikeTheQuestion(new String[] {"A", null}, smallResponses());
+		assertGradesLikeTheQuestion(new String[] {null}, smallResponses());
+	}
+
+	@Test
+	void sixtyFourOptionsAndMore() {
+		Random random = new Random(42);
+		for (int size : new int[] {63, 64, 65, 100}) {
+			List<String> options = new ArrayList<>();
+			for (int i = 0; i < size; i++) {
+				options.add("option" + i);
+			}
+			String[] answer = options.toArray(new String[0]);
+
+			List<String[]> responses = new ArrayList<>();
+			for (int round = 0; round < 20; round++) {
+				List<String> shuffled = new ArrayList<>(options);
+				Collections.shuffle(shuffled, random);
+				responses.add(shuffled.toArray(new String[0]));
+
+				List<String> missing = new ArrayList<>(shuffled);
+				missing.remove(random.nextInt(size));
+				responses.add(missing.toArray(new String[0]));
+
+				List<String> repeated = new ArrayList<>(shuffled);
+				repeated.set(random.nextInt(size), shuffled.get(random.nextInt(size)));
+				responses.add(repeated.toArray(new String[0]));
+
+				List<String> extra = new ArrayList<>(shuffled);
+				extra.add(random.nextBoolean() ? "other" : shuffled.get(0));
+				responses.add(extra.toArray(new String[0]));
+			}
+			assertGradesLikeTheQuestion(answer, responses);
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package onlineTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * A ConcurrentSystemManager used from several threads at once.
+ */
+class ConcurrentSystemManagerTest {
+
+	private static final String[] LETTERS = {"A", "B", "C", "D", "F"};
+
+	private static final int STUDENTS = 40;
+	private static final int QUESTIONS = 30;
+	private static final int THREADS = 8;
+
+	private static String name(int student) {
+		return "Student" + student + ",Test";
+	}
+
+	// questions of all three types, worth their own number of points
+	private static void populate(SystemManager manager) {
+		manager.setLetterGradesCutoffs(LETTERS, new double[] {90, 80, 70, 60, 0});
+		manager.addExam(1, "Midterm");
+		for (int q = 1; q <= QUESTIONS; q++) {
+			if (q % 3 == 0) {
+				manager.addTrueFalseQuestion(1, q, "Q" + q, q, true);
+			} else if (q % 3 == 1) {
+				manager.addMultipleChoiceQuestion(1, q, "Q" + q, q, new String[] {"A", "C"});
+			} else {
+				manager.addFillInTheBlanksQuestion(1, q, "Q" + q, q, new String[] {"red", "blue"});
+			}
+		}
+		for (int s = 0; s < STUDENTS; s++) {
+			manager.addStudent(name(s));
+		}
+	}
+
+	// a different answer for each student and question
+	private static void answer(SystemManager manager, int student, int question) {
+		int pick = (student * 7 + question * 3) % 4;
+		if (question % 3 == 0) {
+			manager.answerTrueFalseQuestion(name(student), 1, question, pick != 0);
+		} else if (question % 3 == 1) {
+			manager.answerMultipleChoiceQuestion(name(student), 1, question,
+					pick == 0 ? new String[] {"A"} : new String[] {"C", "A"});
+		} else {
+			manager.answerFillInTheBlanksQuestion(name(student), 1, question,
+					pick == 0 ? new String[] {"green"} : new String[] {"blue", "red"});
+		}
+	}
+
+	private static SystemManager answeredOnOneThread() {
+		SystemManager manager = new SystemManager();
+		populate(manager);
+		for (int s = 0; s < STUDENTS; s++) {
+			for (int q = 1; q <= QUESTIONS; q++) {
+				answer(manager, s, q);
+			}
+		}
+		return manager;
+	}
+
+	// every thread runs its share of the (student, question) pairs, starting
+	// together; which pairs a thread gets decides who is contended
+	private static void answerConcurrently(SystemManager manager, boolean sameStudents)
+			throws Exception {
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<?>> done = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			int thread = t;
+			done.add(executor.submit(() -> {
+				start.await();
+				for (int s = 0; s < STUDENTS; s++) {
+					for (int q = 1; q <= QUESTIONS; q++) {
+						int owner = sameStudents ? q % THREADS : s % THREADS;
+						if (owner == thread) {
+							answer(manager, s, q);
+						}
+					}
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		try {
+			for (Future<?> future : done) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static void assertSameResults(SystemManager expected, SystemManager actual) {
+		for (int s = 0; s < STUDENTS; s++) {
+			assertEquals(expected.getExamScore(name(s), 1), actual.getExamScore(name(s), 1));
+			assertEquals(expected.getGradingReport(name(s), 1), actual.getGradingReport(name(s), 1));
+		}
+		assertEquals(expected.getCourseGrades(), actual.getCourseGrades());
+		assertEquals(expected.getExamParticipants(1), actual.getExamParticipants(1));
+		assertEquals(expected.getMaxScore(1), actual.getMaxScore(1));
+		assertEquals(expected.getMinScore(1), actual.getMinScore(1));
+		assertEquals(expected.getMedianScore(1), actual.getMedianScore(1));
+		assertEquals(expected.getAverageScore(1), actual.getAverageScore(1), 1e-9);
+		assertEquals(expected.getGradeBandCounts(1), actual.getGradeBandCounts(1));
+	}
+
+	@Test
+	void threadsAnsweringForTheSameStudents() throws Exception {
+		// every thread answers some questions of every student
+		ConcurrentSystemManager manager = new ConcurrentSystemManager();
+		populate(manager);
+		answerConcurrently(manager, true);
+		assertSameResults(answeredOnOneThread(), manager);
+	}
+
+	@Test
+	void threadsAnsweringForDifferentStudents() throws Exception {
+		// each student is answered for by one thread only
+		ConcurrentSystemManager manager = new ConcurrentSystemManager();
+		populate(manager);
+		answerConcurrently(manager, false);
+		assertSameResults(answeredOnOneThread(), manager);
+	}
+
+	@Test
+	void slowCourseGradeWriterBlocksNobody() throws Exception {
+		ConcurrentSystemManager manager = new ConcurrentSystemManager();
+		manager.setLetterGradesCutoffs(LETTERS, new double[] {90, 80, 70, 60, 0});
+		manager.addStudent("Smith,John");
+		manager.addStudent("Doe,Jane");
+
+		CountDownLatch writing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		StringWriter grades = new StringWriter() {
+			public void write(String line) {
+				writing.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.write(line);
+			}
+		};
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> write = executor.submit(() -> {
+				manager.writeCourseGrades(grades);
+				return null;
+			});
+			writing.await();
+
+			// the cutoffs change while the listing is being written
+			assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+				manager.setLetterGradesCutoffs(LETTERS, new double[] {100, 100, 100, 0, 0});
+				assertEquals("D", manager.getCourseLetterGrade("Smith,John"));
+			});
+			release.countDown();
+			write.get();
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+
+		// the listing kept the cutoffs it started with
+		assertEquals("Doe,Jane 0.0 F\nSmith,John 0.0 F\n", grades.toString());
+	}
+}
@@ -0,0 +1,94 @@
+package onlineTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * EventRing with one and with several producers.
+ */
+class EventRingTest {
+
+	@Test
+	void capacityIsAPowerOfTwo() {
+		assertEquals(2, new EventRing<Integer>(1).capacity());
+		assertEquals(8, new EventRing<Integer>(5).capacity());
+		assertEquals(8, new EventRing<Integer>(8).capacity());
+	}
+
+	@Test
+	void offerFailsWhenFullAndSucceedsOnceEmptied() {
+		EventRing<Integer> ring = new EventRing<>(4);
+		assertTrue(ring.isEmpty());
+		for (int i = 0; i < 4; i++) {
+			assertTrue(ring.offer(i));
+		}
+		assertFalse(ring.offer(4));
+
+		assertEquals(0, ring.poll());
+		assertTrue(ring.offer(4));
+		assertFalse(ring.offer(5));
+
+		// around the ring several times, in order
+		for (int i = 1; i < 100; i++) {
+			assertEquals(i, ring.poll());
+			ring.offer(i + 4);
+		}
+	}
+
+	@Test
+	void pollReturnsNullWhenEmpty() {
+		EventRing<Integer> ring = new EventRing<>(2);
+		assertNull(ring.poll());
+		ring.offer(1);
+		assertFalse(ring.isEmpty());
+		assertEquals(1, ring.poll());
+		assertNull(ring.poll());
+		assertTrue(ring.isEmpty());
+	}
+
+	@Test
+	void eachProducersEventsArriveInOrder() throws InterruptedException {
+		int producers = 4;
+		int events = 20000;
+		EventRing<int[]> ring = new EventRing<>(16);
+
+		List<Thread> threads = new ArrayList<>();
+		for (int p = 0; p < producers; p++) {
+			int producer = p;
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < events; i++) {
+					int[] event = {producer, i};
+					while (!ring.offer(event)) {
+						Thread.yield();
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+
+		int[] next = new int[producers];
+		int received = 0;
+		while (received < producers * events) {
+			int[] event = ring.poll();
+			if (event == null) {
+				Thread.yield();
+				continue;
+			}
+			assertEquals(next[event[0]], event[1], "producer " + event[0]);
+			next[event[0]]++;
+			received++;
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertNull(ring.poll());
+	}
+}
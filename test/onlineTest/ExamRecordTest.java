@@ -0,0 +1,90 @@
+package onlineTest;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * A student's record of one exam, stored by the exam's dense question
+ * indexes whatever the question numbers.
+ */
+class ExamRecordTest {
+
+	@Test
+	void farApartNumbersAreAnsweredAndScored() {
+		SystemManager manager = new SystemManager();
+		manager.addExam(1, "Midterm");
+		manager.addTrueFalseQuestion(1, 1, "First", 2, true);
+		manager.addTrueFalseQuestion(1, 2_000_000_000, "Last", 3, true);
+		manager.addStudent("Smith,John");
+
+		manager.answerTrueFalseQuestion("Smith,John", 1, 2_000_000_000, true);
+		manager.answerTrueFalseQuestion("Smith,John", 1, 1, false);
+
+		assertEquals(3.0, manager.getExamScore("Smith,John", 1));
+		assertEquals(Map.of(1, false, 2_000_000_000, true),
+				manager.getStudent("Smith,John").getResponses(1));
+	}
+
+	@Test
+	void valuesStoredBeforeTheExamMoveToIt() {
+		Exam exam = new Exam(1, "Midterm");
+		exam.addQuestion(new TrueFalseQuestion(900, "A", 1, true));
+		exam.addQuestion(new FillInTheBlanksQuestion(4, "B", 2, new String[] {"red"}));
+
+		ExamRecord record = new ExamRecord(1, null);
+		record.setResponse(900, true);
+		record.setResponse(4, new String[] {"red"});
+		record.setQuestionScore(900, 1.0);
+
+		record.setExam(exam);
+		assertEquals(2, record.getResponseCount());
+		assertEquals(true, record.getResponse(900));
+		assertArrayEquals(new String[] {"red"}, (String[]) record.getResponse(4));
+		assertEquals(Map.of(900, 1.0), record.getQuestionScores());
+
+		record.setResponse(900, new String[] {"blue"});
+		assertEquals(2, record.getResponseCount());
+		assertArrayEquals(new String[] {"blue"}, (String[]) record.getResponse(900));
+	}
+
+	@Test
+	void answersToQuestionsAddedLaterAreKept() {
+		Exam exam = new Exam(1, "Midterm");
+		exam.addQuestion(new TrueFalseQuestion(1, "A", 1, true));
+		ExamRecord record = new ExamRecord(1, exam);
+
+		record.setResponse(7, false);
+		record.setQuestionScore(7, 0.0);
+		exam.addQuestion(new TrueFalseQuestion(7, "B", 1, true));
+		assertEquals(false, record.getResponse(7));
+		assertTrue(record.hasQuestionScore(7));
+
+		record.setResponse(7, true);
+		record.setResponse(1, true);
+		assertEquals(1.0, record.setQuestionScore(7, 1.0));
+		assertEquals(2, record.getResponseCount());
+		assertEquals(Map.of(1, true, 7, true), record.getResponses());
+		assertEquals(Map.of(7, 1.0), record.getQuestionScores());
+		assertFalse(record.hasQuestionScore(1));
+	}
+
+	@Test
+	void copiesDoNotShareLaterChanges() {
+		Exam exam = new Exam(1, "Midterm");
+		exam.addQuestion(new TrueFalseQuestion(1, "A", 1, true));
+		ExamRecord record = new ExamRecord(1, exam);
+		record.setResponse(1, true);
+		record.setResponse(3, true);
+
+		ExamRecord copy = record.copy();
+		record.setResponse(1, false);
+		record.setResponse(3, false);
+		assertEquals(Map.of(1, true, 3, true), copy.getResponses());
+	}
+}
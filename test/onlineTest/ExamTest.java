@@ -0,0 +1,134 @@
+package onlineTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The question table of an exam: overwriting questions, and numbers far
+ * apart.
+ */
+class ExamTest {
+
+	private static TrueFalseQuestion question(int number, double points) {
+		return new TrueFalseQuestion(number, "Question " + number, points, true);
+	}
+
+	private static List<Integer> numbers(Exam exam) {
+		List<Integer> numbers = new ArrayList<>();
+		for (Question question : exam.getQuestions()) {
+			numbers.add(question.getQuestionNumber());
+		}
+		return numbers;
+	}
+
+	@Test
+	void overwritingKeepsTheCountAndIndex() {
+		Exam exam = new Exam(1, "Midterm");
+		exam.addQuestion(question(2, 3));
+		exam.addQuestion(question(1, 2));
+		int index = exam.indexOf(2);
+
+		TrueFalseQuestion replacement = question(2, 5);
+		exam.addQuestion(replacement);
+
+		assertEquals(2, exam.getQuestionCount());
+		assertEquals(index, exam.indexOf(2));
+		assertSame(replacement, exam.getQuestion(2));
+		assertEquals(7.0, exam.getExamTotalScores());
+		assertEquals(List.of(1, 2), numbers(exam));
+	}
+
+	@Test
+	void overwritingLeavesNoRoundingErrorInTheTotal() {
+		Exam exam = new Exam(1, "Midterm");
+		exam.addQuestion(question(1, 0.1));
+		exam.addQuestion(question(2, 0.2));
+		for (int i = 0; i < 1000; i++) {
+			exam.addQuestion(question(1, i % 2 == 0 ? 1e16 : 0.3));
+			exam.addQuestion(question(2, 0.7));
+		}
+		exam.addQuestion(question(1, 0.1));
+		exam.addQuestion(question(2, 0.2));
+
+		assertEquals(0.1 + 0.2, exam.getExamTotalScores());
+	}
+
+	@Test
+	void sparseNumbersAreFoundAndListedInOrder() {
+		Exam exam = new Exam(1, "Midterm");
+		int[] added = {7, 3, 1_000_000, 50, Integer.MAX_VALUE, 12};
+		for (int number : added) {
+			exam.addQuestion(question(number, 1));
+		}
+
+		// each question has its own dense index, below the question count
+		Set<Integer> indexes = new HashSet<>();
+		for (int number : added) {
+			assertTrue(exam.hasQuestion(number));
+			assertEquals(number, exam.getQuestion(number).getQuestionNumber());
+			int index = exam.indexOf(number);
+			assertTrue(index >= 0 && index < added.length);
+			assertEquals(number, exam.questionNumberAt(index));
+			indexes.add(index);
+		}
+		assertEquals(added.length, indexes.size());
+
+		assertFalse(exam.hasQuestion(2));
+		assertFalse(exam.hasQuestion(999_999));
+		assertNull(exam.getQuestion(0));
+		assertEquals(-1, exam.indexOf(-5));
+		assertEquals(List.of(3, 7, 12, 50, 1_000_000, Integer.MAX_VALUE), numbers(exam));
+		assertEquals(Integer.MAX_VALUE, exam.getMaxQuestionNumber());
+
+		exam.addQuestion(question(1_000_000, 4));
+		assertEquals(added.length, exam.getQuestionCount());
+		assertEquals(9.0, exam.getExamTotalScores());
+	}
+
+	@Test
+	void invalidNumbersAreRejected() {
+		Exam exam = new Exam(1, "Midterm");
+		assertThrows(IllegalArgumentException.class, () -> exam.addQuestion(question(0, 1)));
+		assertEquals(0, exam.getQuestionCount());
+	}
+
+	@Test
+	void sparseTableSurvivesCopyAndSerialization() throws Exception {
+		Exam exam = new Exam(1, "Midterm");
+		exam.addQuestion(question(2, 1));
+		exam.addQuestion(question(500_000, 2));
+		exam.addQuestion(question(1, 3));
+
+		Exam copy = exam.copy();
+		exam.addQuestion(question(3, 4));
+		assertEquals(List.of(1, 2, 500_000), numbers(copy));
+		assertFalse(copy.hasQuestion(3));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(exam);
+		}
+		Exam restored;
+		try (ObjectInputStream in = new ObjectInputStream(
+				new ByteArrayInputStream(bytes.toByteArray()))) {
+			restored = (Exam) in.readObject();
+		}
+		assertEquals(List.of(1, 2, 3, 500_000), numbers(restored));
+		assertEquals(10.0, restored.getExamTotalScores());
+	}
+}
@@ -0,0 +1,59 @@
+package onlineTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Grading reports after questions are overwritten and exams regraded.
+ */
+class GradingReportTest {
+
+	private Manager manager;
+
+	@BeforeEach
+	void setUp() {
+		manager = new SystemManager();
+		manager.addExam(1, "Midterm");
+		manager.addTrueFalseQuestion(1, 1, "Is the sky blue?", 2, true);
+		manager.addMultipleChoiceQuestion(1, 2, "Pick the primes", 3, new String[] {"A", "C"});
+		manager.addStudent("Smith,John");
+		manager.answerTrueFalseQuestion("Smith,John", 1, 1, true);
+		manager.answerMultipleChoiceQuestion("Smith,John", 1, 2, new String[] {"C", "A"});
+	}
+
+	@Test
+	void answerOfTheWrongTypeScoresZeroAfterRegrade() {
+		manager.addMultipleChoiceQuestion(1, 1, "Pick the vowels", 2, new String[] {"A", "E"});
+		manager.regradeExam(1);
+
+		assertEquals("Question #1 0.0 points out of 2.0\n"
+				+ "Question #2 3.0 points out of 3.0\n"
+				+ "Final Score: 3.0 out of 5.0", manager.getGradingReport("Smith,John", 1));
+	}
+
+	@Test
+	void reportAgreesWithTheFinalScoreUntilRegraded() {
+		manager.addTrueFalseQuestion(1, 1, "Is the sky blue?", 2, false);
+
+		assertEquals("Question #1 2.0 points out of 2.0\n"
+				+ "Question #2 3.0 points out of 3.0\n"
+				+ "Final Score: 5.0 out of 5.0", manager.getGradingReport("Smith,John", 1));
+
+		manager.regradeExam(1, 1);
+		assertEquals("Question #1 0.0 points out of 2.0\n"
+				+ "Question #2 3.0 points out of 3.0\n"
+				+ "Final Score: 3.0 out of 5.0", manager.getGradingReport("Smith,John", 1));
+	}
+
+	@Test
+	void unansweredQuestionsScoreZero() {
+		manager.addFillInTheBlanksQuestion(1, 3, "Name a color", 4, new String[] {"red"});
+
+		assertEquals("Question #1 2.0 points out of 2.0\n"
+				+ "Question #2 3.0 points out of 3.0\n"
+				+ "Question #3 0.0 points out of 4.0\n"
+				+ "Final Score: 5.0 out of 9.0", manager.getGradingReport("Smith,John", 1));
+	}
+}
@@ -0,0 +1,215 @@
+package onlineTest;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Recovery of a JournaledManager after the crashes it is meant to survive.
+ * A crash is simulated by closing the journal, which only syncs it, and
+ * then changing the files the way the crash would have left them.
+ */
+class JournaledManagerTest {
+
+	@TempDir
+	File directory;
+
+	private String journalFile() {
+		return new File(directory, "manager.journal").getPath();
+	}
+
+	private String snapshotFile() {
+		return new File(directory, "manager.snap").getPath();
+	}
+
+	private JournaledManager open() throws IOException {
+		return new JournaledManager(new SystemManager(), journalFile(), snapshotFile());
+	}
+
+	private JournaledManager recover() throws IOException {
+		return JournaledManager.recover(new SystemManager(), journalFile(), snapshotFile());
+	}
+
+	// an exam of three questions, answered by two students
+	private static void populate(Manager manager) {
+		manager.addExam(1, "Midterm");
+		manager.addTrueFalseQuestion(1, 1, "Is the sky blue?", 2, true);
+		manager.addMultipleChoiceQuestion(1, 2, "Pick the primes", 3, new String[] {"A", "C"});
+		manager.addFillInTheBlanksQuestion(1, 3, "Name two colors", 4, new String[] {"red", "blue"});
+		manager.addStudent("Smith,John");
+		manager.addStudent("Doe,Jane");
+		manager.setLetterGradesCutoffs(new String[] {"A", "B", "C", "D", "F"},
+				new double[] {90, 80, 70, 60, 0});
+
+		manager.answerTrueFalseQuestion("Smith,John", 1, 1, true);
+		manager.answerMultipleChoiceQuestion("Smith,John", 1, 2, new String[] {"C", "A"});
+		manager.answerFillInTheBlanksQuestion("Smith,John", 1, 3, new String[] {"red"});
+		manager.answerTrueFalseQuestion("Doe,Jane", 1, 1, false);
+		manager.answerMultipleChoiceQuestion("Doe,Jane", 1, 2, new String[] {"A", "C"});
+		manager.answerFillInTheBlanksQuestion("Doe,Jane", 1, 3, new String[] {"blue", "green"});
+	}
+
+	// answers that change scores already recorded, and a fixed answer key
+	private static void change(Manager manager) {
+		manager.answerTrueFalseQuestion("Doe,Jane", 1, 1, true);
+		manager.answerFillInTheBlanksQuestion("Smith,John", 1, 3, new String[] {"red", "blue"});
+		manager.addTrueFalseQuestion(1, 1, "Is the sky blue?", 2, false);
+		manager.regradeExam(1, 1);
+		manager.addStudent("Adams,Ann");
+		manager.answerTrueFalseQuestion("Adams,Ann", 1, 1, false);
+	}
+
+	private static void assertSameState(Manager expected, Manager actual) {
+		assertEquals(expected.getCourseGrades(), actual.getCourseGrades());
+		for (String name : new String[] {"Smith,John", "Doe,Jane"}) {
+			assertEquals(expected.getGradingReport(name, 1), actual.getGradingReport(name, 1));
+		}
+		assertEquals(expected.getMaxScore(1), actual.getMaxScore(1));
+		assertEquals(expected.getMinScore(1), actual.getMinScore(1));
+		assertEquals(expected.getExamParticipants(1), actual.getExamParticipants(1));
+	}
+
+	@Test
+	void recoverReplaysTheJournal() throws IOException {
+		JournaledManager manager = open();
+		populate(manager);
+		change(manager);
+		manager.close();
+
+		JournaledManager recovered = recover();
+		assertSameState(manager, recovered);
+		recovered.close();
+	}
+
+	@Test
+	void recoverStopsAtATornRecord() throws IOException {
+		JournaledManager manager = open();
+		populate(manager);
+		manager.close();
+		long complete = new File(journalFile()).length();
+
+		// a record cut short by the crash: its header promises more bytes
+		// than were written
+		manager = recover();
+		manager.addStudent("Adams,Ann");
+		manager.close();
+		try (RandomAccessFile journal = new RandomAccessFile(journalFile(), "rw")) {
+			journal.setLength(journal.length() - 3);
+		}
+
+		JournaledManager recovered = recover();
+		assertFalse(recovered.getCourseGrades().contains("Adams,Ann"));
+		assertEquals(complete, new File(journalFile()).length(), "the torn tail is cut off");
+
+		// the journal stays usable after the tail was cut off
+		recovered.addStudent("Adams,Ann");
+		recovered.close();
+		assertTrue(recover().getCourseGrades().contains("Adams,Ann"));
+	}
+
+	@Test
+	void recoverStopsAtACorruptRecord() throws IOException {
+		JournaledManager manager = open();
+		populate(manager);
+		manager.close();
+
+		List<byte[]> records = new ArrayList<>();
+		ManagerJournal.readRecords(journalFile(), records);
+		try (RandomAccessFile journal = new RandomAccessFile(journalFile(), "rw")) {
+			journal.seek(journal.length() - 1);
+			int last = journal.read();
+			journal.seek(journal.length() - 1);
+			journal.write(last ^ 0xFF);
+		}
+
+		List<byte[]> recovered = new ArrayList<>();
+		ManagerJournal.readRecords(journalFile(), recovered);
+		assertEquals(records.size() - 1, recovered.size());
+	}
+
+	@Test
+	void nullAnswerEntriesAreJournaled() throws IOException {
+		JournaledManager manager = open();
+		populate(manager);
+		manager.answerFillInTheBlanksQuestion("Doe,Jane", 1, 3, new String[] {null, "red"});
+		manager.close();
+
+		JournaledManager recovered = recover();
+		assertSameState(manager, recovered);
+		assertArrayEquals(new String[] {null, "red"}, (String[]) recovered.getManager()
+				.getStudent("Doe,Jane").getResponses(1).get(3));
+
+		// and through a checkpoint's snapshot
+		recovered.checkpoint();
+		recovered.close();
+		JournaledManager restored = recover();
+		assertArrayEquals(new String[] {null, "red"}, (String[]) restored.getManager()
+				.getStudent("Doe,Jane").getResponses(1).get(3));
+		restored.close();
+	}
+
+	@Test
+	void checkpointEmptiesTheJournal() throws IOException {
+		JournaledManager manager = open();
+		populate(manager);
+		manager.checkpoint();
+		assertEquals(0, new File(journalFile()).length());
+		assertFalse(new File(snapshotFile() + ".tmp").exists());
+
+		change(manager);
+		manager.close();
+
+		JournaledManager recovered = recover();
+		assertSameState(manager, recovered);
+		recovered.close();
+	}
+
+	@Test
+	void recoverAfterACrashBetweenMoveAndTruncate() throws IOException {
+		JournaledManager manager = open();
+		populate(manager);
+		change(manager);
+		manager.getJournal().sync();
+
+		// the journal as it was before the checkpoint emptied it
+		File saved = new File(directory, "saved.journal");
+		Files.copy(new File(journalFile()).toPath(), saved.toPath());
+		manager.checkpoint();
+		manager.close();
+		Files.copy(saved.toPath(), new File(journalFile()).toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+
+		// the snapshot holds every record, and they are all replayed again
+		JournaledManager recovered = recover();
+		assertSameState(manager, recovered);
+		recovered.close();
+	}
+
+	@Test
+	void recoverAfterACrashBeforeTheMove() throws IOException {
+		JournaledManager manager = open();
+		populate(manager);
+		manager.checkpoint();
+		change(manager);
+		manager.close();
+
+		// a checkpoint cut short leaves its temporary file behind
+		Files.write(new File(snapshotFile() + ".tmp").toPath(), new byte[] {1, 2, 3});
+
+		JournaledManager recovered = recover();
+		assertSameState(manager, recovered);
+		recovered.close();
+	}
+}
@@ -0,0 +1,81 @@
+package onlineTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The question and response gauges, kept as the manager changes and
+ * recounted when it is restored.
+ */
+class ManagerMetricsTest {
+
+	@TempDir
+	File directory;
+
+	private static SystemManager populated() {
+		SystemManager manager = new SystemManager();
+		manager.addExam(1, "Midterm");
+		manager.addTrueFalseQuestion(1, 1, "Is the sky blue?", 2, true);
+		manager.addMultipleChoiceQuestion(1, 2, "Pick the primes", 3, new String[] {"A", "C"});
+		manager.addFillInTheBlanksQuestion(1, 3, "Name a color", 4, new String[] {"red"});
+		manager.addStudent("Smith,John");
+		manager.addStudent("Doe,Jane");
+
+		manager.answerTrueFalseQuestion("Smith,John", 1, 1, true);
+		manager.answerMultipleChoiceQuestion("Smith,John", 1, 2, new String[] {"A"});
+		manager.answerExamQuestions("Doe,Jane", 1, Map.of(1, false, 3, new String[] {"red"}));
+		return manager;
+	}
+
+	@Test
+	void overwritesAreNotCounted() {
+		SystemManager manager = populated();
+		ManagerMetrics metrics = new ManagerMetrics(manager);
+		assertEquals(3, metrics.getQuestionCount());
+		assertEquals(4, metrics.getResponseCount());
+
+		manager.addTrueFalseQuestion(1, 1, "Is the sky green?", 2, false);
+		manager.answerTrueFalseQuestion("Smith,John", 1, 1, false);
+		manager.answerExamQuestions("Doe,Jane", 1, Map.of(1, true, 2, new String[] {"C"}));
+		assertEquals(3, metrics.getQuestionCount());
+		assertEquals(5, metrics.getResponseCount());
+
+		manager.addExam(2, "Final");
+		manager.addTrueFalseQuestion(2, 1, "Is water wet?", 1, true);
+		assertEquals(4, metrics.getQuestionCount());
+		assertTrue(metrics.dump().startsWith("students 2\nexams 2\nquestions 4\nresponses 5\n"));
+	}
+
+	@Test
+	void restoredManagersAreRecounted() {
+		SystemManager manager = populated();
+		String serialized = new File(directory, "manager.ser").getPath();
+		String snapshot = new File(directory, "manager.snap").getPath();
+		manager.saveManager(manager, serialized);
+		manager.saveManagerSnapshot(manager, snapshot);
+
+		ManagerMetrics restored = new ManagerMetrics(
+				(SystemManager) manager.restoreManager(serialized));
+		assertEquals(3, restored.getQuestionCount());
+		assertEquals(4, restored.getResponseCount());
+
+		ManagerMetrics eager = new ManagerMetrics(
+				(SystemManager) manager.restoreManagerSnapshot(snapshot, false));
+		assertEquals(3, eager.getQuestionCount());
+		assertEquals(4, eager.getResponseCount());
+
+		// a lazily restored student's responses count once it is read
+		SystemManager lazyManager = (SystemManager) manager.restoreManagerSnapshot(snapshot, true);
+		ManagerMetrics lazy = new ManagerMetrics(lazyManager);
+		assertEquals(3, lazy.getQuestionCount());
+		assertEquals(0, lazy.getResponseCount());
+		lazyManager.getExamScore("Smith,John", 1);
+		assertEquals(2, lazy.getResponseCount());
+	}
+}
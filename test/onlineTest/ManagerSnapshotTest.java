@@ -0,0 +1,163 @@
+package onlineTest;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Managers written with saveManagerSnapshot and read back, eagerly and
+ * lazily.
+ */
+class ManagerSnapshotTest {
+
+	@TempDir
+	File directory;
+
+	private String snapshotFile() {
+		return new File(directory, "manager.snap").getPath();
+	}
+
+	private static final List<String> NAMES =
+			List.of("Smith,John", "Doe,Jane", "Adams,Ann", "Brown,Bob", "Lee,Kim");
+
+	// two exams of every question type; not every student takes both
+	private static SystemManager populated() {
+		SystemManager manager = new SystemManager();
+		manager.setLetterGradesCutoffs(new String[] {"A", "B", "C", "D", "F"},
+				new double[] {90, 80, 70, 60, 0});
+		for (int examId = 1; examId <= 2; examId++) {
+			manager.addExam(examId, "Exam " + examId);
+			manager.addTrueFalseQuestion(examId, 1, "Is the sky blue?", 2, true);
+			manager.addMultipleChoiceQuestion(examId, 2, "Pick the primes", 3,
+					new String[] {"A", "C"});
+			manager.addFillInTheBlanksQuestion(examId, 5, "Name two colors", 4,
+					new String[] {"red", "blue"}, BlankMatcher.IGNORE_CASE,
+					new String[][] {{"crimson"}, null});
+		}
+		for (int i = 0; i < NAMES.size(); i++) {
+			String name = NAMES.get(i);
+			manager.addStudent(name);
+			for (int examId = 1; examId <= 1 + i % 2; examId++) {
+				manager.answerTrueFalseQuestion(name, examId, 1, i % 2 == 0);
+				manager.answerMultipleChoiceQuestion(name, examId, 2,
+						i % 3 == 0 ? new String[] {"A"} : new String[] {"C", "A"});
+				manager.answerFillInTheBlanksQuestion(name, examId, 5,
+						i % 2 == 0 ? new String[] {"Crimson", "BLUE"} : new String[] {"green"});
+			}
+		}
+		manager.addStudent("Late,Comer");  // took no exam
+		return manager;
+	}
+
+	private static void assertSameManager(SystemManager expected, SystemManager actual) {
+		for (int examId = 1; examId <= 2; examId++) {
+			assertEquals(expected.getKey(examId), actual.getKey(examId));
+			assertEquals(expected.getExamParticipants(examId), actual.getExamParticipants(examId));
+			assertEquals(expected.getMaxScore(examId), actual.getMaxScore(examId));
+			assertEquals(expected.getMinScore(examId), actual.getMinScore(examId));
+			assertEquals(expected.getMedianScore(examId), actual.getMedianScore(examId));
+			assertEquals(expected.getAverageScore(examId), actual.getAverageScore(examId));
+			assertEquals(expected.getScoreHistogram(examId, 2),
+					actual.getScoreHistogram(examId, 2));
+		}
+		for (String name : NAMES) {
+			Student student = expected.getStudent(name);
+			Student restored = actual.getStudent(name);
+			for (int examId : student.getExamsTaken().keySet()) {
+				assertEquals(expected.getExamScore(name, examId), actual.getExamScore(name, examId));
+				assertEquals(expected.getGradingReport(name, examId),
+						actual.getGradingReport(name, examId));
+				assertEquals(student.getQuestionScores(examId), restored.getQuestionScores(examId));
+				assertResponsesEqual(student.getResponses(examId), restored.getResponses(examId));
+			}
+			assertEquals(student.getExamsTaken().keySet(), restored.getExamsTaken().keySet());
+		}
+		assertEquals(expected.getCourseGrades(), actual.getCourseGrades());
+	}
+
+	private static void assertResponsesEqual(Map<Integer, Object> expected,
+											 Map<Integer, Object> actual) {
+		assertEquals(expected.keySet(), actual.keySet());
+		for (Map.Entry<Integer, Object> entry : expected.entrySet()) {
+			Object response = actual.get(entry.getKey());
+			if (entry.getValue() instanceof String[]) {
+				assertArrayEquals((String[]) entry.getValue(), (String[]) response);
+			} else {
+				assertEquals(entry.getValue(), response);
+			}
+		}
+	}
+
+	@Test
+	void lazyRestoreEqualsEagerRestore() {
+		SystemManager manager = populated();
+		manager.saveManagerSnapshot(manager, snapshotFile());
+
+		SystemManager eager = (SystemManager) manager.restoreManagerSnapshot(snapshotFile(), false);
+		SystemManager lazy = (SystemManager) manager.restoreManagerSnapshot(snapshotFile(), true);
+		assertNotNull(eager);
+		assertNotNull(lazy);
+
+		// the statistics and participants are there before any student is read
+		assertEquals(manager.getExamParticipants(2), lazy.getExamParticipants(2));
+		assertEquals(manager.getMedianScore(1), lazy.getMedianScore(1));
+		for (String name : NAMES) {
+			assertTrue(lazy.getStudent(name).isLoadPending());
+		}
+
+		assertSameManager(manager, eager);
+		assertSameManager(eager, lazy);
+	}
+
+	@Test
+	void snapshotsBeforeVersion4AreRestoredEagerly() throws IOException {
+		SystemManager manager = populated();
+		manager.saveManagerSnapshot(manager, snapshotFile());
+
+		// a version 4 file reads as version 3 once its index is ignored, and
+		// version 3 indexes cannot be mapped
+		try (RandomAccessFile file = new RandomAccessFile(snapshotFile(), "rw")) {
+			file.seek(4);
+			file.writeInt(3);
+		}
+
+		SystemManager restored = (SystemManager) manager.restoreManagerSnapshot(snapshotFile(),
+				true);
+		assertNotNull(restored);
+		for (String name : NAMES) {
+			assertFalse(restored.getStudent(name).isLoadPending());
+		}
+		assertSameManager(manager, restored);
+	}
+
+	@Test
+	void nullResponseEntriesRoundTrip() {
+		SystemManager manager = new SystemManager();
+		manager.addExam(1, "Midterm");
+		manager.addFillInTheBlanksQuestion(1, 1, "Name two colors", 4, new String[] {"red", "blue"});
+		manager.addStudent("Smith,John");
+		manager.answerFillInTheBlanksQuestion("Smith,John", 1, 1, new String[] {"red", null});
+		manager.saveManagerSnapshot(manager, snapshotFile());
+
+		for (boolean lazy : new boolean[] {false, true}) {
+			SystemManager restored = (SystemManager) manager.restoreManagerSnapshot(snapshotFile(),
+					lazy);
+			assertNotNull(restored);
+			assertArrayEquals(new String[] {"red", null},
+					(String[]) restored.getStudent("Smith,John").getResponses(1).get(1));
+			assertEquals(manager.getGradingReport("Smith,John", 1),
+					restored.getGradingReport("Smith,John", 1));
+		}
+	}
+}
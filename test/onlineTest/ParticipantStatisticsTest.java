@@ -0,0 +1,102 @@
+package onlineTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Exam statistics over the exam's participants only, against those over
+ * the whole roster, where students who never took the exam count as 0.0.
+ */
+class ParticipantStatisticsTest {
+
+	private SystemManager manager;
+
+	@BeforeEach
+	void setUp() {
+		manager = new SystemManager();
+		manager.addExam(1, "Midterm");
+		manager.addTrueFalseQuestion(1, 1, "Is the sky blue?", 2, true);
+		manager.addTrueFalseQuestion(1, 2, "Is grass green?", 4, true);
+		for (String name : new String[] {"A,A", "B,B", "C,C", "D,D", "E,E", "F,F"}) {
+			manager.addStudent(name);
+		}
+
+		// four participants score 6, 4, 2 and 0; two students never take it
+		manager.answerTrueFalseQuestion("A,A", 1, 1, true);
+		manager.answerTrueFalseQuestion("A,A", 1, 2, true);
+		manager.answerTrueFalseQuestion("B,B", 1, 2, true);
+		manager.answerTrueFalseQuestion("C,C", 1, 1, true);
+		manager.answerTrueFalseQuestion("D,D", 1, 1, false);
+	}
+
+	@Test
+	void minimum() {
+		assertEquals(0.0, manager.getMinScore(1, false));
+		assertEquals(0.0, manager.getMinScore(1, true));  // D,D scored 0.0
+
+		manager.answerTrueFalseQuestion("D,D", 1, 2, true);
+		assertEquals(0.0, manager.getMinScore(1, false));
+		assertEquals(2.0, manager.getMinScore(1, true));
+	}
+
+	@Test
+	void average() {
+		assertEquals(12.0 / 6, manager.getAverageScore(1, false));
+		assertEquals(12.0 / 4, manager.getAverageScore(1, true));
+		assertEquals(manager.getAverageScore(1), manager.getAverageScore(1, false));
+	}
+
+	@Test
+	void percentiles() {
+		// roster: 0 0 0 2 4 6, participants: 0 2 4 6
+		assertEquals(0.0, manager.getScorePercentile(1, 50, false));
+		assertEquals(2.0, manager.getScorePercentile(1, 50, true));
+		assertEquals(4.0, manager.getScorePercentile(1, 75, true));
+		assertEquals(4.0, manager.getScorePercentile(1, 80, false));
+		assertEquals(6.0, manager.getScorePercentile(1, 100, true));
+		assertEquals(0.0, manager.getScorePercentile(1, 0, true));
+		assertEquals(manager.getMedianScore(1), manager.getScorePercentile(1, 50, false));
+	}
+
+	@Test
+	void examNobodyTook() {
+		manager.addExam(2, "Final");
+		manager.addTrueFalseQuestion(2, 1, "Is water wet?", 1, true);
+
+		assertEquals(1000.0, manager.getMinScore(2, true));
+		assertTrue(Double.isNaN(manager.getAverageScore(2, true)));
+		assertEquals(0.0, manager.getScorePercentile(2, 50, true));
+		assertEquals(0.0, manager.getAverageScore(2, false));
+	}
+
+	@Test
+	void partitionedManagerAgrees() {
+		try (PartitionedManager partitioned = new PartitionedManager(3)) {
+			partitioned.addExam(1, "Midterm");
+			partitioned.addTrueFalseQuestion(1, 1, "Is the sky blue?", 2, true);
+			partitioned.addTrueFalseQuestion(1, 2, "Is grass green?", 4, true);
+			for (String name : new String[] {"A,A", "B,B", "C,C", "D,D", "E,E", "F,F"}) {
+				partitioned.addStudent(name);
+			}
+			partitioned.answerTrueFalseQuestion("A,A", 1, 1, true);
+			partitioned.answerTrueFalseQuestion("A,A", 1, 2, true);
+			partitioned.answerTrueFalseQuestion("B,B", 1, 2, true);
+			partitioned.answerTrueFalseQuestion("C,C", 1, 1, true);
+			partitioned.answerTrueFalseQuestion("D,D", 1, 1, false);
+
+			for (boolean participantsOnly : new boolean[] {false, true}) {
+				assertEquals(manager.getMinScore(1, participantsOnly),
+						partitioned.getMinScore(1, participantsOnly));
+				assertEquals(manager.getAverageScore(1, participantsOnly),
+						partitioned.getAverageScore(1, participantsOnly), 1e-9);
+				for (double percentile : new double[] {0, 25, 50, 75, 100}) {
+					assertEquals(manager.getScorePercentile(1, percentile, participantsOnly),
+							partitioned.getScorePercentile(1, percentile, participantsOnly));
+				}
+			}
+		}
+	}
+}
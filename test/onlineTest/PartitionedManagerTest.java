@@ -0,0 +1,98 @@
+package onlineTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A PartitionedManager answers like one SystemManager holding everybody,
+ * and is only restored when every partition is.
+ */
+class PartitionedManagerTest {
+
+	@TempDir
+	File directory;
+
+	private static void populate(Manager manager) {
+		manager.addExam(1, "Midterm");
+		manager.addTrueFalseQuestion(1, 1, "Is the sky blue?", 2, true);
+		manager.addMultipleChoiceQuestion(1, 2, "Pick the primes", 3, new String[] {"A", "C"});
+		manager.setLetterGradesCutoffs(new String[] {"A", "B", "C", "D", "F"},
+				new double[] {90, 80, 70, 60, 0});
+		String[] names = {"Smith,John", "Doe,Jane", "Adams,Ann", "Brown,Bob", "Lee,Kim"};
+		for (int i = 0; i < names.length; i++) {
+			manager.addStudent(names[i]);
+			manager.answerTrueFalseQuestion(names[i], 1, 1, i % 2 == 0);
+			manager.answerMultipleChoiceQuestion(names[i], 1, 2,
+					i % 3 == 0 ? new String[] {"A"} : new String[] {"C", "A"});
+		}
+	}
+
+	@Test
+	void answersLikeOneSystemManager() {
+		SystemManager single = new SystemManager();
+		populate(single);
+		try (PartitionedManager partitioned = new PartitionedManager(3)) {
+			populate(partitioned);
+
+			assertEquals(single.getCourseGrades(), partitioned.getCourseGrades());
+			assertEquals(single.getExamParticipants(1), partitioned.getExamParticipants(1));
+			assertEquals(single.getMaxScore(1), partitioned.getMaxScore(1));
+			assertEquals(single.getMinScore(1), partitioned.getMinScore(1));
+			assertEquals(single.getMedianScore(1), partitioned.getMedianScore(1));
+			assertEquals(single.getAverageScore(1), partitioned.getAverageScore(1), 1e-9);
+		}
+	}
+
+	@Test
+	void courseGradesAreMergedPageByPage() {
+		SystemManager single = new SystemManager();
+		try (PartitionedManager partitioned = new PartitionedManager(2)) {
+			// enough students for several pages per partition
+			for (Manager manager : new Manager[] {single, partitioned}) {
+				populate(manager);
+				for (int i = 0; i < 5000; i++) {
+					String name = "Student" + i + ",Test";
+					manager.addStudent(name);
+					manager.answerTrueFalseQuestion(name, 1, 1, i % 3 == 0);
+				}
+			}
+			assertEquals(single.getCourseGrades(), partitioned.getCourseGrades());
+		}
+	}
+
+	@Test
+	void courseGradeLinesArePaged() {
+		SystemManager manager = new SystemManager();
+		populate(manager);
+
+		List<String> lines = List.of(manager.getCourseGrades().split("\n"));
+		assertEquals(lines.subList(0, 2), manager.getCourseGradeLines(null, 2));
+		assertEquals(lines.subList(2, 4), manager.getCourseGradeLines("Brown,Bob", 2));
+		assertEquals(lines.subList(4, 5), manager.getCourseGradeLines("Lee,Kim", 2));
+		assertEquals(List.of(), manager.getCourseGradeLines("Smith,John", 2));
+	}
+
+	@Test
+	void restoreFailsWhenAPartitionIsMissing() {
+		String fileName = new File(directory, "manager.ser").getPath();
+		try (PartitionedManager partitioned = new PartitionedManager(3)) {
+			populate(partitioned);
+			partitioned.saveManager(partitioned, fileName);
+
+			Manager restored = partitioned.restoreManager(fileName);
+			assertNotNull(restored);
+			assertEquals(partitioned.getCourseGrades(), restored.getCourseGrades());
+			((PartitionedManager) restored).close();
+
+			new File(fileName + ".1").delete();
+			assertNull(partitioned.restoreManager(fileName));
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package onlineTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * ShardedManager under concurrent submitters, with small rings, and while
+ * it is being closed.
+ */
+class ShardedManagerTest {
+
+	private static final int STUDENTS = 20;
+	private static final int QUESTIONS = 10;
+
+	private static String name(int student) {
+		return "Student" + student + ",Test";
+	}
+
+	// one exam of true/false questions, each worth its own number of points
+	private static void populate(Manager manager) {
+		manager.addExam(1, "Midterm");
+		for (int q = 1; q <= QUESTIONS; q++) {
+			manager.addTrueFalseQuestion(1, q, "Question " + q, q, true);
+		}
+		for (int s = 0; s < STUDENTS; s++) {
+			manager.addStudent(name(s));
+		}
+	}
+
+	@Test
+	void answersToOneStudentApplyInSubmissionOrder() throws Exception {
+		try (ShardedManager sharded = new ShardedManager(new SystemManager(), 4, 8)) {
+			populate(sharded);
+
+			// each thread owns some students, and flips their answers back and
+			// forth; the last answer submitted must be the one that counts
+			ExecutorService executor = Executors.newFixedThreadPool(4);
+			List<Future<?>> done = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				int thread = t;
+				done.add(executor.submit(() -> {
+					for (int round = 0; round < 50; round++) {
+						for (int s = thread; s < STUDENTS; s += 4) {
+							for (int q = 1; q <= QUESTIONS; q++) {
+								sharded.answerTrueFalseQuestionAsync(name(s), 1, q, round % 2 == 1);
+							}
+						}
+					}
+				}));
+			}
+			for (Future<?> future : done) {
+				future.get();
+			}
+			executor.shutdown();
+
+			// a query is an event too, so it sees every answer before it
+			for (int s = 0; s < STUDENTS; s++) {
+				assertEquals(QUESTIONS * (QUESTIONS + 1) / 2, sharded.getExamScore(name(s), 1));
+			}
+		}
+	}
+
+	@Test
+	void fullRingsMakeSubmittersWait() throws Exception {
+		SystemManager expected = new SystemManager();
+		populate(expected);
+
+		// rings of two events, far fewer than the answers in flight
+		try (ShardedManager sharded = new ShardedManager(new SystemManager(), 2, 2)) {
+			populate(sharded);
+			List<CompletableFuture<Void>> futures = new ArrayList<>();
+			for (int s = 0; s < STUDENTS; s++) {
+				for (int q = 1; q <= QUESTIONS; q++) {
+					boolean answer = (s + q) % 3 != 0;
+					futures.add(sharded.answerTrueFalseQuestionAsync(name(s), 1, q, answer));
+					expected.answerTrueFalseQuestion(name(s), 1, q, answer);
+				}
+			}
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+			for (int s = 0; s < STUDENTS; s++) {
+				assertEquals(expected.getExamScore(name(s), 1), sharded.getExamScore(name(s), 1));
+			}
+			assertEquals(expected.getAverageScore(1), sharded.getAverageScore(1), 1e-9);
+		}
+	}
+
+	@Test
+	void closeUnderLoadLeavesNoCallerWaiting() throws Exception {
+		ShardedManager sharded = new ShardedManager(new SystemManager(), 4, 4);
+		populate(sharded);
+
+		int producers = 6;
+		CountDownLatch started = new CountDownLatch(producers);
+		AtomicInteger applied = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(producers);
+		List<Future<?>> done = new ArrayList<>();
+		for (int t = 0; t < producers; t++) {
+			int thread = t;
+			done.add(executor.submit(() -> {
+				started.countDown();
+				for (int i = 0; ; i++) {
+					try {
+						if (thread == 0 && i % 50 == 0) {
+							// exclusive calls race with closing too
+							sharded.setLetterGradesCutoffs(new String[] {"P", "F"},
+									new double[] {50, 0});
+						} else if (thread % 2 == 0) {
+							sharded.answerTrueFalseQuestion(name(i % STUDENTS), 1,
+									1 + i % QUESTIONS, true);
+						} else {
+							sharded.answerTrueFalseQuestionAsync(name(i % STUDENTS), 1,
+									1 + i % QUESTIONS, false).join();
+						}
+						applied.incrementAndGet();
+					} catch (IllegalStateException | CompletionException e) {
+						return;  // closed
+					}
+				}
+			}));
+		}
+
+		started.await();
+		Thread.sleep(50);
+		assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+			sharded.close();
+			for (Future<?> future : done) {
+				future.get();
+			}
+		});
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+		assertTrue(applied.get() > 0);
+
+		assertThrows(IllegalStateException.class,
+				() -> sharded.answerTrueFalseQuestion(name(0), 1, 1, true));
+		assertThrows(IllegalStateException.class, () -> sharded.addStudent("Late,Student"));
+	}
+}
@@ -0,0 +1,66 @@
+package onlineTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Managers saved with saveManager by earlier versions must still restore
+ * and be usable, even though SystemManager has gained fields since.
+ */
+class SystemManagerSerializationTest {
+
+	/**
+	 * baseline-manager.ser was written by the original SystemManager, before
+	 * the name index and the exam totals version existed. It holds exams 10
+	 * ("Midterm") and 20 ("Final") with no questions, students Smith,John
+	 * and Doe,Jane, and the cutoffs A 90, B 80, C 70, D 60, F 0.
+	 */
+	private static Manager restoreBaseline() throws URISyntaxException {
+		String fileName = Paths.get(SystemManagerSerializationTest.class
+				.getResource("baseline-manager.ser").toURI()).toString();
+		Manager manager = new SystemManager().restoreManager(fileName);
+		assertNotNull(manager);
+		return manager;
+	}
+
+	@Test
+	void baselineManagerListsAndAddsStudents() throws Exception {
+		Manager manager = restoreBaseline();
+
+		assertEquals("Doe,Jane 0.0 F\nSmith,John 0.0 F\n", manager.getCourseGrades());
+		assertTrue(manager.addStudent("Adams,Ann"));
+
+		StringWriter grades = new StringWriter();
+		manager.writeCourseGrades(grades);
+		assertEquals("Adams,Ann 0.0 F\nDoe,Jane 0.0 F\nSmith,John 0.0 F\n", grades.toString());
+	}
+
+	@Test
+	void baselineManagerTakesQuestionsAndGrades() throws Exception {
+		Manager manager = restoreBaseline();
+
+		manager.addTrueFalseQuestion(10, 1, "Is the sky blue?", 2, true);
+		manager.addMultipleChoiceQuestion(10, 2, "Pick the primes", 3, new String[] {"A", "C"});
+		manager.addFillInTheBlanksQuestion(20, 1, "Name a color", 4, new String[] {"red"});
+
+		manager.answerTrueFalseQuestion("Smith,John", 10, 1, true);
+		manager.answerMultipleChoiceQuestion("Smith,John", 10, 2, new String[] {"C", "A"});
+		manager.answerFillInTheBlanksQuestion("Smith,John", 20, 1, new String[] {"red"});
+		manager.answerTrueFalseQuestion("Doe,Jane", 10, 1, false);
+
+		assertEquals(100.0, manager.getCourseNumericGrade("Smith,John"));
+		assertEquals(5.0, manager.getMaxScore(10));
+		assertEquals("Doe,Jane 0.0 F\nSmith,John 100.0 A\n", manager.getCourseGrades());
+
+		// a changed exam total still invalidates the cached course grade
+		manager.addTrueFalseQuestion(20, 2, "Is grass green?", 4, true);
+		assertEquals(75.0, manager.getCourseNumericGrade("Smith,John"));
+	}
+}